@@ -18,11 +18,14 @@ package org.springframework.samples.petclinic;
 import com.github.dandelion.core.web.DandelionFilter;
 import com.github.dandelion.core.web.DandelionServlet;
 import com.github.dandelion.datatables.core.web.filter.DatatablesFilter;
+import org.springframework.samples.petclinic.web.AsyncAwareBufferingFilter;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 import org.springframework.web.WebApplicationInitializer;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.context.support.XmlWebApplicationContext;
 import org.springframework.web.filter.CharacterEncodingFilter;
+import org.springframework.web.filter.DelegatingFilterProxy;
 import org.springframework.web.servlet.DispatcherServlet;
 import org.springframework.web.servlet.support.AbstractDispatcherServletInitializer;
 
@@ -36,7 +39,11 @@ import java.util.EnumSet;
  * <p/>
  * Create the Spring "<strong>root</strong>" application context.<br/>
  * Register a {@link DispatcherServlet} and a {@link DandelionServlet} in the servlet context.<br/>
- * For both servlets, register a {@link CharacterEncodingFilter}, a {@link DandelionFilter} an a {@link DatatablesFilter}.
+ * For both servlets, register a {@link CharacterEncodingFilter}, a {@link DandelionFilter} an a {@link DatatablesFilter},
+ * behind the <code>sqlStatisticsFilter</code> of the root context, which counts the SQL statements of each request.
+ * <p/>
+ * Async request processing is enabled for the {@link DispatcherServlet} and its filters, so that controllers can
+ * return a {@link java.util.concurrent.Callable} and release the container thread while the database is queried.
  * <p/>
  *
  * @author Antoine Rey
@@ -44,11 +51,15 @@ import java.util.EnumSet;
 public class PetclinicInitializer extends AbstractDispatcherServletInitializer {
 
     /**
-     * Spring profile used to choose the persistence layer implementation.
+     * Spring profile used to choose the persistence layer implementation, unless profiles are given through the
+     * <code>spring.profiles.active</code> property, e.g. <code>-Dspring.profiles.active=jpa,pooled-ids</code>.
      * <p/>
      * When using Spring jpa, use: jpa
      * When using Spring JDBC, use: jdbc
      * When using Spring Data JPA, use: spring-data-jpa
+     * <p/>
+     * With jpa or spring-data-jpa, add pooled-ids (e.g. "jpa,pooled-ids") to allocate ids in blocks from the
+     * id_sequences table instead of identity columns, so that bulk inserts are batched.
      */
     private static final String SPRING_PROFILE = "jpa";
 
@@ -64,7 +75,7 @@ public class PetclinicInitializer extends AbstractDispatcherServletInitializer {
     protected WebApplicationContext createRootApplicationContext() {
         XmlWebApplicationContext rootAppContext = new XmlWebApplicationContext();
         rootAppContext.setConfigLocations("classpath:spring/business-config.xml", "classpath:spring/tools-config.xml");
-        rootAppContext.getEnvironment().setActiveProfiles(SPRING_PROFILE);
+        rootAppContext.getEnvironment().setDefaultProfiles(StringUtils.commaDelimitedListToStringArray(SPRING_PROFILE));
         return rootAppContext;
     }
 
@@ -76,6 +87,11 @@ public class PetclinicInitializer extends AbstractDispatcherServletInitializer {
         return webAppContext;
     }
 
+    @Override
+    protected boolean isAsyncSupported() {
+        return true;
+    }
+
     @Override
     protected String[] getServletMappings() {
         return new String[]{"/"};
@@ -92,7 +108,12 @@ public class PetclinicInitializer extends AbstractDispatcherServletInitializer {
         // Dandelion-Datatables filter, used for basic export -->
         DatatablesFilter datatablesFilter = new DatatablesFilter();
 
-        return new Filter[]{characterEncodingFilter, dandelionFilter, datatablesFilter};
+        // SQL statement counts per request, see tools-config.xml
+        DelegatingFilterProxy sqlStatisticsFilter = new DelegatingFilterProxy("sqlStatisticsFilter");
+
+        // Both Dandelion filters rewrite the buffered response, which needs care for async requests
+        return new Filter[]{sqlStatisticsFilter, characterEncodingFilter,
+            new AsyncAwareBufferingFilter(dandelionFilter, datatablesFilter)};
     }
 
     @Override
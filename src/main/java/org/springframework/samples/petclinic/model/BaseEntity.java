@@ -15,6 +15,8 @@
  */
 package org.springframework.samples.petclinic.model;
 
+import java.io.Serializable;
+
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
@@ -22,12 +24,20 @@ import javax.persistence.MappedSuperclass;
 
 /**
  * Simple JavaBean domain object with an id property. Used as a base class for objects needing this property.
+ * <p/>
+ * Serializable so that caches can hand out copies of cached objects, see <code>cache/ehcache.xml</code>.
+ * <p/>
+ * Ids come from identity columns, unless the <code>pooled-ids</code> profile replaces this mapping with
+ * <code>META-INF/orm-pooled-ids.xml</code>.
  *
  * @author Ken Krebs
  * @author Juergen Hoeller
  */
 @MappedSuperclass
-public class BaseEntity {
+public class BaseEntity implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     protected Integer id;
@@ -15,22 +15,24 @@
  */
 package org.springframework.samples.petclinic.model;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 import javax.validation.constraints.Digits;
 
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 import org.hibernate.validator.constraints.NotEmpty;
-import org.springframework.beans.support.MutableSortDefinition;
-import org.springframework.beans.support.PropertyComparator;
 import org.springframework.core.style.ToStringCreator;
 
 /**
@@ -44,6 +46,12 @@ import org.springframework.core.style.ToStringCreator;
 @Entity
 @Table(name = "owners")
 public class Owner extends Person {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Comparator<Pet> PETS_BY_NAME =
+        Comparator.comparing(Pet::getName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+
     @Column(name = "address")
     @NotEmpty
     private String address;
@@ -57,9 +65,34 @@ public class Owner extends Person {
     @Digits(fraction = 0, integer = 10)
     private String telephone;
 
+    /**
+     * Loaded on first access, for all owners of the query that loaded this one at once.
+     */
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "owner")
+    @Fetch(FetchMode.SUBSELECT)
     private Set<Pet> pets;
 
+    /**
+     * Sorted view of the pets, built on first access and rebuilt once out of date, see {@link SortedViews}.
+     */
+    @Transient
+    private List<Pet> sortedPets;
+
+    /**
+     * Case-insensitive index of the pets by name, built and maintained by {@link #addPet}, {@link #setPetsInternal}
+     * and {@link Pet#setName}; lookups only read it, so that owners shared between threads can be looked up
+     * concurrently. Pets loaded by the persistence provider are not indexed but scanned. A saved pet takes precedence
+     * over a new one with the same name.
+     */
+    @Transient
+    private Map<String, Pet> petsByName;
+
+    /**
+     * Number of pets in the backing collection when {@link #petsByName} was last brought up to date.
+     */
+    @Transient
+    private int indexedPetCount;
+
 
     public String getAddress() {
         return this.address;
@@ -94,17 +127,57 @@ public class Owner extends Person {
 
     protected void setPetsInternal(Set<Pet> pets) {
         this.pets = pets;
+        this.sortedPets = null;
+        reindexPets();
     }
 
+    /**
+     * Returns the pets of this owner sorted by name. The sorted list is cached until the pets or their names change,
+     * since views typically ask for it several times while rendering an owner.
+     */
     public List<Pet> getPets() {
-        List<Pet> sortedPets = new ArrayList<>(getPetsInternal());
-        PropertyComparator.sort(sortedPets, new MutableSortDefinition("name", true, true));
-        return Collections.unmodifiableList(sortedPets);
+        List<Pet> sorted = SortedViews.sorted(getPetsInternal(), this.sortedPets, PETS_BY_NAME);
+        this.sortedPets = sorted;
+        return sorted;
     }
 
     public void addPet(Pet pet) {
-        getPetsInternal().add(pet);
+        // a new owner starts with an empty index; pets loaded by the persistence provider are not indexed
+        boolean indexed = this.pets == null || isIndexUpToDate();
+        Set<Pet> pets = getPetsInternal();
+        pets.add(pet);
         pet.setOwner(this);
+        this.sortedPets = null;
+        if (indexed) {
+            if (this.petsByName == null) {
+                this.petsByName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            }
+            indexPet(this.petsByName, pet);
+            this.indexedPetCount = pets.size();
+        } else {
+            this.petsByName = null;
+        }
+    }
+
+    /**
+     * Called by {@link Pet#setName} so that the sorted view and the name index follow the new name.
+     */
+    void petRenamed(Pet pet, String oldName) {
+        this.sortedPets = null;
+        if (!isIndexUpToDate()) {
+            this.petsByName = null;
+            return;
+        }
+        if (oldName != null && this.petsByName.get(oldName) == pet) {
+            this.petsByName.remove(oldName);
+            // another pet may share the old name
+            for (Pet other : getPetsInternal()) {
+                if (other != pet && oldName.equalsIgnoreCase(other.getName())) {
+                    indexPet(this.petsByName, other);
+                }
+            }
+        }
+        indexPet(this.petsByName, pet);
     }
 
     /**
@@ -124,17 +197,61 @@ public class Owner extends Person {
      * @return true if pet name is already in use
      */
     public Pet getPet(String name, boolean ignoreNew) {
-        name = name.toLowerCase();
-        for (Pet pet : getPetsInternal()) {
-            if (!ignoreNew || !pet.isNew()) {
-                String compName = pet.getName();
-                compName = compName.toLowerCase();
-                if (compName.equals(name)) {
+        Pet pet = isIndexUpToDate() ? this.petsByName.get(name) : findPet(name);
+        if (pet == null || (ignoreNew && pet.isNew())) {
+            return null;
+        }
+        return pet;
+    }
+
+    /**
+     * Whether the name index covers the current pets, i.e. unless the backing collection has been filled in place by
+     * the persistence provider since the index was built.
+     */
+    private boolean isIndexUpToDate() {
+        return this.petsByName != null && this.pets != null && this.indexedPetCount == this.pets.size();
+    }
+
+    private void reindexPets() {
+        Map<String, Pet> petsByName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        Set<Pet> pets = getPetsInternal();
+        for (Pet pet : pets) {
+            indexPet(petsByName, pet);
+        }
+        this.petsByName = petsByName;
+        this.indexedPetCount = pets.size();
+    }
+
+    /**
+     * Looks a pet up without the index, with the same precedence rules, for pets loaded by the persistence provider.
+     * Names are compared ignoring case, without allocating a lower-cased copy.
+     */
+    private Pet findPet(String name) {
+        if (this.pets == null) {
+            return null;
+        }
+        Pet found = null;
+        for (Pet pet : this.pets) {
+            if (name.equalsIgnoreCase(pet.getName())) {
+                if (!pet.isNew()) {
                     return pet;
                 }
+                if (found == null) {
+                    found = pet;
+                }
             }
         }
-        return null;
+        return found;
+    }
+
+    private static void indexPet(Map<String, Pet> petsByName, Pet pet) {
+        if (pet.getName() == null) {
+            return;
+        }
+        Pet indexed = petsByName.get(pet.getName());
+        if (indexed == null || (indexed.isNew() && !pet.isNew())) {
+            petsByName.put(pet.getName(), pet);
+        }
     }
 
     @Override
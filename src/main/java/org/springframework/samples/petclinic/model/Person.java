@@ -28,6 +28,8 @@ import org.hibernate.validator.constraints.NotEmpty;
 @MappedSuperclass
 public class Person extends BaseEntity {
 
+    private static final long serialVersionUID = 1L;
+
     @Column(name = "first_name")
     @NotEmpty
     protected String firstName;
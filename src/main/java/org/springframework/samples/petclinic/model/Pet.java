@@ -15,8 +15,8 @@
  */
 package org.springframework.samples.petclinic.model;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -29,12 +29,13 @@ import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 import org.hibernate.annotations.Type;
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
-import org.springframework.beans.support.MutableSortDefinition;
-import org.springframework.beans.support.PropertyComparator;
 import org.springframework.format.annotation.DateTimeFormat;
 
 /**
@@ -48,6 +49,11 @@ import org.springframework.format.annotation.DateTimeFormat;
 @Table(name = "pets")
 public class Pet extends NamedEntity {
 
+    private static final long serialVersionUID = 1L;
+
+    private static final Comparator<Visit> VISITS_BY_DATE_DESCENDING =
+        Comparator.comparing(Visit::getDate, Comparator.nullsFirst(Comparator.<LocalDate>reverseOrder()));
+
     @Column(name = "birth_date")
     @Type(type = "org.jadira.usertype.dateandtime.joda.PersistentLocalDate")
     @DateTimeFormat(pattern = "yyyy/MM/dd")
@@ -61,9 +67,34 @@ public class Pet extends NamedEntity {
     @JoinColumn(name = "owner_id")
     private Owner owner;
 
-    @OneToMany(cascade = CascadeType.ALL, mappedBy = "pet", fetch = FetchType.EAGER)
+    /**
+     * Loaded on first access, for all pets of the query that loaded this one at once.
+     */
+    @OneToMany(cascade = CascadeType.ALL, mappedBy = "pet", fetch = FetchType.LAZY)
+    @Fetch(FetchMode.SUBSELECT)
     private Set<Visit> visits;
 
+    /**
+     * Total number of visits when only the most recent ones have been loaded, see {@link #setRecentVisits}.
+     */
+    @Transient
+    private Integer visitCount;
+
+    /**
+     * Sorted view of the visits, built on first access and rebuilt once out of date, see {@link SortedViews}.
+     */
+    @Transient
+    private List<Visit> sortedVisits;
+
+    @Override
+    public void setName(String name) {
+        String oldName = getName();
+        super.setName(name);
+        if (this.owner != null) {
+            this.owner.petRenamed(this, oldName);
+        }
+    }
+
     public LocalDate getBirthDate() {
         return this.birthDate;
     }
@@ -97,17 +128,51 @@ public class Pet extends NamedEntity {
 
     protected void setVisitsInternal(Set<Visit> visits) {
         this.visits = visits;
+        this.sortedVisits = null;
     }
 
+    /**
+     * Returns the visits of this pet, most recent first. The sorted list is cached until the visits or their dates
+     * change.
+     */
     public List<Visit> getVisits() {
-        List<Visit> sortedVisits = new ArrayList<>(getVisitsInternal());
-        PropertyComparator.sort(sortedVisits, new MutableSortDefinition("date", false, false));
-        return Collections.unmodifiableList(sortedVisits);
+        List<Visit> sorted = SortedViews.sorted(getVisitsInternal(), this.sortedVisits, VISITS_BY_DATE_DESCENDING);
+        this.sortedVisits = sorted;
+        return sorted;
     }
 
     public void addVisit(Visit visit) {
         getVisitsInternal().add(visit);
         visit.setPet(this);
+        this.sortedVisits = null;
+        if (this.visitCount != null) {
+            this.visitCount++;
+        }
+    }
+
+    /**
+     * Returns the total number of visits of this pet, which may be more than the size of {@link #getVisits()} when
+     * only the most recent visits have been loaded.
+     */
+    public int getVisitCount() {
+        return this.visitCount != null ? this.visitCount : getVisitsInternal().size();
+    }
+
+    /**
+     * Replaces the visits of this pet with only its most recent ones, keeping track of the total number of visits. Must
+     * not be called on a pet that is managed by a persistence context.
+     *
+     * @param visitCount   the total number of visits of this pet
+     * @param recentVisits the most recent visits of this pet
+     */
+    public void setRecentVisits(int visitCount, Collection<Visit> recentVisits) {
+        this.visits = new HashSet<>();
+        for (Visit visit : recentVisits) {
+            this.visits.add(visit);
+            visit.setPet(this);
+        }
+        this.visitCount = visitCount;
+        this.sortedVisits = null;
     }
 
 }
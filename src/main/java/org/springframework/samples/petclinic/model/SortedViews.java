@@ -0,0 +1,71 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Maintains the cached sorted views of {@link Owner#getPets()}, {@link Pet#getVisits()} and
+ * {@link Vet#getSpecialties()}.
+ * <p/>
+ * A cached view is reused as long as it has as many elements as the backing collection and is still in order. The
+ * order is checked on every read, which costs a pass over the view but no allocation, so the view also follows changes
+ * that its owning entity cannot see, such as a visit date or a specialty name being changed, or the persistence
+ * provider changing the backing collection.
+ */
+final class SortedViews {
+
+    private SortedViews() {
+    }
+
+    /**
+     * Return the given view if it is still a sorted view of the given elements, or a new unmodifiable sorted view.
+     *
+     * @param elements the backing collection
+     * @param view     the previously returned view, or <code>null</code>
+     * @param order    the order of the view
+     */
+    static <T> List<T> sorted(Collection<T> elements, List<T> view, Comparator<? super T> order) {
+        if (view != null && view.size() == elements.size() && isSorted(view, order)) {
+            return view;
+        }
+        List<T> list = new ArrayList<>(elements);
+        Collections.sort(list, order);
+        return Collections.unmodifiableList(list);
+    }
+
+    private static <T> boolean isSorted(List<T> list, Comparator<? super T> order) {
+        Iterator<T> iterator = list.iterator();
+        if (!iterator.hasNext()) {
+            return true;
+        }
+        T previous = iterator.next();
+        while (iterator.hasNext()) {
+            T next = iterator.next();
+            if (order.compare(previous, next) > 0) {
+                return false;
+            }
+            previous = next;
+        }
+        return true;
+    }
+
+}
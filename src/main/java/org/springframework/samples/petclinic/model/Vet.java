@@ -15,22 +15,23 @@
  */
 package org.springframework.samples.petclinic.model;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 import javax.xml.bind.annotation.XmlElement;
 
-import org.springframework.beans.support.MutableSortDefinition;
-import org.springframework.beans.support.PropertyComparator;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Simple JavaBean domain object representing a veterinarian.
@@ -41,14 +42,30 @@ import org.springframework.beans.support.PropertyComparator;
  * @author Arjen Poutsma
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 @Table(name = "vets")
 public class Vet extends Person {
 
+    private static final long serialVersionUID = 1L;
+
+    private static final Comparator<Specialty> SPECIALTIES_BY_NAME =
+        Comparator.comparing(Specialty::getName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+
     @ManyToMany(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
     @JoinTable(name = "vet_specialties", joinColumns = @JoinColumn(name = "vet_id"),
         inverseJoinColumns = @JoinColumn(name = "specialty_id"))
     private Set<Specialty> specialties;
 
+    /**
+     * Sorted view of the specialties, built on first access and rebuilt once out of date, see {@link SortedViews}.
+     * Vets are shared through the VetsCache: the unmodifiable wrapper is safely published by its final field, so
+     * concurrent readers at worst sort the specialties more than once.
+     */
+    @Transient
+    private List<Specialty> sortedSpecialties;
+
     protected Set<Specialty> getSpecialtiesInternal() {
         if (this.specialties == null) {
             this.specialties = new HashSet<>();
@@ -58,13 +75,15 @@ public class Vet extends Person {
 
     protected void setSpecialtiesInternal(Set<Specialty> specialties) {
         this.specialties = specialties;
+        this.sortedSpecialties = null;
     }
 
     @XmlElement
     public List<Specialty> getSpecialties() {
-        List<Specialty> sortedSpecs = new ArrayList<>(getSpecialtiesInternal());
-        PropertyComparator.sort(sortedSpecs, new MutableSortDefinition("name", true, true));
-        return Collections.unmodifiableList(sortedSpecs);
+        List<Specialty> sorted = SortedViews.sorted(getSpecialtiesInternal(), this.sortedSpecialties,
+            SPECIALTIES_BY_NAME);
+        this.sortedSpecialties = sorted;
+        return sorted;
     }
 
     public int getNrOfSpecialties() {
@@ -73,6 +92,7 @@ public class Vet extends Person {
 
     public void addSpecialty(Specialty specialty) {
         getSpecialtiesInternal().add(specialty);
+        this.sortedSpecialties = null;
     }
 
 }
@@ -35,6 +35,8 @@ import org.springframework.format.annotation.DateTimeFormat;
 @Table(name = "visits")
 public class Visit extends BaseEntity {
 
+    private static final long serialVersionUID = 1L;
+
     /**
      * Holds value of property date.
      */
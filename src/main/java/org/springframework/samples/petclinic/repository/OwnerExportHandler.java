@@ -0,0 +1,42 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository;
+
+import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.model.Pet;
+import org.springframework.samples.petclinic.model.Visit;
+
+/**
+ * Callback interface used by {@link OwnerRepository#exportAll} to hand over the owners, pets and visits one row at a
+ * time, in owner, pet and visit id order: one row per visit of each pet, with a <code>null</code> visit for a pet
+ * without visits and a <code>null</code> pet for an owner without pets.
+ * <p/>
+ * The objects are not linked to each other, so that nothing accumulates while exporting: the same <code>Owner</code>
+ * and <code>Pet</code> instances are passed for all the rows of an owner and a pet, but <code>Owner.getPets()</code>
+ * and <code>Pet.getVisits()</code> are empty.
+ */
+public interface OwnerExportHandler {
+
+    /**
+     * Process one exported row.
+     *
+     * @param owner the owner, never <code>null</code>
+     * @param pet   one of the owner's pets, or <code>null</code> if the owner has no pet
+     * @param visit one of the pet's visits, or <code>null</code> if the pet has no visit
+     */
+    void handleRow(Owner owner, Pet pet, Visit visit);
+
+}
@@ -42,6 +42,33 @@ public interface OwnerRepository {
      */
     Collection<Owner> findByLastName(String lastName) throws DataAccessException;
 
+    /**
+     * Retrieve one page of <code>Owner</code>s whose last name <i>starts</i> with the given name, ordered by last name
+     * and id. Uses keyset pagination: the page starts right after the owner identified by <code>afterLastName</code>
+     * and <code>afterId</code>, so only a bounded number of rows is read whatever the position of the page.
+     *
+     * @param lastName      Value to search for
+     * @param afterLastName last name of the last owner of the previous page, or <code>null</code> for the first page
+     * @param afterId       id of the last owner of the previous page, or <code>null</code> for the first page
+     * @param limit         maximum number of owners to return
+     * @return a <code>Collection</code> of at most <code>limit</code> matching <code>Owner</code>s in ascending order
+     */
+    Collection<Owner> findByLastName(String lastName, String afterLastName, Integer afterId, int limit)
+        throws DataAccessException;
+
+    /**
+     * Retrieve the page of <code>Owner</code>s whose last name <i>starts</i> with the given name and that come right
+     * before the owner identified by <code>beforeLastName</code> and <code>beforeId</code>, in last name and id order.
+     *
+     * @param lastName       Value to search for
+     * @param beforeLastName last name of the first owner of the next page
+     * @param beforeId       id of the first owner of the next page
+     * @param limit          maximum number of owners to return
+     * @return a <code>Collection</code> of at most <code>limit</code> matching <code>Owner</code>s in ascending order
+     */
+    Collection<Owner> findByLastNameBefore(String lastName, String beforeLastName, Integer beforeId, int limit)
+        throws DataAccessException;
+
     /**
      * Retrieve an <code>Owner</code> from the data store by id.
      *
@@ -51,6 +78,27 @@ public interface OwnerRepository {
      */
     Owner findById(int id) throws DataAccessException;
 
+    /**
+     * Retrieve an <code>Owner</code> from the data store by id, with its <code>Pet</code>s carrying only their total
+     * number of visits and their <code>recentVisits</code> most recent <code>Visit</code>s, so that the cost of loading
+     * an owner does not depend on the length of the visit history.
+     *
+     * @param id           the id to search for
+     * @param recentVisits the maximum number of visits to load for each pet
+     * @return the <code>Owner</code> if found
+     * @throws org.springframework.dao.DataRetrievalFailureException if not found
+     * @see org.springframework.samples.petclinic.model.Pet#getVisitCount()
+     */
+    Owner findSummaryById(int id, int recentVisits) throws DataAccessException;
+
+    /**
+     * Stream all <code>Owner</code>s with their <code>Pet</code>s and <code>Visit</code>s to the given handler, reading
+     * them through a forward-only cursor so that memory use does not depend on the size of the data store. Must be
+     * called within a transaction.
+     *
+     * @param handler the callback receiving the rows
+     */
+    void exportAll(OwnerExportHandler handler) throws DataAccessException;
 
     /**
      * Save an <code>Owner</code> to the data store, either inserting or updating it.
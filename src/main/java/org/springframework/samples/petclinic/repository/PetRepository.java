@@ -15,6 +15,7 @@
  */
 package org.springframework.samples.petclinic.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.dao.DataAccessException;
@@ -57,4 +58,12 @@ public interface PetRepository {
      */
     void save(Pet pet) throws DataAccessException;
 
+    /**
+     * Insert new <code>Pet</code>s into the data store in batches, assigning their generated ids where the data store
+     * returns them. Meant for bulk imports: callers should pass bounded chunks rather than a whole import at once.
+     *
+     * @param pets the new <code>Pet</code>s to insert, each referring to an existing owner and pet type
+     */
+    void saveAll(Collection<Pet> pets) throws DataAccessException;
+
 }
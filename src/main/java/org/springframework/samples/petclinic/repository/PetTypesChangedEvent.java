@@ -0,0 +1,34 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published when pet types have been changed, so that the caches holding them (the <code>petTypes</code> cache of
+ * the service layer, the JDBC reference data and the JPA second-level cache region) drop their copies. The
+ * application has no screen editing pet types, so the event is published by whoever changes the data, e.g. through
+ * the <code>notifyPetTypesChanged</code> operation of
+ * {@link org.springframework.samples.petclinic.service.PetTypesCacheEvictor} over JMX after an update of the database.
+ */
+@SuppressWarnings("serial")
+public class PetTypesChangedEvent extends ApplicationEvent {
+
+    public PetTypesChangedEvent(Object source) {
+        super(source);
+    }
+
+}
@@ -15,9 +15,12 @@
  */
 package org.springframework.samples.petclinic.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.samples.petclinic.model.BaseEntity;
 import org.springframework.samples.petclinic.model.Visit;
 
@@ -40,6 +43,23 @@ public interface VisitRepository {
      */
     void save(Visit visit) throws DataAccessException;
 
+    /**
+     * Insert new <code>Visit</code>s into the data store in batches, assigning their generated ids where the data store
+     * returns them. Meant for bulk imports: callers should pass bounded chunks rather than a whole import at once.
+     *
+     * @param visits the new <code>Visit</code>s to insert, each referring to an existing pet
+     */
+    void saveAll(Collection<Visit> visits) throws DataAccessException;
+
     List<Visit> findByPetId(Integer petId);
 
+    /**
+     * Retrieve one page of the <code>Visit</code>s of a pet, most recent first.
+     *
+     * @param petId    the id of the pet
+     * @param pageable the page number and size to retrieve
+     * @return the requested page of <code>Visit</code>s, along with the total number of visits of the pet
+     */
+    Page<Visit> findByPetId(Integer petId, Pageable pageable) throws DataAccessException;
+
 }
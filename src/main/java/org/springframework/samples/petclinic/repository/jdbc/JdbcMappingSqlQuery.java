@@ -0,0 +1,57 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.object.MappingSqlQuery;
+
+/**
+ * {@link MappingSqlQuery} with positional parameters that maps its rows with a shared, stateless {@link RowMapper}.
+ * <p/>
+ * The query is compiled once, when the repository is created: the SQL is not parsed again and no parameter map is
+ * built per call. Like all {@link org.springframework.jdbc.object.RdbmsOperation RdbmsOperations}, it is thread-safe
+ * once compiled.
+ */
+class JdbcMappingSqlQuery<T> extends MappingSqlQuery<T> {
+
+    private final RowMapper<T> rowMapper;
+
+    /**
+     * @param sql            the SQL, with a <code>?</code> placeholder for each parameter
+     * @param rowMapper      the row mapper, shared by all executions of this query
+     * @param parameterTypes the {@link java.sql.Types SQL types} of the parameters, in order
+     */
+    JdbcMappingSqlQuery(DataSource dataSource, String sql, RowMapper<T> rowMapper, int... parameterTypes) {
+        super(dataSource, sql);
+        this.rowMapper = rowMapper;
+        for (int parameterType : parameterTypes) {
+            declareParameter(new SqlParameter(parameterType));
+        }
+        compile();
+    }
+
+    @Override
+    protected T mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return this.rowMapper.mapRow(rs, rowNum);
+    }
+
+}
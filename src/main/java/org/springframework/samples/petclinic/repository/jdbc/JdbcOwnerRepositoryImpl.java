@@ -15,31 +15,42 @@
  */
 package org.springframework.samples.petclinic.repository.jdbc;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import javax.sql.DataSource;
 
+import org.joda.time.LocalDate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
-import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
-import org.springframework.jdbc.core.namedparam.BeanPropertySqlParameterSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.object.SqlUpdate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.orm.ObjectRetrievalFailureException;
 import org.springframework.samples.petclinic.model.Owner;
 import org.springframework.samples.petclinic.model.Pet;
 import org.springframework.samples.petclinic.model.PetType;
 import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.repository.OwnerExportHandler;
 import org.springframework.samples.petclinic.repository.OwnerRepository;
-import org.springframework.samples.petclinic.util.EntityUtils;
 import org.springframework.stereotype.Repository;
 
 /**
  * A simple JDBC-based implementation of the {@link OwnerRepository} interface.
+ * <p/>
+ * All statements with a fixed number of parameters are compiled once into {@link JdbcMappingSqlQuery} and
+ * {@link SqlUpdate} objects when the repository is created.
  *
  * @author Ken Krebs
  * @author Juergen Hoeller
@@ -51,22 +62,95 @@ import org.springframework.stereotype.Repository;
 @Repository
 public class JdbcOwnerRepositoryImpl implements OwnerRepository {
 
+    /**
+     * Maximum number of owner ids bound into a single <code>IN (...)</code> clause when loading pets and visits.
+     */
+    static final int OWNER_ID_BATCH_SIZE = 500;
+
+    /**
+     * Number of rows fetched at a time from the cursor of {@link #exportAll}.
+     */
+    static final int EXPORT_FETCH_SIZE = 500;
+
+    private static final String OWNER_COLUMNS = "SELECT id, first_name, last_name, address, city, telephone FROM owners ";
+
     private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
-    private SimpleJdbcInsert insertOwner;
+    private JdbcTemplate exportJdbcTemplate;
+
+    private JdbcMappingSqlQuery<Owner> ownerById;
+
+    private JdbcMappingSqlQuery<Owner> ownersByLastName;
+
+    /**
+     * Owner page queries, in ascending or descending last name order, from the start or from a given owner.
+     */
+    private JdbcMappingSqlQuery<Owner> ownersPageForward;
+
+    private JdbcMappingSqlQuery<Owner> ownersPageForwardFromKey;
+
+    private JdbcMappingSqlQuery<Owner> ownersPageBackward;
+
+    private JdbcMappingSqlQuery<Owner> ownersPageBackwardFromKey;
+
+    private JdbcMappingSqlQuery<JdbcPet> petsWithVisitCountByOwnerId;
+
+    private JdbcMappingSqlQuery<Visit> recentVisitsByPetId;
+
+    private SqlUpdate insertOwner;
+
+    private SqlUpdate updateOwner;
+
+    private JdbcReferenceDataRegistry referenceData;
 
     @Autowired
-    public JdbcOwnerRepositoryImpl(DataSource dataSource, NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+    public JdbcOwnerRepositoryImpl(DataSource dataSource, NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                                   JdbcReferenceDataRegistry referenceData) {
+        JdbcOwnerRowMapper ownerRowMapper = new JdbcOwnerRowMapper();
+        this.ownerById = new JdbcMappingSqlQuery<>(dataSource, OWNER_COLUMNS + "WHERE id = ?",
+            ownerRowMapper, Types.INTEGER);
+        this.ownersByLastName = new JdbcMappingSqlQuery<>(dataSource, OWNER_COLUMNS + "WHERE last_name like ?",
+            ownerRowMapper, Types.VARCHAR);
+        this.ownersPageForward = createOwnersPageQuery(dataSource, true, false);
+        this.ownersPageForwardFromKey = createOwnersPageQuery(dataSource, true, true);
+        this.ownersPageBackward = createOwnersPageQuery(dataSource, false, false);
+        this.ownersPageBackwardFromKey = createOwnersPageQuery(dataSource, false, true);
+        // the visit count is kept on the pet until its recent visits are loaded
+        this.petsWithVisitCountByOwnerId = new JdbcMappingSqlQuery<>(dataSource,
+            "SELECT pets.id, name, birth_date, type_id, owner_id, " +
+                "(SELECT COUNT(*) FROM visits WHERE visits.pet_id = pets.id) AS visit_count " +
+                "FROM pets WHERE owner_id = ? ORDER BY pets.id",
+            new JdbcPetRowMapper() {
+                @Override
+                public JdbcPet mapRow(ResultSet rs, int rownum) throws SQLException {
+                    JdbcPet pet = super.mapRow(rs, rownum);
+                    pet.setRecentVisits(rs.getInt("visit_count"), Collections.<Visit>emptyList());
+                    return pet;
+                }
+            },
+            Types.INTEGER);
+        // read through the (pet_id, visit_date) index, so bounded by the limit whatever the length of the history
+        this.recentVisitsByPetId = new JdbcMappingSqlQuery<>(dataSource,
+            "SELECT id AS visit_id, visit_date, description, pet_id FROM visits WHERE pet_id = ? " +
+                "ORDER BY visit_date DESC, id DESC LIMIT ?",
+            new JdbcVisitRowMapper(), Types.INTEGER, Types.INTEGER);
 
-        this.insertOwner = new SimpleJdbcInsert(dataSource)
-            .withTableName("owners")
-            .usingGeneratedKeyColumns("id");
+        this.insertOwner = new SqlUpdate(dataSource,
+            "INSERT INTO owners (first_name, last_name, address, city, telephone) VALUES (?, ?, ?, ?, ?)",
+            new int[]{Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR});
+        this.insertOwner.setReturnGeneratedKeys(true);
+        this.insertOwner.compile();
+        this.updateOwner = new SqlUpdate(dataSource,
+            "UPDATE owners SET first_name=?, last_name=?, address=?, city=?, telephone=? WHERE id=?",
+            new int[]{Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.INTEGER});
+        this.updateOwner.compile();
 
         this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
-
+        this.exportJdbcTemplate = new JdbcTemplate(dataSource);
+        this.exportJdbcTemplate.setFetchSize(EXPORT_FETCH_SIZE);
+        this.referenceData = referenceData;
     }
 
-
     /**
      * Loads {@link Owner Owners} from the data store by last name, returning all owners whose last name <i>starts</i> with
      * the given name; also loads the {@link Pet Pets} and {@link Visit Visits} for the corresponding owners, if not
@@ -74,13 +158,32 @@ public class JdbcOwnerRepositoryImpl implements OwnerRepository {
      */
     @Override
     public Collection<Owner> findByLastName(String lastName) throws DataAccessException {
-        Map<String, Object> params = new HashMap<>();
-        params.put("lastName", lastName + "%");
-        List<Owner> owners = this.namedParameterJdbcTemplate.query(
-            "SELECT id, first_name, last_name, address, city, telephone FROM owners WHERE last_name like :lastName",
-            params,
-            BeanPropertyRowMapper.newInstance(Owner.class)
-        );
+        List<Owner> owners = this.ownersByLastName.execute(lastName + "%");
+        loadOwnersPetsAndVisits(owners);
+        return owners;
+    }
+
+    /**
+     * Loads one page of {@link Owner Owners} by last name prefix in last name and id order, starting right after the
+     * given owner; also loads the {@link Pet Pets} and {@link Visit Visits} of the owners on that page only.
+     */
+    @Override
+    public Collection<Owner> findByLastName(String lastName, String afterLastName, Integer afterId, int limit)
+        throws DataAccessException {
+        List<Owner> owners = findOwnersPage(lastName, afterLastName, afterId, limit, true);
+        loadOwnersPetsAndVisits(owners);
+        return owners;
+    }
+
+    /**
+     * Loads the page of {@link Owner Owners} by last name prefix that ends right before the given owner, in last name
+     * and id order; also loads the {@link Pet Pets} and {@link Visit Visits} of the owners on that page only.
+     */
+    @Override
+    public Collection<Owner> findByLastNameBefore(String lastName, String beforeLastName, Integer beforeId, int limit)
+        throws DataAccessException {
+        List<Owner> owners = findOwnersPage(lastName, beforeLastName, beforeId, limit, false);
+        Collections.reverse(owners);
         loadOwnersPetsAndVisits(owners);
         return owners;
     }
@@ -91,68 +194,177 @@ public class JdbcOwnerRepositoryImpl implements OwnerRepository {
      */
     @Override
     public Owner findById(int id) throws DataAccessException {
-        Owner owner;
-        try {
-            Map<String, Object> params = new HashMap<>();
-            params.put("id", id);
-            owner = this.namedParameterJdbcTemplate.queryForObject(
-                "SELECT id, first_name, last_name, address, city, telephone FROM owners WHERE id= :id",
-                params,
-                BeanPropertyRowMapper.newInstance(Owner.class)
-            );
-        } catch (EmptyResultDataAccessException ex) {
-            throw new ObjectRetrievalFailureException(Owner.class, id);
-        }
+        Owner owner = findOwner(id);
         loadPetsAndVisits(owner);
         return owner;
     }
 
-    public void loadPetsAndVisits(final Owner owner) {
-        Map<String, Object> params = new HashMap<>();
-        params.put("id", owner.getId());
-        final List<JdbcPet> pets = this.namedParameterJdbcTemplate.query(
-            "SELECT pets.id, name, birth_date, type_id, owner_id, visits.id as visit_id, visit_date, description, pet_id FROM pets LEFT OUTER JOIN visits ON  pets.id = pet_id WHERE owner_id=:id",
-            params,
-            new JdbcPetVisitExtractor()
-        );
-        Collection<PetType> petTypes = getPetTypes();
-        for (JdbcPet pet : pets) {
-            pet.setType(EntityUtils.getById(petTypes, PetType.class, pet.getTypeId()));
+    /**
+     * Loads the {@link Owner} with the supplied <code>id</code> and its {@link Pet Pets}; the visit counts are computed
+     * along with the pets, then only the <code>recentVisits</code> most recent {@link Visit Visits} of each pet that has
+     * any are read, one query per such pet limited in the database.
+     */
+    @Override
+    public Owner findSummaryById(int id, int recentVisits) throws DataAccessException {
+        Owner owner = findOwner(id);
+        for (JdbcPet pet : this.petsWithVisitCountByOwnerId.execute(id)) {
+            if (pet.getVisitCount() > 0 && recentVisits > 0) {
+                pet.setRecentVisits(pet.getVisitCount(), this.recentVisitsByPetId.execute(pet.getId(), recentVisits));
+            }
+            pet.setType(this.referenceData.getPetType(pet.getTypeId()));
             owner.addPet(pet);
         }
+        return owner;
+    }
+
+    public void loadPetsAndVisits(final Owner owner) {
+        loadOwnersPetsAndVisits(Collections.singletonList(owner));
+    }
+
+    /**
+     * Reads owners, pets and visits in one outer-joined query through a forward-only cursor fetching
+     * {@link #EXPORT_FETCH_SIZE} rows at a time, resolving pet types through the {@link JdbcReferenceDataRegistry}.
+     * Note that MySQL Connector/J only honours the fetch size with <code>useCursorFetch=true</code> in the JDBC URL.
+     */
+    @Override
+    public void exportAll(final OwnerExportHandler handler) throws DataAccessException {
+        this.exportJdbcTemplate.query(
+            "SELECT owners.id AS owner_id, first_name, last_name, address, city, telephone, " +
+                "pets.id AS pet_id, name, birth_date, type_id, visits.id AS visit_id, visit_date, description " +
+                "FROM owners LEFT OUTER JOIN pets ON pets.owner_id = owners.id " +
+                "LEFT OUTER JOIN visits ON visits.pet_id = pets.id ORDER BY owners.id, pets.id, visits.id",
+            new RowCallbackHandler() {
+
+                private Owner owner;
+
+                private Pet pet;
+
+                private final JdbcVisitRowMapper visitRowMapper = new JdbcVisitRowMapper();
+
+                @Override
+                public void processRow(ResultSet rs) throws SQLException {
+                    int ownerId = rs.getInt("owner_id");
+                    if (this.owner == null || this.owner.getId() != ownerId) {
+                        this.owner = new Owner();
+                        this.owner.setId(ownerId);
+                        this.owner.setFirstName(rs.getString("first_name"));
+                        this.owner.setLastName(rs.getString("last_name"));
+                        this.owner.setAddress(rs.getString("address"));
+                        this.owner.setCity(rs.getString("city"));
+                        this.owner.setTelephone(rs.getString("telephone"));
+                        this.pet = null;
+                    }
+                    int petId = rs.getInt("pet_id");
+                    if (rs.wasNull()) {
+                        handler.handleRow(this.owner, null, null);
+                        return;
+                    }
+                    if (this.pet == null || this.pet.getId() != petId) {
+                        this.pet = new Pet();
+                        this.pet.setId(petId);
+                        this.pet.setName(rs.getString("name"));
+                        this.pet.setBirthDate(new LocalDate(rs.getDate("birth_date")));
+                        this.pet.setType(referenceData.getPetType(rs.getInt("type_id")));
+                    }
+                    rs.getInt("visit_id");
+                    Visit visit = rs.wasNull() ? null : this.visitRowMapper.mapRow(rs, 0);
+                    handler.handleRow(this.owner, this.pet, visit);
+                }
+            });
     }
 
     @Override
     public void save(Owner owner) throws DataAccessException {
-        BeanPropertySqlParameterSource parameterSource = new BeanPropertySqlParameterSource(owner);
         if (owner.isNew()) {
-            Number newKey = this.insertOwner.executeAndReturnKey(parameterSource);
-            owner.setId(newKey.intValue());
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            this.insertOwner.update(new Object[]{owner.getFirstName(), owner.getLastName(), owner.getAddress(),
+                owner.getCity(), owner.getTelephone()}, keyHolder);
+            owner.setId(keyHolder.getKey().intValue());
         } else {
-            this.namedParameterJdbcTemplate.update(
-                "UPDATE owners SET first_name=:firstName, last_name=:lastName, address=:address, " +
-                    "city=:city, telephone=:telephone WHERE id=:id",
-                parameterSource);
+            this.updateOwner.update(owner.getFirstName(), owner.getLastName(), owner.getAddress(), owner.getCity(),
+                owner.getTelephone(), owner.getId());
         }
     }
 
     public Collection<PetType> getPetTypes() throws DataAccessException {
-        return this.namedParameterJdbcTemplate.query(
-            "SELECT id, name FROM types ORDER BY name", new HashMap<String, Object>(),
-            BeanPropertyRowMapper.newInstance(PetType.class));
+        return this.referenceData.getPetTypes();
+    }
+
+    private Owner findOwner(int id) {
+        Owner owner = this.ownerById.findObject(id);
+        if (owner == null) {
+            throw new ObjectRetrievalFailureException(Owner.class, id);
+        }
+        return owner;
+    }
+
+    /**
+     * Selects at most <code>limit</code> owners by last name prefix, walking the <code>(last_name, id)</code> keyset
+     * forwards from (exclusive) or backwards from (exclusive) the given owner.
+     */
+    private List<Owner> findOwnersPage(String lastName, String keyLastName, Integer keyId, int limit, boolean forward) {
+        if (keyLastName != null && keyId != null) {
+            JdbcMappingSqlQuery<Owner> query = forward ? this.ownersPageForwardFromKey : this.ownersPageBackwardFromKey;
+            return query.execute(lastName + "%", keyLastName, keyLastName, keyId, limit);
+        }
+        JdbcMappingSqlQuery<Owner> query = forward ? this.ownersPageForward : this.ownersPageBackward;
+        return query.execute(lastName + "%", limit);
+    }
+
+    /**
+     * Compiles the query behind {@link #findOwnersPage}; its parameters are the last name pattern, then, if
+     * <code>keyed</code>, the last name (twice) and id of the owner to start from, and finally the limit.
+     */
+    private static JdbcMappingSqlQuery<Owner> createOwnersPageQuery(DataSource dataSource, boolean forward,
+                                                                    boolean keyed) {
+        StringBuilder sql = new StringBuilder(OWNER_COLUMNS).append("WHERE last_name like ?");
+        if (keyed) {
+            String comparison = forward ? ">" : "<";
+            sql.append(" AND (last_name ").append(comparison).append(" ?")
+                .append(" OR (last_name = ? AND id ").append(comparison).append(" ?))");
+        }
+        sql.append(forward ? " ORDER BY last_name, id" : " ORDER BY last_name DESC, id DESC");
+        sql.append(" LIMIT ?");
+        int[] parameterTypes = keyed ?
+            new int[]{Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.INTEGER} :
+            new int[]{Types.VARCHAR, Types.INTEGER};
+        return new JdbcMappingSqlQuery<>(dataSource, sql.toString(), new JdbcOwnerRowMapper(), parameterTypes);
     }
 
     /**
      * Loads the {@link Pet} and {@link Visit} data for the supplied {@link List} of {@link Owner Owners}.
+     * <p/>
+     * Pets and visits are fetched for all owners at once using chunked <code>IN (...)</code> queries of at most
+     * {@link #OWNER_ID_BATCH_SIZE} owner ids, and the pet types are resolved through the
+     * {@link JdbcReferenceDataRegistry}, so the number of statements does not grow with the number of owners.
      *
      * @param owners the list of owners for whom the pet and visit data should be loaded
      * @see #loadPetsAndVisits(Owner)
      */
     private void loadOwnersPetsAndVisits(List<Owner> owners) {
+        if (owners.isEmpty()) {
+            return;
+        }
+        Map<Integer, Owner> ownersById = new LinkedHashMap<>();
         for (Owner owner : owners) {
-            loadPetsAndVisits(owner);
+            ownersById.put(owner.getId(), owner);
+        }
+        List<Integer> ownerIds = new ArrayList<>(ownersById.keySet());
+        for (int from = 0; from < ownerIds.size(); from += OWNER_ID_BATCH_SIZE) {
+            int to = Math.min(from + OWNER_ID_BATCH_SIZE, ownerIds.size());
+            // the IN list is expanded to the size of each chunk, so this statement cannot be compiled up front
+            MapSqlParameterSource params = new MapSqlParameterSource("ids", ownerIds.subList(from, to));
+            List<JdbcPet> pets = this.namedParameterJdbcTemplate.query(
+                "SELECT pets.id, name, birth_date, type_id, owner_id, visits.id as visit_id, visit_date, description, pet_id " +
+                    "FROM pets LEFT OUTER JOIN visits ON pets.id = pet_id WHERE owner_id IN (:ids) ORDER BY pets.id",
+                params,
+                new JdbcPetVisitExtractor()
+            );
+            for (JdbcPet pet : pets) {
+                pet.setType(this.referenceData.getPetType(pet.getTypeId()));
+                ownersById.get(pet.getOwnerId()).addPet(pet);
+            }
         }
     }
 
-
 }
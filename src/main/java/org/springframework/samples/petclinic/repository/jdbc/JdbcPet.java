@@ -25,6 +25,8 @@ import org.springframework.samples.petclinic.model.Pet;
  */
 class JdbcPet extends Pet {
 
+    private static final long serialVersionUID = 1L;
+
     private int typeId;
 
     private int ownerId;
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.samples.petclinic.model.Owner;
+
+/**
+ * {@link RowMapper} implementation mapping data from a {@link ResultSet} to the corresponding properties
+ * of the {@link JdbcPet} class and of its {@link Owner}, for queries joining <code>pets</code> and <code>owners</code>.
+ * Consecutive pets of the same owner are added to a single {@link Owner} instance, so a new mapper is needed for
+ * each query.
+ */
+class JdbcPetOwnerRowMapper extends JdbcPetRowMapper {
+
+    private Owner owner;
+
+    @Override
+    public JdbcPet mapRow(ResultSet rs, int rownum) throws SQLException {
+        JdbcPet pet = super.mapRow(rs, rownum);
+        Owner owner = this.owner;
+        if (owner == null || owner.getId() != pet.getOwnerId()) {
+            owner = new Owner();
+            owner.setId(pet.getOwnerId());
+            owner.setFirstName(rs.getString("first_name"));
+            owner.setLastName(rs.getString("last_name"));
+            owner.setAddress(rs.getString("address"));
+            owner.setCity(rs.getString("city"));
+            owner.setTelephone(rs.getString("telephone"));
+            this.owner = owner;
+        }
+        owner.addPet(pet);
+        return pet;
+    }
+}
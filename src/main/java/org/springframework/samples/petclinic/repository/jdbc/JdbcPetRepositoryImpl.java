@@ -15,28 +15,34 @@
  */
 package org.springframework.samples.petclinic.repository.jdbc;
 
-import java.util.HashMap;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 
 import javax.sql.DataSource;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
-import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
-import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
-import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.object.SqlUpdate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.orm.ObjectRetrievalFailureException;
-import org.springframework.samples.petclinic.model.Owner;
 import org.springframework.samples.petclinic.model.Pet;
 import org.springframework.samples.petclinic.model.PetType;
 import org.springframework.samples.petclinic.model.Visit;
-import org.springframework.samples.petclinic.repository.OwnerRepository;
 import org.springframework.samples.petclinic.repository.PetRepository;
 import org.springframework.samples.petclinic.repository.VisitRepository;
-import org.springframework.samples.petclinic.util.EntityUtils;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -50,74 +56,154 @@ import org.springframework.stereotype.Repository;
 @Repository
 public class JdbcPetRepositoryImpl implements PetRepository {
 
-    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    /**
+     * Maximum number of pets sent to the database in a single JDBC batch by {@link #saveAll}.
+     */
+    static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_PET = "INSERT INTO pets (name, birth_date, type_id, owner_id) VALUES (?, ?, ?, ?)";
 
-    private SimpleJdbcInsert insertPet;
+    private JdbcTemplate jdbcTemplate;
 
-    private OwnerRepository ownerRepository;
+    /**
+     * Compiled once; the pets, the visits of the requested one and their owner are read by a
+     * {@link JdbcPetVisitExtractor}.
+     */
+    private PreparedStatementCreatorFactory petWithVisitsAndOwnerByPetId;
+
+    private SqlUpdate insertPet;
+
+    private SqlUpdate updatePet;
 
     private VisitRepository visitRepository;
 
+    private JdbcReferenceDataRegistry referenceData;
 
-    @Autowired
-    public JdbcPetRepositoryImpl(DataSource dataSource, OwnerRepository ownerRepository, VisitRepository visitRepository) {
-        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
 
-        this.insertPet = new SimpleJdbcInsert(dataSource)
-            .withTableName("pets")
-            .usingGeneratedKeyColumns("id");
+    @Autowired
+    public JdbcPetRepositoryImpl(DataSource dataSource, VisitRepository visitRepository, JdbcReferenceDataRegistry referenceData) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        // the visits are only joined to the requested pet, the owner's other pets are read once each
+        this.petWithVisitsAndOwnerByPetId = new PreparedStatementCreatorFactory(
+            "SELECT pets.id, name, birth_date, type_id, owner_id, first_name, last_name, address, city, telephone, " +
+                "visits.id as visit_id, visit_date, description, pet_id " +
+                "FROM pets INNER JOIN owners ON pets.owner_id = owners.id " +
+                "LEFT OUTER JOIN visits ON pets.id = pet_id AND pet_id = ? " +
+                "WHERE pets.owner_id = (SELECT owner_id FROM pets WHERE id = ?) ORDER BY pets.id",
+            Types.INTEGER, Types.INTEGER);
+
+        this.insertPet = new SqlUpdate(dataSource, INSERT_PET,
+            new int[]{Types.VARCHAR, Types.DATE, Types.INTEGER, Types.INTEGER});
+        this.insertPet.setReturnGeneratedKeys(true);
+        this.insertPet.compile();
+        this.updatePet = new SqlUpdate(dataSource,
+            "UPDATE pets SET name=?, birth_date=?, type_id=?, owner_id=? WHERE id=?",
+            new int[]{Types.VARCHAR, Types.DATE, Types.INTEGER, Types.INTEGER, Types.INTEGER});
+        this.updatePet.compile();
 
-        this.ownerRepository = ownerRepository;
         this.visitRepository = visitRepository;
+        this.referenceData = referenceData;
     }
 
     @Override
     public List<PetType> findPetTypes() throws DataAccessException {
-        Map<String, Object> params = new HashMap<>();
-        return this.namedParameterJdbcTemplate.query(
-            "SELECT id, name FROM types ORDER BY name",
-            params,
-            BeanPropertyRowMapper.newInstance(PetType.class));
+        return this.referenceData.getPetTypes();
     }
 
+    /**
+     * Loads the {@link Pet} with the supplied <code>id</code>, together with its type, its visits and its owner, using a
+     * single query. The owner holds all of its pets, each with its type; the other pets are loaded without their
+     * visits.
+     */
     @Override
     public Pet findById(int id) throws DataAccessException {
-        Integer ownerId;
-        try {
-            Map<String, Object> params = new HashMap<>();
-            params.put("id", id);
-            ownerId = this.namedParameterJdbcTemplate.queryForObject("SELECT owner_id FROM pets WHERE id=:id", params, Integer.class);
-        } catch (EmptyResultDataAccessException ex) {
+        List<JdbcPet> pets = this.jdbcTemplate.query(
+            this.petWithVisitsAndOwnerByPetId.newPreparedStatementCreator(new Object[]{id, id}),
+            new JdbcPetVisitExtractor(new JdbcPetOwnerRowMapper())
+        );
+        Pet found = null;
+        for (JdbcPet pet : pets) {
+            pet.setType(this.referenceData.getPetType(pet.getTypeId()));
+            if (pet.getId() == id) {
+                found = pet;
+            }
+        }
+        if (found == null) {
             throw new ObjectRetrievalFailureException(Pet.class, id);
         }
-        Owner owner = this.ownerRepository.findById(ownerId);
-        return EntityUtils.getById(owner.getPets(), Pet.class, id);
+        return found;
     }
 
     @Override
     public void save(Pet pet) throws DataAccessException {
         if (pet.isNew()) {
-            Number newKey = this.insertPet.executeAndReturnKey(
-                createPetParameterSource(pet));
-            pet.setId(newKey.intValue());
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            this.insertPet.update(new Object[]{pet.getName(), pet.getBirthDate().toDate(), pet.getType().getId(),
+                pet.getOwner().getId()}, keyHolder);
+            pet.setId(keyHolder.getKey().intValue());
         } else {
-            this.namedParameterJdbcTemplate.update(
-                "UPDATE pets SET name=:name, birth_date=:birth_date, type_id=:type_id, " +
-                    "owner_id=:owner_id WHERE id=:id",
-                createPetParameterSource(pet));
+            this.updatePet.update(pet.getName(), pet.getBirthDate().toDate(), pet.getType().getId(),
+                pet.getOwner().getId(), pet.getId());
         }
     }
 
     /**
-     * Creates a {@link MapSqlParameterSource} based on data values from the supplied {@link Pet} instance.
+     * Inserts the pets with JDBC batches of at most {@link #BATCH_SIZE} statements, reading the generated ids back
+     * when the driver supports it.
      */
-    private MapSqlParameterSource createPetParameterSource(Pet pet) {
-        return new MapSqlParameterSource()
-            .addValue("id", pet.getId())
-            .addValue("name", pet.getName())
-            .addValue("birth_date", pet.getBirthDate().toDate())
-            .addValue("type_id", pet.getType().getId())
-            .addValue("owner_id", pet.getOwner().getId());
+    @Override
+    public void saveAll(Collection<Pet> pets) throws DataAccessException {
+        List<Pet> batch = new ArrayList<>(Math.min(pets.size(), BATCH_SIZE));
+        for (Pet pet : pets) {
+            if (!pet.isNew()) {
+                throw new UnsupportedOperationException("Pet update not supported");
+            }
+            batch.add(pet);
+            if (batch.size() == BATCH_SIZE) {
+                insertBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            insertBatch(batch);
+        }
+    }
+
+    private void insertBatch(final List<Pet> batch) {
+        // decided on the borrowed connection, see JdbcVisitRepositoryImpl
+        final boolean[] generatedKeys = new boolean[1];
+        this.jdbcTemplate.execute(
+            new PreparedStatementCreator() {
+                @Override
+                public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+                    generatedKeys[0] = con.getMetaData().supportsGetGeneratedKeys();
+                    if (generatedKeys[0]) {
+                        return con.prepareStatement(INSERT_PET, Statement.RETURN_GENERATED_KEYS);
+                    }
+                    return con.prepareStatement(INSERT_PET);
+                }
+            },
+            new PreparedStatementCallback<Object>() {
+                @Override
+                public Object doInPreparedStatement(PreparedStatement ps) throws SQLException {
+                    for (Pet pet : batch) {
+                        ps.setString(1, pet.getName());
+                        ps.setDate(2, new Date(pet.getBirthDate().toDate().getTime()));
+                        ps.setInt(3, pet.getType().getId());
+                        ps.setInt(4, pet.getOwner().getId());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    if (generatedKeys[0]) {
+                        try (ResultSet keys = ps.getGeneratedKeys()) {
+                            for (int i = 0; i < batch.size() && keys.next(); i++) {
+                                batch.get(i).setId(keys.getInt(1));
+                            }
+                        }
+                    }
+                    return null;
+                }
+            });
     }
 
 }
@@ -17,6 +17,7 @@ package org.springframework.samples.petclinic.repository.jdbc;
 
 import org.springframework.data.jdbc.core.OneToManyResultSetExtractor;
 import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.samples.petclinic.model.Visit;
 
 import java.sql.ResultSet;
@@ -30,7 +31,11 @@ public class JdbcPetVisitExtractor extends
     OneToManyResultSetExtractor<JdbcPet, Visit, Integer> {
 
     public JdbcPetVisitExtractor() {
-        super(new JdbcPetRowMapper(), new JdbcVisitRowMapper());
+        this(new JdbcPetRowMapper());
+    }
+
+    public JdbcPetVisitExtractor(RowMapper<JdbcPet> petRowMapper) {
+        super(petRowMapper, new JdbcVisitRowMapper());
     }
 
     @Override
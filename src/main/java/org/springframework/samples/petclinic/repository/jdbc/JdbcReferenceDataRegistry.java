@@ -0,0 +1,245 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.orm.ObjectRetrievalFailureException;
+import org.springframework.samples.petclinic.model.NamedEntity;
+import org.springframework.samples.petclinic.model.PetType;
+import org.springframework.samples.petclinic.model.Specialty;
+import org.springframework.samples.petclinic.repository.PetTypesChangedEvent;
+import org.springframework.samples.petclinic.repository.VetDataChangedEvent;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Registry of the {@link PetType} and {@link Specialty} reference data used by the JDBC repositories.
+ * <p/>
+ * Each kind of reference data is loaded once, on first use, into an array indexed by id, so that resolving a type or
+ * specialty id is a constant time lookup that does not hit the database. A lookup for an unknown id reloads the data
+ * once before failing, which picks up rows inserted since the last load. Such reloads happen at most once per
+ * {@link #setMissReloadInterval(long) miss reload interval}, so repeated lookups of ids that do not exist fail without
+ * reloading. {@link #invalidate()} (also exposed over JMX) forces a reload on next use, as do a
+ * {@link PetTypesChangedEvent} for the pet types and a {@link VetDataChangedEvent} for the specialties.
+ */
+@Repository
+@ManagedResource("petclinic:type=ReferenceDataRegistry")
+public class JdbcReferenceDataRegistry {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Index<PetType> petTypes;
+
+    private volatile Index<Specialty> specialties;
+
+    private volatile long missReloadInterval = 1000;
+
+    @Autowired
+    public JdbcReferenceDataRegistry(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Return all pet types, sorted by name.
+     */
+    public List<PetType> getPetTypes() throws DataAccessException {
+        return petTypeIndex().sorted;
+    }
+
+    public PetType getPetType(int id) throws DataAccessException {
+        Index<PetType> index = petTypeIndex();
+        PetType petType = index.get(id);
+        if (petType == null && index.mayReloadOnMiss(this.missReloadInterval)) {
+            petType = reloadPetTypes(index).get(id);
+        }
+        if (petType == null) {
+            throw new ObjectRetrievalFailureException(PetType.class, id);
+        }
+        return petType;
+    }
+
+    /**
+     * Return all specialties, sorted by name.
+     */
+    public List<Specialty> getSpecialties() throws DataAccessException {
+        return specialtyIndex().sorted;
+    }
+
+    public Specialty getSpecialty(int id) throws DataAccessException {
+        Index<Specialty> index = specialtyIndex();
+        Specialty specialty = index.get(id);
+        if (specialty == null && index.mayReloadOnMiss(this.missReloadInterval)) {
+            specialty = reloadSpecialties(index).get(id);
+        }
+        if (specialty == null) {
+            throw new ObjectRetrievalFailureException(Specialty.class, id);
+        }
+        return specialty;
+    }
+
+    @ManagedAttribute
+    public long getMissReloadInterval() {
+        return this.missReloadInterval;
+    }
+
+    /**
+     * Set the minimum time in milliseconds between two reloads caused by lookups of unknown ids. Default is 1000.
+     */
+    @ManagedAttribute
+    public void setMissReloadInterval(long missReloadInterval) {
+        this.missReloadInterval = missReloadInterval;
+    }
+
+    /**
+     * Discard the loaded reference data, so that it is reloaded from the database on next use.
+     */
+    @ManagedOperation
+    public void invalidate() {
+        this.petTypes = null;
+        this.specialties = null;
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onPetTypesChanged(PetTypesChangedEvent event) {
+        this.petTypes = null;
+    }
+
+    /**
+     * Runs before the {@link org.springframework.samples.petclinic.service.VetsCache} reloads the vets.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onVetDataChanged(VetDataChangedEvent event) {
+        this.specialties = null;
+    }
+
+    private Index<PetType> petTypeIndex() {
+        Index<PetType> index = this.petTypes;
+        if (index == null) {
+            synchronized (this) {
+                index = this.petTypes;
+                if (index == null) {
+                    index = loadPetTypes(false);
+                    this.petTypes = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Replace the given index, unless another thread already did so since it was obtained.
+     */
+    private synchronized Index<PetType> reloadPetTypes(Index<PetType> stale) {
+        Index<PetType> index = this.petTypes;
+        if (index == null || index == stale) {
+            index = loadPetTypes(true);
+            this.petTypes = index;
+        }
+        return index;
+    }
+
+    private Index<PetType> loadPetTypes(boolean onMiss) {
+        return new Index<>(this.jdbcTemplate.query(
+            "SELECT id, name FROM types ORDER BY name",
+            new JdbcPetTypeRowMapper()), onMiss);
+    }
+
+    private Index<Specialty> specialtyIndex() {
+        Index<Specialty> index = this.specialties;
+        if (index == null) {
+            synchronized (this) {
+                index = this.specialties;
+                if (index == null) {
+                    index = loadSpecialties(false);
+                    this.specialties = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private synchronized Index<Specialty> reloadSpecialties(Index<Specialty> stale) {
+        Index<Specialty> index = this.specialties;
+        if (index == null || index == stale) {
+            index = loadSpecialties(true);
+            this.specialties = index;
+        }
+        return index;
+    }
+
+    private Index<Specialty> loadSpecialties(boolean onMiss) {
+        return new Index<>(this.jdbcTemplate.query(
+            "SELECT id, name FROM specialties ORDER BY name",
+            BeanPropertyRowMapper.newInstance(Specialty.class)), onMiss);
+    }
+
+
+    /**
+     * Immutable id-indexed view of one kind of reference data.
+     */
+    private static class Index<T extends NamedEntity> {
+
+        private final List<T> sorted;
+
+        private final Object[] byId;
+
+        private final long loadedAt = System.nanoTime();
+
+        private final boolean loadedOnMiss;
+
+        Index(List<T> entities, boolean loadedOnMiss) {
+            int maxId = -1;
+            for (T entity : entities) {
+                maxId = Math.max(maxId, entity.getId());
+            }
+            this.byId = new Object[maxId + 1];
+            for (T entity : entities) {
+                this.byId[entity.getId()] = entity;
+            }
+            this.sorted = Collections.unmodifiableList(new ArrayList<>(entities));
+            this.loadedOnMiss = loadedOnMiss;
+        }
+
+        /**
+         * Whether a lookup of an unknown id may replace this index, i.e. unless it was itself loaded because of such
+         * a lookup less than the given number of milliseconds ago.
+         */
+        boolean mayReloadOnMiss(long interval) {
+            return !this.loadedOnMiss || System.nanoTime() - this.loadedAt >= TimeUnit.MILLISECONDS.toNanos(interval);
+        }
+
+        @SuppressWarnings("unchecked")
+        T get(int id) {
+            return (id >= 0 && id < this.byId.length ? (T) this.byId[id] : null);
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.springframework.data.jdbc.core.OneToManyResultSetExtractor;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.samples.petclinic.model.Specialty;
+import org.springframework.samples.petclinic.model.Vet;
+
+/**
+ * {@link ResultSetExtractor} implementation by using the
+ * {@link OneToManyResultSetExtractor} of Spring Data Core JDBC Extensions.
+ * <p/>
+ * Expects the rows of {@code vets LEFT JOIN vet_specialties}, grouped by vet. Specialty ids are resolved through the
+ * {@link JdbcReferenceDataRegistry}, so that all vets share the registry's {@link Specialty} instances.
+ */
+public class JdbcVetSpecialtyExtractor extends
+    OneToManyResultSetExtractor<Vet, Specialty, Integer> {
+
+    public JdbcVetSpecialtyExtractor(final JdbcReferenceDataRegistry referenceData) {
+        super(new JdbcVetRowMapper(), new RowMapper<Specialty>() {
+            @Override
+            public Specialty mapRow(ResultSet rs, int rownum) throws SQLException {
+                return referenceData.getSpecialty(rs.getInt("vet_specialties.specialty_id"));
+            }
+        });
+    }
+
+    @Override
+    protected Integer mapPrimaryKey(ResultSet rs) throws SQLException {
+        return rs.getInt("vets.id");
+    }
+
+    @Override
+    protected Integer mapForeignKey(ResultSet rs) throws SQLException {
+        if (rs.getObject("vet_specialties.vet_id") == null) {
+            return null;
+        } else {
+            return rs.getInt("vet_specialties.vet_id");
+        }
+    }
+
+    @Override
+    protected void addChild(Vet root, Specialty child) {
+        root.addSpecialty(child);
+    }
+}
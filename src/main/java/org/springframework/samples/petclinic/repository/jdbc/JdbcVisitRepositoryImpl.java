@@ -17,19 +17,35 @@ package org.springframework.samples.petclinic.repository.jdbc;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
-import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SingleColumnRowMapper;
+import org.springframework.jdbc.object.SqlUpdate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.samples.petclinic.model.Visit;
 import org.springframework.samples.petclinic.repository.VisitRepository;
 import org.springframework.stereotype.Repository;
 
 import javax.sql.DataSource;
 
-import java.util.HashMap;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 /**
  * A simple JDBC-based implementation of the {@link VisitRepository} interface.
@@ -45,26 +61,56 @@ import java.util.Map;
 @Repository
 public class JdbcVisitRepositoryImpl implements VisitRepository {
 
-    private NamedParameterJdbcTemplate jdbcTemplate;
+    /**
+     * Maximum number of visits sent to the database in a single JDBC batch by {@link #saveAll}.
+     */
+    static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_VISIT = "INSERT INTO visits (pet_id, visit_date, description) VALUES (?, ?, ?)";
+
+    private static final String VISIT_COLUMNS = "SELECT id as visit_id, visit_date, description FROM visits ";
+
+    private JdbcTemplate jdbcTemplate;
+
+    private SqlUpdate insertVisit;
+
+    private JdbcMappingSqlQuery<JdbcPet> petById;
+
+    private JdbcMappingSqlQuery<Visit> visitsByPetId;
 
-    private SimpleJdbcInsert insertVisit;
+    private JdbcMappingSqlQuery<Long> visitCountByPetId;
+
+    private JdbcMappingSqlQuery<Visit> visitPageByPetId;
 
     @Autowired
     public JdbcVisitRepositoryImpl(DataSource dataSource) {
-        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+
+        this.insertVisit = new SqlUpdate(dataSource, INSERT_VISIT,
+            new int[]{Types.INTEGER, Types.DATE, Types.VARCHAR});
+        this.insertVisit.setReturnGeneratedKeys(true);
+        this.insertVisit.compile();
 
-        this.insertVisit = new SimpleJdbcInsert(dataSource)
-            .withTableName("visits")
-            .usingGeneratedKeyColumns("id");
+        RowMapper<Visit> visitRowMapper = new JdbcVisitRowMapper();
+        this.petById = new JdbcMappingSqlQuery<>(dataSource,
+            "SELECT id, name, birth_date, type_id, owner_id FROM pets WHERE id=?", new JdbcPetRowMapper(), Types.INTEGER);
+        this.visitsByPetId = new JdbcMappingSqlQuery<>(dataSource, VISIT_COLUMNS + "WHERE pet_id=?",
+            visitRowMapper, Types.INTEGER);
+        this.visitCountByPetId = new JdbcMappingSqlQuery<>(dataSource, "SELECT COUNT(*) FROM visits WHERE pet_id=?",
+            new SingleColumnRowMapper<>(Long.class), Types.INTEGER);
+        this.visitPageByPetId = new JdbcMappingSqlQuery<>(dataSource,
+            VISIT_COLUMNS + "WHERE pet_id=? ORDER BY visit_date DESC, id DESC LIMIT ? OFFSET ?",
+            visitRowMapper, Types.INTEGER, Types.INTEGER, Types.INTEGER);
     }
 
 
     @Override
     public void save(Visit visit) throws DataAccessException {
         if (visit.isNew()) {
-            Number newKey = this.insertVisit.executeAndReturnKey(
-                createVisitParameterSource(visit));
-            visit.setId(newKey.intValue());
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            this.insertVisit.update(new Object[]{visit.getPet().getId(), visit.getDate().toDate(),
+                visit.getDescription()}, keyHolder);
+            visit.setId(keyHolder.getKey().intValue());
         } else {
             throw new UnsupportedOperationException("Visit update not supported");
         }
@@ -72,29 +118,70 @@ public class JdbcVisitRepositoryImpl implements VisitRepository {
 
 
     /**
-     * Creates a {@link MapSqlParameterSource} based on data values from the supplied {@link Visit} instance.
+     * Inserts the visits with JDBC batches of at most {@link #BATCH_SIZE} statements, reading the generated ids back
+     * when the driver supports it.
      */
-    private MapSqlParameterSource createVisitParameterSource(Visit visit) {
-        return new MapSqlParameterSource()
-            .addValue("id", visit.getId())
-            .addValue("visit_date", visit.getDate().toDate())
-            .addValue("description", visit.getDescription())
-            .addValue("pet_id", visit.getPet().getId());
+    @Override
+    public void saveAll(Collection<Visit> visits) throws DataAccessException {
+        List<Visit> batch = new ArrayList<>(Math.min(visits.size(), BATCH_SIZE));
+        for (Visit visit : visits) {
+            if (!visit.isNew()) {
+                throw new UnsupportedOperationException("Visit update not supported");
+            }
+            batch.add(visit);
+            if (batch.size() == BATCH_SIZE) {
+                insertBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            insertBatch(batch);
+        }
+    }
+
+    private void insertBatch(final List<Visit> batch) {
+        // decided on the borrowed connection: a pooled statement cache may hand out a statement whose
+        // getConnection() still refers to the connection it was first prepared on
+        final boolean[] generatedKeys = new boolean[1];
+        this.jdbcTemplate.execute(
+            new PreparedStatementCreator() {
+                @Override
+                public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+                    generatedKeys[0] = con.getMetaData().supportsGetGeneratedKeys();
+                    if (generatedKeys[0]) {
+                        return con.prepareStatement(INSERT_VISIT, Statement.RETURN_GENERATED_KEYS);
+                    }
+                    return con.prepareStatement(INSERT_VISIT);
+                }
+            },
+            new PreparedStatementCallback<Object>() {
+                @Override
+                public Object doInPreparedStatement(PreparedStatement ps) throws SQLException {
+                    for (Visit visit : batch) {
+                        ps.setInt(1, visit.getPet().getId());
+                        ps.setDate(2, new Date(visit.getDate().toDate().getTime()));
+                        ps.setString(3, visit.getDescription());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    if (generatedKeys[0]) {
+                        try (ResultSet keys = ps.getGeneratedKeys()) {
+                            for (int i = 0; i < batch.size() && keys.next(); i++) {
+                                batch.get(i).setId(keys.getInt(1));
+                            }
+                        }
+                    }
+                    return null;
+                }
+            });
     }
 
     @Override
     public List<Visit> findByPetId(Integer petId) {
-        Map<String, Object> params = new HashMap<>();
-        params.put("id", petId);
-        JdbcPet pet = this.jdbcTemplate.queryForObject(
-                "SELECT id, name, birth_date, type_id, owner_id FROM pets WHERE id=:id",
-                params,
-                new JdbcPetRowMapper());
-
-        List<Visit> visits = this.jdbcTemplate.query(
-            "SELECT id as visit_id, visit_date, description FROM visits WHERE pet_id=:id", 
-            params, new JdbcVisitRowMapper());
-        
+        JdbcPet pet = findPet(petId);
+
+        List<Visit> visits = this.visitsByPetId.execute(petId);
+
         for (Visit visit: visits) {
             visit.setPet(pet);
         }
@@ -102,4 +189,28 @@ public class JdbcVisitRepositoryImpl implements VisitRepository {
         return visits;
     }
 
+    /**
+     * Counts the visits of the pet first, then reads only the requested page, most recent first, with
+     * <code>LIMIT</code> and <code>OFFSET</code>.
+     */
+    @Override
+    public Page<Visit> findByPetId(Integer petId, Pageable pageable) throws DataAccessException {
+        long total = this.visitCountByPetId.findObject(petId);
+        if (total <= pageable.getOffset()) {
+            return new PageImpl<>(Collections.<Visit>emptyList(), pageable, total);
+        }
+
+        List<Visit> visits = this.visitPageByPetId.execute(petId, pageable.getPageSize(), pageable.getOffset());
+
+        JdbcPet pet = findPet(petId);
+        for (Visit visit : visits) {
+            visit.setPet(pet);
+        }
+        return new PageImpl<>(visits, pageable, total);
+    }
+
+    private JdbcPet findPet(Integer petId) {
+        return DataAccessUtils.requiredSingleResult(this.petById.execute(petId));
+    }
+
 }
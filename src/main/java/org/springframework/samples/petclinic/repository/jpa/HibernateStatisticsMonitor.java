@@ -0,0 +1,112 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository.jpa;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Exposes the Hibernate {@link Statistics} of the JPA persistence unit over JMX, so that the hit ratios of the
+ * second-level cache regions (one per cached entity and collection, configured in <code>cache/ehcache.xml</code>) can
+ * be checked in a running application.
+ * <p/>
+ * Statistics are only gathered while <code>hibernate.generate_statistics</code> is set, see
+ * <code>data-access.properties</code>; they can also be switched on and off at runtime through the
+ * <code>StatisticsEnabled</code> attribute.
+ */
+@ManagedResource("petclinic:type=HibernateStatistics")
+public class HibernateStatisticsMonitor {
+
+    private final Statistics statistics;
+
+    public HibernateStatisticsMonitor(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @ManagedAttribute
+    public boolean isStatisticsEnabled() {
+        return this.statistics.isStatisticsEnabled();
+    }
+
+    @ManagedAttribute
+    public void setStatisticsEnabled(boolean enabled) {
+        this.statistics.setStatisticsEnabled(enabled);
+    }
+
+    @ManagedAttribute
+    public long getSecondLevelCacheHitCount() {
+        return this.statistics.getSecondLevelCacheHitCount();
+    }
+
+    @ManagedAttribute
+    public long getSecondLevelCacheMissCount() {
+        return this.statistics.getSecondLevelCacheMissCount();
+    }
+
+    @ManagedAttribute
+    public long getSecondLevelCachePutCount() {
+        return this.statistics.getSecondLevelCachePutCount();
+    }
+
+    /**
+     * Return the share of second-level cache lookups, across all regions, that were hits.
+     */
+    @ManagedAttribute
+    public double getSecondLevelCacheHitRatio() {
+        return ratio(this.statistics.getSecondLevelCacheHitCount(), this.statistics.getSecondLevelCacheMissCount());
+    }
+
+    @ManagedAttribute
+    public long getQueryExecutionCount() {
+        return this.statistics.getQueryExecutionCount();
+    }
+
+    @ManagedAttribute
+    public long getPrepareStatementCount() {
+        return this.statistics.getPrepareStatementCount();
+    }
+
+    @ManagedAttribute
+    public String[] getSecondLevelCacheRegionNames() {
+        return this.statistics.getSecondLevelCacheRegionNames();
+    }
+
+    /**
+     * Return the share of lookups in the given second-level cache region that were hits, or 0 for an unknown region.
+     */
+    @ManagedOperation
+    public double getRegionHitRatio(String regionName) {
+        SecondLevelCacheStatistics region = this.statistics.getSecondLevelCacheStatistics(regionName);
+        return region != null ? ratio(region.getHitCount(), region.getMissCount()) : 0;
+    }
+
+    @ManagedOperation
+    public void clear() {
+        this.statistics.clear();
+    }
+
+    private static double ratio(long hits, long misses) {
+        long lookups = hits + misses;
+        return lookups > 0 ? (double) hits / lookups : 0;
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository.jpa;
+
+import java.util.Collection;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.samples.petclinic.model.BaseEntity;
+
+/**
+ * Persists new entities in bulk, flushing and clearing the persistence context every {@link #FLUSH_SIZE} entities so
+ * that it does not grow with the size of the import. The inserts are grouped into JDBC batches according to the
+ * <code>hibernate.jdbc.batch_size</code> setting when ids are allocated ahead of the insert, see the
+ * <code>pooled-ids</code> profile in <code>business-config.xml</code>; with identity columns Hibernate inserts each
+ * entity on <code>persist</code> to read its id back. Any other entity loaded in the same transaction is detached.
+ * Shared by the JPA and Spring Data JPA repositories.
+ */
+public final class JpaBatchPersister {
+
+    /**
+     * Number of entities persisted between two flushes, matching <code>hibernate.jdbc.batch_size</code> in
+     * <code>business-config.xml</code>.
+     */
+    public static final int FLUSH_SIZE = 50;
+
+    private JpaBatchPersister() {
+    }
+
+    /**
+     * @throws UnsupportedOperationException if one of the entities has already been saved
+     */
+    public static void persistAll(EntityManager em, Collection<? extends BaseEntity> entities) {
+        int count = 0;
+        for (BaseEntity entity : entities) {
+            if (!entity.isNew()) {
+                throw new UnsupportedOperationException(entity.getClass().getSimpleName() + " update not supported");
+            }
+            em.persist(entity);
+            if (++count % FLUSH_SIZE == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+}
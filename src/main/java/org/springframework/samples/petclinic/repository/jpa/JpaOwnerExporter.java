@@ -0,0 +1,100 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository.jpa;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.joda.time.LocalDate;
+import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.model.Pet;
+import org.springframework.samples.petclinic.model.PetType;
+import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.repository.OwnerExportHandler;
+
+/**
+ * Streams owners, pets and visits to an {@link OwnerExportHandler} through a forward-only Hibernate
+ * {@link ScrollableResults}. Only scalar values are selected, so no entity is added to the persistence context
+ * whatever the number of rows. Shared by the JPA and Spring Data JPA owner repositories.
+ */
+public class JpaOwnerExporter {
+
+    /**
+     * Number of rows fetched at a time from the cursor.
+     */
+    static final int FETCH_SIZE = 500;
+
+    private final EntityManager em;
+
+    public JpaOwnerExporter(EntityManager em) {
+        this.em = em;
+    }
+
+    public void exportAll(OwnerExportHandler handler) {
+        ScrollableResults rows = this.em.unwrap(Session.class)
+            .createQuery("SELECT owner.id, owner.firstName, owner.lastName, owner.address, owner.city, owner.telephone, " +
+                "pet.id, pet.name, pet.birthDate, type.id, type.name, visit.id, visit.date, visit.description " +
+                "FROM Owner owner left join owner.pets pet left join pet.type type left join pet.visits visit " +
+                "ORDER BY owner.id, pet.id, visit.id")
+            .setReadOnly(true)
+            .setFetchSize(FETCH_SIZE)
+            .scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            Owner owner = null;
+            Pet pet = null;
+            while (rows.next()) {
+                Object[] row = rows.get();
+                if (owner == null || !owner.getId().equals(row[0])) {
+                    owner = new Owner();
+                    owner.setId((Integer) row[0]);
+                    owner.setFirstName((String) row[1]);
+                    owner.setLastName((String) row[2]);
+                    owner.setAddress((String) row[3]);
+                    owner.setCity((String) row[4]);
+                    owner.setTelephone((String) row[5]);
+                    pet = null;
+                }
+                if (row[6] == null) {
+                    handler.handleRow(owner, null, null);
+                    continue;
+                }
+                if (pet == null || !pet.getId().equals(row[6])) {
+                    pet = new Pet();
+                    pet.setId((Integer) row[6]);
+                    pet.setName((String) row[7]);
+                    pet.setBirthDate((LocalDate) row[8]);
+                    PetType type = new PetType();
+                    type.setId((Integer) row[9]);
+                    type.setName((String) row[10]);
+                    pet.setType(type);
+                }
+                Visit visit = null;
+                if (row[11] != null) {
+                    visit = new Visit();
+                    visit.setId((Integer) row[11]);
+                    visit.setDate((LocalDate) row[12]);
+                    visit.setDescription((String) row[13]);
+                }
+                handler.handleRow(owner, pet, visit);
+            }
+        } finally {
+            rows.close();
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository.jpa;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+
+import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.model.Pet;
+import org.springframework.samples.petclinic.model.Visit;
+
+/**
+ * Loads owners and initializes their pets, pet types and visits while their persistence context is still open.
+ * {@link Owner#getPets() Owner.pets} and {@link Pet#getVisits() Pet.visits} use Hibernate subselect fetching, so the
+ * first pets collection touched loads the pets of all owners in one statement, and the first visits collection the
+ * visits of all those pets in another, whatever the number of owners. Pet types come from the second-level cache.
+ * Shared by the JPA and Spring Data JPA owner repositories.
+ */
+public final class JpaOwnerGraphLoader {
+
+    private final EntityManager em;
+
+    public JpaOwnerGraphLoader(EntityManager em) {
+        this.em = em;
+    }
+
+    public static <C extends Collection<Owner>> C initialize(C owners) {
+        for (Owner owner : owners) {
+            for (Pet pet : owner.getPets()) {
+                pet.getVisits();
+            }
+        }
+        return owners;
+    }
+
+    /**
+     * Loads the matching owners without joining their pets, so that each owner is read once, then initializes the
+     * pets, types and visits through {@link #initialize} in a fixed number of statements.
+     */
+    public Collection<Owner> findByLastName(String lastName) {
+        TypedQuery<Owner> query = this.em.createQuery(
+            "SELECT owner FROM Owner owner WHERE owner.lastName LIKE :lastName", Owner.class);
+        query.setParameter("lastName", lastName + "%");
+        return initialize(query.getResultList());
+    }
+
+    /**
+     * Selects the ids of the page first, since 'join fetch' cannot be combined with a row limit in the database;
+     * then loads those owners in ascending last name and id order and initializes their pets, types and visits
+     * through {@link #initialize}.
+     */
+    public Collection<Owner> findPage(String lastName, String keyLastName, Integer keyId, int limit, boolean forward) {
+        StringBuilder jpql = new StringBuilder("SELECT owner.id FROM Owner owner WHERE owner.lastName LIKE :lastName");
+        if (keyLastName != null && keyId != null) {
+            String comparison = forward ? ">" : "<";
+            jpql.append(" AND (owner.lastName ").append(comparison).append(" :keyLastName")
+                .append(" OR (owner.lastName = :keyLastName AND owner.id ").append(comparison).append(" :keyId))");
+        }
+        jpql.append(forward ? " ORDER BY owner.lastName, owner.id" : " ORDER BY owner.lastName DESC, owner.id DESC");
+        TypedQuery<Integer> idQuery = this.em.createQuery(jpql.toString(), Integer.class);
+        idQuery.setParameter("lastName", lastName + "%");
+        if (keyLastName != null && keyId != null) {
+            idQuery.setParameter("keyLastName", keyLastName);
+            idQuery.setParameter("keyId", keyId);
+        }
+        idQuery.setMaxResults(limit);
+        List<Integer> ids = idQuery.getResultList();
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        TypedQuery<Owner> query = this.em.createQuery(
+            "SELECT owner FROM Owner owner WHERE owner.id IN :ids ORDER BY owner.lastName, owner.id", Owner.class);
+        query.setParameter("ids", ids);
+        return initialize(query.getResultList());
+    }
+
+    /**
+     * Loads the owner with its pets but without any visit, since {@link Pet#getVisits() Pet.visits} is lazy; then counts
+     * the visits of all its pets in a single grouped query, and reads only the <code>recentVisits</code> most recent
+     * visits of each pet that has any, one query per such pet limited in the database. The owner and those visits are
+     * detached before the pets are given them, so that the partial collections are never flushed.
+     */
+    public Owner findSummary(int id, int recentVisits) {
+        TypedQuery<Owner> ownerQuery = this.em.createQuery(
+            "SELECT owner FROM Owner owner left join fetch owner.pets WHERE owner.id =:id", Owner.class);
+        ownerQuery.setParameter("id", id);
+        Owner owner = ownerQuery.getSingleResult();
+        TypedQuery<Object[]> countQuery = this.em.createQuery(
+            "SELECT visit.pet.id, COUNT(visit) FROM Visit visit WHERE visit.pet.owner.id = :id GROUP BY visit.pet.id",
+            Object[].class);
+        countQuery.setParameter("id", id);
+        Map<Integer, Integer> visitCounts = new HashMap<>();
+        for (Object[] row : countQuery.getResultList()) {
+            visitCounts.put((Integer) row[0], ((Long) row[1]).intValue());
+        }
+        Map<Integer, List<Visit>> recentVisitsByPetId = new HashMap<>();
+        if (recentVisits > 0) {
+            TypedQuery<Visit> visitQuery = this.em.createQuery(
+                "SELECT visit FROM Visit visit WHERE visit.pet.id = :petId ORDER BY visit.date DESC, visit.id DESC",
+                Visit.class);
+            visitQuery.setMaxResults(recentVisits);
+            for (Integer petId : visitCounts.keySet()) {
+                visitQuery.setParameter("petId", petId);
+                recentVisitsByPetId.put(petId, visitQuery.getResultList());
+            }
+        }
+        this.em.detach(owner);
+        for (List<Visit> visits : recentVisitsByPetId.values()) {
+            for (Visit visit : visits) {
+                this.em.detach(visit);
+            }
+        }
+        for (Pet pet : owner.getPets()) {
+            Integer visitCount = visitCounts.get(pet.getId());
+            List<Visit> recent = recentVisitsByPetId.get(pet.getId());
+            pet.setRecentVisits(visitCount != null ? visitCount : 0,
+                recent != null ? recent : Collections.<Visit>emptyList());
+        }
+        return owner;
+    }
+
+}
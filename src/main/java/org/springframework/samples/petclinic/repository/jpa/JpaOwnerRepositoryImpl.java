@@ -21,8 +21,8 @@ import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
 
-import org.springframework.orm.hibernate3.support.OpenSessionInViewFilter;
 import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.repository.OwnerExportHandler;
 import org.springframework.samples.petclinic.repository.OwnerRepository;
 import org.springframework.stereotype.Repository;
 
@@ -43,30 +43,44 @@ public class JpaOwnerRepositoryImpl implements OwnerRepository {
 
 
     /**
-     * Important: in the current version of this method, we load Owners with all their Pets and Visits while
-     * we do not need Visits at all and we only need one property from the Pet objects (the 'name' property).
-     * There are some ways to improve it such as:
-     * - creating a Ligtweight class (example here: https://community.jboss.org/wiki/LightweightClass)
-     * - Turning on lazy-loading and using {@link OpenSessionInViewFilter}
+     * Loads the matching owners and their pets, types and visits through {@link JpaOwnerGraphLoader}.
      */
-    @SuppressWarnings("unchecked")
     public Collection<Owner> findByLastName(String lastName) {
-        // using 'join fetch' because a single query should load both owners and pets
-        // using 'left join fetch' because it might happen that an owner does not have pets yet
-        Query query = this.em.createQuery("SELECT DISTINCT owner FROM Owner owner left join fetch owner.pets WHERE owner.lastName LIKE :lastName");
-        query.setParameter("lastName", lastName + "%");
-        return query.getResultList();
+        return new JpaOwnerGraphLoader(this.em).findByLastName(lastName);
+    }
+
+    @Override
+    public Collection<Owner> findByLastName(String lastName, String afterLastName, Integer afterId, int limit) {
+        return new JpaOwnerGraphLoader(this.em).findPage(lastName, afterLastName, afterId, limit, true);
+    }
+
+    @Override
+    public Collection<Owner> findByLastNameBefore(String lastName, String beforeLastName, Integer beforeId, int limit) {
+        return new JpaOwnerGraphLoader(this.em).findPage(lastName, beforeLastName, beforeId, limit, false);
     }
 
     @Override
     public Owner findById(int id) {
         // using 'join fetch' because a single query should load both owners and pets
         // using 'left join fetch' because it might happen that an owner does not have pets yet
-        Query query = this.em.createQuery("SELECT owner FROM Owner owner left join fetch owner.pets WHERE owner.id =:id");
+        Query query = this.em.createQuery("SELECT DISTINCT owner FROM Owner owner left join fetch owner.pets pet left join fetch pet.visits WHERE owner.id =:id");
         query.setParameter("id", id);
         return (Owner) query.getSingleResult();
     }
 
+    /**
+     * Loads the owner with its pets and only the most recent visits of each pet through {@link JpaOwnerGraphLoader}.
+     */
+    @Override
+    public Owner findSummaryById(int id, int recentVisits) {
+        return new JpaOwnerGraphLoader(this.em).findSummary(id, recentVisits);
+    }
+
+    @Override
+    public void exportAll(OwnerExportHandler handler) {
+        new JpaOwnerExporter(this.em).exportAll(handler);
+    }
+
 
     @Override
     public void save(Owner owner) {
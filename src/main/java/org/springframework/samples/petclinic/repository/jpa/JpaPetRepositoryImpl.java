@@ -15,10 +15,12 @@
  */
 package org.springframework.samples.petclinic.repository.jpa;
 
+import java.util.Collection;
 import java.util.List;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
 
 import org.springframework.samples.petclinic.model.Pet;
 import org.springframework.samples.petclinic.model.PetType;
@@ -48,7 +50,11 @@ public class JpaPetRepositoryImpl implements PetRepository {
 
     @Override
     public Pet findById(int id) {
-        return this.em.find(Pet.class, id);
+        // the visits of a single pet are shown along with it, while they are lazily loaded otherwise
+        TypedQuery<Pet> query = this.em.createQuery(
+            "SELECT pet FROM Pet pet left join fetch pet.visits WHERE pet.id =:id", Pet.class);
+        query.setParameter("id", id);
+        return query.getSingleResult();
     }
 
     @Override
@@ -60,4 +66,12 @@ public class JpaPetRepositoryImpl implements PetRepository {
         }
     }
 
+    /**
+     * Persists the pets through {@link JpaBatchPersister}.
+     */
+    @Override
+    public void saveAll(Collection<Pet> pets) {
+        JpaBatchPersister.persistAll(this.em, pets);
+    }
+
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository.jpa;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.samples.petclinic.model.Specialty;
+import org.springframework.samples.petclinic.model.Vet;
+import org.springframework.samples.petclinic.repository.VetDataChangedEvent;
+
+/**
+ * Clears the second-level cache regions holding vets, their specialties and the specialties themselves when a
+ * {@link VetDataChangedEvent} is published, before the
+ * {@link org.springframework.samples.petclinic.service.VetsCache} reloads the vets.
+ */
+public class JpaVetCacheEvictor {
+
+    private final Cache cache;
+
+    public JpaVetCacheEvictor(EntityManagerFactory entityManagerFactory) {
+        this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onVetDataChanged(VetDataChangedEvent event) {
+        this.cache.evictEntityRegion(Vet.class);
+        this.cache.evictCollectionRegion(Vet.class.getName() + ".specialties");
+        this.cache.evictEntityRegion(Specialty.class);
+    }
+
+}
@@ -15,12 +15,17 @@
  */
 package org.springframework.samples.petclinic.repository.jpa;
 
+import java.util.Collection;
 import java.util.List;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
+import javax.persistence.TypedQuery;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.samples.petclinic.model.Visit;
 import org.springframework.samples.petclinic.repository.VisitRepository;
 import org.springframework.stereotype.Repository;
@@ -53,6 +58,14 @@ public class JpaVisitRepositoryImpl implements VisitRepository {
     }
 
 
+    /**
+     * Persists the visits through {@link JpaBatchPersister}.
+     */
+    @Override
+    public void saveAll(Collection<Visit> visits) {
+        JpaBatchPersister.persistAll(this.em, visits);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public List<Visit> findByPetId(Integer petId) {
@@ -61,4 +74,17 @@ public class JpaVisitRepositoryImpl implements VisitRepository {
         return query.getResultList();
     }
 
+    @Override
+    public Page<Visit> findByPetId(Integer petId, Pageable pageable) {
+        TypedQuery<Long> countQuery = this.em.createQuery("SELECT COUNT(v) FROM Visit v where v.pet.id= :id", Long.class);
+        countQuery.setParameter("id", petId);
+        long total = countQuery.getSingleResult();
+        TypedQuery<Visit> query = this.em.createQuery(
+            "SELECT v FROM Visit v where v.pet.id= :id ORDER BY v.date DESC, v.id DESC", Visit.class);
+        query.setParameter("id", petId);
+        query.setFirstResult(pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize());
+        return new PageImpl<>(query.getResultList(), pageable, total);
+    }
+
 }
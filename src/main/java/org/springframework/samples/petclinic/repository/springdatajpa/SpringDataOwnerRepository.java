@@ -15,8 +15,6 @@
  */
 package org.springframework.samples.petclinic.repository.springdatajpa;
 
-import java.util.Collection;
-
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.query.Param;
@@ -32,10 +30,6 @@ import org.springframework.samples.petclinic.repository.OwnerRepository;
 public interface SpringDataOwnerRepository extends OwnerRepository, Repository<Owner, Integer> {
 
     @Override
-    @Query("SELECT DISTINCT owner FROM Owner owner left join fetch owner.pets WHERE owner.lastName LIKE :lastName%")
-    public Collection<Owner> findByLastName(@Param("lastName") String lastName);
-
-    @Override
-    @Query("SELECT owner FROM Owner owner left join fetch owner.pets WHERE owner.id =:id")
+    @Query("SELECT DISTINCT owner FROM Owner owner left join fetch owner.pets pet left join fetch pet.visits WHERE owner.id =:id")
     public Owner findById(@Param("id") int id);
 }
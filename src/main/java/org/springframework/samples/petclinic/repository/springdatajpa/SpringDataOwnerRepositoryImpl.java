@@ -0,0 +1,63 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository.springdatajpa;
+
+import java.util.Collection;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.repository.OwnerExportHandler;
+import org.springframework.samples.petclinic.repository.jpa.JpaOwnerExporter;
+import org.springframework.samples.petclinic.repository.jpa.JpaOwnerGraphLoader;
+
+/**
+ * Custom implementation of the {@link SpringDataOwnerRepository} methods that cannot be expressed as Spring Data
+ * query methods. Picked up by Spring Data through the 'Impl' naming convention.
+ */
+public class SpringDataOwnerRepositoryImpl {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * Loads the matching owners and their pets, types and visits through {@link JpaOwnerGraphLoader}.
+     */
+    public Collection<Owner> findByLastName(String lastName) {
+        return new JpaOwnerGraphLoader(this.em).findByLastName(lastName);
+    }
+
+    public Collection<Owner> findByLastName(String lastName, String afterLastName, Integer afterId, int limit) {
+        return new JpaOwnerGraphLoader(this.em).findPage(lastName, afterLastName, afterId, limit, true);
+    }
+
+    public Collection<Owner> findByLastNameBefore(String lastName, String beforeLastName, Integer beforeId, int limit) {
+        return new JpaOwnerGraphLoader(this.em).findPage(lastName, beforeLastName, beforeId, limit, false);
+    }
+
+    /**
+     * Loads the owner with its pets and only the most recent visits of each pet through {@link JpaOwnerGraphLoader}.
+     */
+    public Owner findSummaryById(int id, int recentVisits) {
+        return new JpaOwnerGraphLoader(this.em).findSummary(id, recentVisits);
+    }
+
+    public void exportAll(OwnerExportHandler handler) {
+        new JpaOwnerExporter(this.em).exportAll(handler);
+    }
+
+}
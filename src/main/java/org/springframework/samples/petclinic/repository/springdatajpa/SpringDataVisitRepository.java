@@ -15,7 +15,11 @@
  */
 package org.springframework.samples.petclinic.repository.springdatajpa;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.samples.petclinic.model.Visit;
 import org.springframework.samples.petclinic.repository.VisitRepository;
 
@@ -26,4 +30,9 @@ import org.springframework.samples.petclinic.repository.VisitRepository;
  * @since 15.1.2013
  */
 public interface SpringDataVisitRepository extends VisitRepository, Repository<Visit, Integer> {
+
+    @Override
+    @Query(value = "SELECT visit FROM Visit visit WHERE visit.pet.id = :petId ORDER BY visit.date DESC, visit.id DESC",
+        countQuery = "SELECT COUNT(visit) FROM Visit visit WHERE visit.pet.id = :petId")
+    Page<Visit> findByPetId(@Param("petId") Integer petId, Pageable pageable);
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.repository.springdatajpa;
+
+import java.util.Collection;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.repository.jpa.JpaBatchPersister;
+
+/**
+ * Custom implementation of the {@link SpringDataVisitRepository} methods that cannot be expressed as Spring Data
+ * query methods. Picked up by Spring Data through the 'Impl' naming convention.
+ */
+public class SpringDataVisitRepositoryImpl {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * Persists the visits through {@link JpaBatchPersister}.
+     */
+    public void saveAll(Collection<Visit> visits) {
+        JpaBatchPersister.persistAll(this.em, visits);
+    }
+
+}
@@ -18,11 +18,14 @@ package org.springframework.samples.petclinic.service;
 import java.util.Collection;
 
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.samples.petclinic.model.Owner;
 import org.springframework.samples.petclinic.model.Pet;
 import org.springframework.samples.petclinic.model.PetType;
 import org.springframework.samples.petclinic.model.Vet;
 import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.repository.OwnerExportHandler;
 
 
 /**
@@ -32,22 +35,44 @@ import org.springframework.samples.petclinic.model.Visit;
  */
 public interface ClinicService {
 
+    /**
+     * Number of recent visits per pet shown on the owner details page; only the owner summaries with that many visits
+     * are cached.
+     */
+    int SUMMARY_RECENT_VISITS = 5;
+
     Collection<PetType> findPetTypes() throws DataAccessException;
 
     Owner findOwnerById(int id) throws DataAccessException;
 
+    Owner findOwnerSummaryById(int id, int recentVisits) throws DataAccessException;
+
     Pet findPetById(int id) throws DataAccessException;
 
     void savePet(Pet pet) throws DataAccessException;
 
+    void savePets(Collection<Pet> pets) throws DataAccessException;
+
     void saveVisit(Visit visit) throws DataAccessException;
 
+    void saveVisits(Collection<Visit> visits) throws DataAccessException;
+
     Collection<Vet> findVets() throws DataAccessException;
 
     void saveOwner(Owner owner) throws DataAccessException;
 
     Collection<Owner> findOwnerByLastName(String lastName) throws DataAccessException;
 
+    void exportOwners(OwnerExportHandler handler) throws DataAccessException;
+
+    Collection<Owner> findOwnerByLastName(String lastName, String afterLastName, Integer afterId, int limit)
+        throws DataAccessException;
+
+    Collection<Owner> findOwnerByLastNameBefore(String lastName, String beforeLastName, Integer beforeId, int limit)
+        throws DataAccessException;
+
 	Collection<Visit> findVisitsByPetId(int petId);
 
+    Page<Visit> findVisitsByPetId(int petId, Pageable pageable) throws DataAccessException;
+
 }
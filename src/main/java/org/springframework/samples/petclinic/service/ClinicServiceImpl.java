@@ -18,16 +18,19 @@ package org.springframework.samples.petclinic.service;
 import java.util.Collection;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.samples.petclinic.model.Owner;
 import org.springframework.samples.petclinic.model.Pet;
 import org.springframework.samples.petclinic.model.PetType;
 import org.springframework.samples.petclinic.model.Vet;
 import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.repository.OwnerExportHandler;
 import org.springframework.samples.petclinic.repository.OwnerRepository;
 import org.springframework.samples.petclinic.repository.PetRepository;
-import org.springframework.samples.petclinic.repository.VetRepository;
 import org.springframework.samples.petclinic.repository.VisitRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -42,38 +45,85 @@ import org.springframework.transaction.annotation.Transactional;
 public class ClinicServiceImpl implements ClinicService {
 
     private PetRepository petRepository;
-    private VetRepository vetRepository;
+    private VetsCache vetsCache;
     private OwnerRepository ownerRepository;
     private VisitRepository visitRepository;
 
     @Autowired
-    public ClinicServiceImpl(PetRepository petRepository, VetRepository vetRepository, OwnerRepository ownerRepository, VisitRepository visitRepository) {
+    public ClinicServiceImpl(PetRepository petRepository, VetsCache vetsCache, OwnerRepository ownerRepository, VisitRepository visitRepository) {
         this.petRepository = petRepository;
-        this.vetRepository = vetRepository;
+        this.vetsCache = vetsCache;
         this.ownerRepository = ownerRepository;
         this.visitRepository = visitRepository;
     }
 
     @Override
     @Transactional(readOnly = true)
+    @Cacheable(value = "petTypes")
     public Collection<PetType> findPetTypes() throws DataAccessException {
         return petRepository.findPetTypes();
     }
 
+    /**
+     * Owners, with their pets and visits, are cached by id in the <code>owners</code> cache, and the summaries of the
+     * owner details page in the <code>ownerSummaries</code> cache. Each write below evicts the entries of the owner it
+     * touches once its transaction has committed. Cache misses are loaded in a read-write transaction, so from the
+     * primary database rather than from a read replica that may not have caught up with the write that caused the
+     * eviction yet.
+     * <p/>
+     * A miss that read the owner before a concurrent write committed may still put that stale owner back after the
+     * eviction; owners have no version to check it against, so both caches keep their entries for a minute only,
+     * which bounds how long such an owner is served.
+     */
     @Override
-    @Transactional(readOnly = true)
+    @Transactional
+    @Cacheable(value = "owners", key = "#id")
     public Owner findOwnerById(int id) throws DataAccessException {
         return ownerRepository.findById(id);
     }
 
+    /**
+     * Only the summaries with {@link #SUMMARY_RECENT_VISITS} visits per pet, those of the owner details page, are
+     * cached, so that the owner id alone keys them.
+     */
+    @Override
+    @Transactional
+    @Cacheable(value = "ownerSummaries", key = "#id",
+        condition = "#recentVisits == " +
+            "T(org.springframework.samples.petclinic.service.ClinicService).SUMMARY_RECENT_VISITS")
+    public Owner findOwnerSummaryById(int id, int recentVisits) throws DataAccessException {
+        return ownerRepository.findSummaryById(id, recentVisits);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Collection<Owner> findOwnerByLastName(String lastName) throws DataAccessException {
         return ownerRepository.findByLastName(lastName);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Collection<Owner> findOwnerByLastName(String lastName, String afterLastName, Integer afterId, int limit)
+        throws DataAccessException {
+        return ownerRepository.findByLastName(lastName, afterLastName, afterId, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Collection<Owner> findOwnerByLastNameBefore(String lastName, String beforeLastName, Integer beforeId, int limit)
+        throws DataAccessException {
+        return ownerRepository.findByLastNameBefore(lastName, beforeLastName, beforeId, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportOwners(OwnerExportHandler handler) throws DataAccessException {
+        ownerRepository.exportAll(handler);
+    }
+
     @Override
     @Transactional
+    @CacheEvict(value = {"owners", "ownerSummaries"}, key = "#owner.id")
     public void saveOwner(Owner owner) throws DataAccessException {
         ownerRepository.save(owner);
     }
@@ -81,10 +131,22 @@ public class ClinicServiceImpl implements ClinicService {
 
     @Override
     @Transactional
+    @CacheEvict(value = {"owners", "ownerSummaries"}, key = "#visit.pet.owner.id")
     public void saveVisit(Visit visit) throws DataAccessException {
         visitRepository.save(visit);
     }
 
+    /**
+     * Imported visits only carry the id of their pet, not its owner, so the <code>owners</code> and
+     * <code>ownerSummaries</code> caches are cleared once per batch.
+     */
+    @Override
+    @Transactional
+    @CacheEvict(value = {"owners", "ownerSummaries"}, allEntries = true)
+    public void saveVisits(Collection<Visit> visits) throws DataAccessException {
+        visitRepository.saveAll(visits);
+    }
+
 
     @Override
     @Transactional(readOnly = true)
@@ -94,15 +156,27 @@ public class ClinicServiceImpl implements ClinicService {
 
     @Override
     @Transactional
+    @CacheEvict(value = {"owners", "ownerSummaries"}, key = "#pet.owner.id")
     public void savePet(Pet pet) throws DataAccessException {
         petRepository.save(pet);
     }
 
+    /**
+     * Cleared like {@link #saveVisits}, since imported pets may only carry the id of their owner.
+     */
+    @Override
+    @Transactional
+    @CacheEvict(value = {"owners", "ownerSummaries"}, allEntries = true)
+    public void savePets(Collection<Pet> pets) throws DataAccessException {
+        petRepository.saveAll(pets);
+    }
+
+    /**
+     * Served by the {@link VetsCache}, which loads the vets in its own read-only transaction when needed.
+     */
     @Override
-    @Transactional(readOnly = true)
-    @Cacheable(value = "vets")
     public Collection<Vet> findVets() throws DataAccessException {
-        return vetRepository.findAll();
+        return vetsCache.get();
     }
 
 	@Override
@@ -110,5 +184,11 @@ public class ClinicServiceImpl implements ClinicService {
 		return visitRepository.findByPetId(petId);
 	}
 
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Visit> findVisitsByPetId(int petId, Pageable pageable) throws DataAccessException {
+        return visitRepository.findByPetId(petId, pageable);
+    }
+
 
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.samples.petclinic.repository.PetTypesChangedEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Evicts the pet types cached by {@link ClinicService#findPetTypes()} when a {@link PetTypesChangedEvent} is
+ * published. The next call then hands out a new collection, which also makes the
+ * {@link org.springframework.samples.petclinic.web.PetTypeFormatter} rebuild its index.
+ */
+@Component
+@ManagedResource("petclinic:type=PetTypesCache")
+public class PetTypesCacheEvictor {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public PetTypesCacheEvictor(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Publish a {@link PetTypesChangedEvent}, to be called after pet types have been changed in the database.
+     */
+    @ManagedOperation
+    public void notifyPetTypesChanged() {
+        this.eventPublisher.publishEvent(new PetTypesChangedEvent(this));
+    }
+
+    @EventListener
+    @CacheEvict(value = "petTypes", allEntries = true)
+    public void onPetTypesChanged(PetTypesChangedEvent event) {
+    }
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.service;
+
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.samples.petclinic.model.Vet;
+import org.springframework.samples.petclinic.repository.VetDataChangedEvent;
+import org.springframework.samples.petclinic.repository.VetRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Holds the list of all vets returned by {@link ClinicService#findVets()}.
+ * <p/>
+ * The list is loaded on first use, in a read-only transaction, by a single thread: concurrent callers finding no
+ * usable list wait for that load instead of querying the database as well. Once loaded, the list is reloaded in the
+ * background every <code>refreshInterval</code> milliseconds, so callers keep being served the previous list while
+ * the next one is loaded; when a background load fails, the previous list is kept until it is older than
+ * <code>timeToLive</code> milliseconds, after which callers load it again themselves. The same collection instance is
+ * returned until the list is reloaded.
+ * <p/>
+ * On a {@link VetDataChangedEvent} the list is discarded and reloaded at once in the background; the list of a load
+ * that started before the event is not served afterwards.
+ */
+@ManagedResource("petclinic:type=VetsCache")
+public class VetsCache implements ApplicationEventPublisherAware, InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(VetsCache.class);
+
+    private final VetRepository vetRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder loadCount = new LongAdder();
+
+    private final LongAdder refreshFailureCount = new LongAdder();
+
+    private long refreshInterval = 300000;
+
+    private long timeToLive = 3600000;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private ScheduledExecutorService refresher;
+
+    private volatile Entry entry;
+
+    public VetsCache(VetRepository vetRepository, PlatformTransactionManager transactionManager) {
+        this.vetRepository = vetRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Set the interval between background reloads of the list, in milliseconds; 0 disables them.
+     */
+    public void setRefreshInterval(long refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+
+    /**
+     * Set the age in milliseconds after which a list is no longer served, should the background reloads fail.
+     */
+    public void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vets-cache-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (this.refreshInterval > 0) {
+            this.refresher.scheduleWithFixedDelay(this::refreshIfLoaded,
+                this.refreshInterval, this.refreshInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (this.refresher != null) {
+            this.refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * Return all vets, loading them if no usable list is held.
+     */
+    public Collection<Vet> get() throws DataAccessException {
+        Entry entry = this.entry;
+        if (!isUsable(entry)) {
+            synchronized (this) {
+                entry = this.entry;
+                if (!isUsable(entry)) {
+                    entry = load();
+                }
+            }
+        }
+        return entry.vets;
+    }
+
+    /**
+     * Load the list again, serving the current one until done.
+     */
+    @ManagedOperation
+    public void refresh() throws DataAccessException {
+        synchronized (this) {
+            load();
+        }
+    }
+
+    /**
+     * Discard the list, so that it is loaded again on next use.
+     */
+    @ManagedOperation
+    public void invalidate() {
+        this.generation.incrementAndGet();
+    }
+
+    /**
+     * Publish a {@link VetDataChangedEvent}, to be called after vets or specialties have been changed in the database.
+     */
+    @ManagedOperation
+    public void notifyVetDataChanged() {
+        this.eventPublisher.publishEvent(new VetDataChangedEvent(this));
+    }
+
+    /**
+     * Runs after the other listeners, so that the reload does not read vets from caches not yet cleared.
+     */
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onVetDataChanged(VetDataChangedEvent event) {
+        invalidate();
+        if (this.refresher != null) {
+            this.refresher.execute(this::refreshIfLoaded);
+        }
+    }
+
+    @ManagedAttribute
+    public long getLoadCount() {
+        return this.loadCount.sum();
+    }
+
+    @ManagedAttribute
+    public long getRefreshFailureCount() {
+        return this.refreshFailureCount.sum();
+    }
+
+    /**
+     * Return the age of the list in milliseconds, or -1 if none is held.
+     */
+    @ManagedAttribute
+    public long getAge() {
+        Entry entry = this.entry;
+        return (entry != null ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - entry.loadedAt) : -1);
+    }
+
+    private boolean isUsable(Entry entry) {
+        return (entry != null && entry.generation == this.generation.get()
+            && System.nanoTime() - entry.loadedAt < TimeUnit.MILLISECONDS.toNanos(this.timeToLive));
+    }
+
+    /**
+     * Load the list, tagged with the generation it was loaded in, holding the lock on this cache.
+     */
+    private Entry load() {
+        long generation = this.generation.get();
+        Collection<Vet> vets = this.transactionTemplate.execute(status -> this.vetRepository.findAll());
+        this.loadCount.increment();
+        Entry entry = new Entry(vets, generation, System.nanoTime());
+        this.entry = entry;
+        return entry;
+    }
+
+    /**
+     * Reload the list in the background, unless it was never asked for.
+     */
+    private void refreshIfLoaded() {
+        if (this.entry == null) {
+            return;
+        }
+        try {
+            refresh();
+        } catch (RuntimeException ex) {
+            this.refreshFailureCount.increment();
+            logger.warn("Could not reload the vets, still serving the list loaded {} ms ago", getAge(), ex);
+        }
+    }
+
+
+    private static class Entry {
+
+        private final Collection<Vet> vets;
+
+        private final long generation;
+
+        private final long loadedAt;
+
+        Entry(Collection<Vet> vets, long generation, long loadedAt) {
+            this.vets = vets;
+            this.generation = generation;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+}
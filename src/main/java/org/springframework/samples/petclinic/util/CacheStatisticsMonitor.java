@@ -0,0 +1,105 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.util;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.statistics.StatisticsGateway;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Exposes the hit, miss and eviction counts of the caches configured in <code>cache/ehcache.xml</code> over JMX, such
+ * as the <code>owners</code> and <code>ownerSummaries</code> caches of the owner pages, so that their sizes and eviction
+ * policies can be checked in a running application.
+ */
+@ManagedResource("petclinic:type=CacheStatistics")
+public class CacheStatisticsMonitor {
+
+    private final CacheManager cacheManager;
+
+    public CacheStatisticsMonitor(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @ManagedAttribute
+    public String[] getCacheNames() {
+        return this.cacheManager.getCacheNames();
+    }
+
+    /**
+     * Return the size, hit, miss and eviction counts and hit ratio of each cache.
+     */
+    @ManagedAttribute
+    public String[] getSummary() {
+        String[] names = this.cacheManager.getCacheNames();
+        String[] summary = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            StatisticsGateway statistics = statistics(names[i]);
+            summary[i] = names[i] + " size=" + statistics.getSize() + " hits=" + statistics.cacheHitCount() +
+                " misses=" + statistics.cacheMissCount() + " evictions=" + statistics.cacheEvictedCount() +
+                " hitRatio=" + ratio(statistics.cacheHitCount(), statistics.cacheMissCount());
+        }
+        return summary;
+    }
+
+    @ManagedOperation
+    public long getSize(String cacheName) {
+        return statistics(cacheName).getSize();
+    }
+
+    @ManagedOperation
+    public long getHitCount(String cacheName) {
+        return statistics(cacheName).cacheHitCount();
+    }
+
+    /**
+     * Return the number of lookups in the given cache that found no entry, or an expired one.
+     */
+    @ManagedOperation
+    public long getMissCount(String cacheName) {
+        return statistics(cacheName).cacheMissCount();
+    }
+
+    /**
+     * Return the number of entries evicted from the given cache to keep it within its maximum size.
+     */
+    @ManagedOperation
+    public long getEvictionCount(String cacheName) {
+        return statistics(cacheName).cacheEvictedCount();
+    }
+
+    @ManagedOperation
+    public double getHitRatio(String cacheName) {
+        StatisticsGateway statistics = statistics(cacheName);
+        return ratio(statistics.cacheHitCount(), statistics.cacheMissCount());
+    }
+
+    private StatisticsGateway statistics(String cacheName) {
+        Ehcache cache = this.cacheManager.getEhcache(cacheName);
+        if (cache == null) {
+            throw new IllegalArgumentException("No cache named '" + cacheName + "'");
+        }
+        return cache.getStatistics();
+    }
+
+    private static double ratio(long hits, long misses) {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+}
@@ -15,17 +15,46 @@
  */
 package org.springframework.samples.petclinic.util;
 
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InvalidAttributeValueException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ReflectionException;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+
 import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.springframework.jmx.export.annotation.ManagedAttribute;
-import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.jmx.export.annotation.ManagedResource;
-import org.springframework.util.StopWatch;
+import org.springframework.util.ClassUtils;
 
 /**
- * Simple aspect that monitors call count and call invocation time. It uses JMX annotations and therefore can be
- * monitored using any JMX console such as the jConsole
+ * Simple aspect that monitors call count and call invocation time. It is exposed as a JMX dynamic MBean and therefore
+ * can be monitored using any JMX console such as the jConsole
+ * <p/>
+ * Besides the global call count and average call time, the MBean has one attribute per monitored repository method,
+ * holding the call count and the mean, p50, p95, p99 and max latency of that method in nanoseconds. Counters are
+ * striped and histograms lock-free, so monitoring does not serialize concurrent repository calls.
  * <p/>
  * This is only useful if you use JPA or JDBC.  Spring-data-jpa doesn't have any correctly annotated classes to join on
  *
@@ -36,39 +65,49 @@ import org.springframework.util.StopWatch;
  */
 @ManagedResource("petclinic:type=CallMonitor")
 @Aspect
-public class CallMonitoringAspect {
+public class CallMonitoringAspect implements DynamicMBean {
+
+    private static final String[] STATISTICS_ITEMS = {"count", "mean", "p50", "p95", "p99", "max"};
+
+    private static final CompositeType STATISTICS_TYPE = createStatisticsType();
+
+    private volatile boolean enabled = true;
+
+    private final LongAdder callCount = new LongAdder();
 
-    private boolean enabled = true;
+    private final LongAdder accumulatedCallTime = new LongAdder();
 
-    private int callCount = 0;
+    private final ConcurrentMap<Method, LatencyHistogram> histogramsByMethod = new ConcurrentHashMap<>();
 
-    private long accumulatedCallTime = 0;
+    private final ConcurrentMap<String, LatencyHistogram> histogramsByName = new ConcurrentSkipListMap<>();
 
-    @ManagedAttribute
     public boolean isEnabled() {
         return enabled;
     }
 
-    @ManagedAttribute
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
     }
 
-    @ManagedOperation
     public void reset() {
-        this.callCount = 0;
-        this.accumulatedCallTime = 0;
+        this.callCount.reset();
+        this.accumulatedCallTime.reset();
+        for (LatencyHistogram histogram : this.histogramsByName.values()) {
+            histogram.reset();
+        }
     }
 
-    @ManagedAttribute
-    public int getCallCount() {
-        return callCount;
+    public long getCallCount() {
+        return this.callCount.sum();
     }
 
-    @ManagedAttribute
+    /**
+     * Return the average call time in milliseconds.
+     */
     public long getCallTime() {
-        if (this.callCount > 0)
-            return this.accumulatedCallTime / this.callCount;
+        long count = this.callCount.sum();
+        if (count > 0)
+            return this.accumulatedCallTime.sum() / count / 1000000;
         else
             return 0;
     }
@@ -77,21 +116,167 @@ public class CallMonitoringAspect {
     @Around("within(@org.springframework.stereotype.Repository *)")
     public Object invoke(ProceedingJoinPoint joinPoint) throws Throwable {
         if (this.enabled) {
-            StopWatch sw = new StopWatch(joinPoint.toShortString());
-
-            sw.start("invoke");
+            long start = System.nanoTime();
             try {
                 return joinPoint.proceed();
             } finally {
-                sw.stop();
-                synchronized (this) {
-                    this.callCount++;
-                    this.accumulatedCallTime += sw.getTotalTimeMillis();
-                }
+                long elapsed = System.nanoTime() - start;
+                this.callCount.increment();
+                this.accumulatedCallTime.add(elapsed);
+                histogramFor(joinPoint).record(elapsed);
             }
         } else {
             return joinPoint.proceed();
         }
     }
 
+    private LatencyHistogram histogramFor(ProceedingJoinPoint joinPoint) {
+        Signature signature = joinPoint.getSignature();
+        if (!(signature instanceof MethodSignature)) {
+            return histogramForName(signature.toShortString());
+        }
+        Method method = ((MethodSignature) signature).getMethod();
+        LatencyHistogram histogram = this.histogramsByMethod.get(method);
+        if (histogram == null) {
+            histogram = histogramForName(methodName(joinPoint.getTarget(), method));
+            this.histogramsByMethod.putIfAbsent(method, histogram);
+        }
+        return histogram;
+    }
+
+    private LatencyHistogram histogramForName(String name) {
+        LatencyHistogram histogram = this.histogramsByName.get(name);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            LatencyHistogram existing = this.histogramsByName.putIfAbsent(name, histogram);
+            if (existing != null) {
+                histogram = existing;
+            }
+        }
+        return histogram;
+    }
+
+    private static String methodName(Object target, Method method) {
+        StringBuilder name = new StringBuilder();
+        name.append(target != null ? ClassUtils.getShortName(ClassUtils.getUserClass(target)) :
+            ClassUtils.getShortName(method.getDeclaringClass()));
+        name.append('.').append(method.getName()).append('(');
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                name.append(',');
+            }
+            name.append(ClassUtils.getShortName(parameterTypes[i]));
+        }
+        return name.append(')').toString();
+    }
+
+
+    // DynamicMBean implementation
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        switch (attribute) {
+            case "Enabled":
+                return isEnabled();
+            case "CallCount":
+                return getCallCount();
+            case "CallTime":
+                return getCallTime();
+            default:
+                LatencyHistogram histogram = this.histogramsByName.get(attribute);
+                if (histogram == null) {
+                    throw new AttributeNotFoundException(attribute);
+                }
+                return toCompositeData(histogram.snapshot());
+        }
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException, InvalidAttributeValueException {
+        if (!"Enabled".equals(attribute.getName())) {
+            throw new AttributeNotFoundException(attribute.getName() + " is not writable");
+        }
+        if (!(attribute.getValue() instanceof Boolean)) {
+            throw new InvalidAttributeValueException("Enabled must be a boolean");
+        }
+        setEnabled((Boolean) attribute.getValue());
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException ex) {
+                // skipped, as mandated by the DynamicMBean contract
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        AttributeList list = new AttributeList();
+        for (Attribute attribute : attributes.asList()) {
+            try {
+                setAttribute(attribute);
+                list.add(attribute);
+            } catch (AttributeNotFoundException | InvalidAttributeValueException ex) {
+                // skipped, as mandated by the DynamicMBean contract
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        if ("reset".equals(actionName)) {
+            reset();
+            return null;
+        }
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        attributes.add(new MBeanAttributeInfo("Enabled", "boolean", "Whether calls are monitored", true, true, true));
+        attributes.add(new MBeanAttributeInfo("CallCount", "long", "Number of monitored calls", true, false, false));
+        attributes.add(new MBeanAttributeInfo("CallTime", "long", "Average call time in milliseconds", true, false, false));
+        for (String name : this.histogramsByName.keySet()) {
+            attributes.add(new MBeanAttributeInfo(name, CompositeData.class.getName(),
+                "Call count and latency percentiles in nanoseconds", true, false, false));
+        }
+        MBeanOperationInfo reset = new MBeanOperationInfo("reset", "Reset all counters and histograms",
+            new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+        return new MBeanInfo(getClass().getName(), "Repository call monitor",
+            attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null,
+            new MBeanOperationInfo[]{reset}, null);
+    }
+
+    private static CompositeData toCompositeData(LatencyHistogram.Snapshot snapshot) {
+        try {
+            return new CompositeDataSupport(STATISTICS_TYPE, STATISTICS_ITEMS, new Object[]{
+                snapshot.getCount(), snapshot.getMean(), snapshot.getP50(), snapshot.getP95(), snapshot.getP99(),
+                snapshot.getMax()});
+        } catch (OpenDataException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static CompositeType createStatisticsType() {
+        try {
+            return new CompositeType("MethodStatistics", "Call count and latency percentiles in nanoseconds",
+                STATISTICS_ITEMS,
+                new String[]{"Number of calls", "Mean latency", "Median latency", "95th percentile latency",
+                    "99th percentile latency", "Maximum latency"},
+                new OpenType<?>[]{SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG,
+                    SimpleType.LONG, SimpleType.LONG});
+        } catch (OpenDataException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
 }
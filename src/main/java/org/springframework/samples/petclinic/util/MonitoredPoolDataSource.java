@@ -0,0 +1,221 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolExhaustedException;
+import org.apache.tomcat.jdbc.pool.interceptor.SlowQueryReport;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Wraps the tomcat-jdbc connection pool to expose its live state as a JMX MBean, next to the CallMonitor, so that pool
+ * sizes can be chosen from measurements.
+ * <p/>
+ * Besides the pool's own figures (size, active and idle connections, threads waiting for a connection), this records
+ * how long each {@link #getConnection()} call waited for a connection, in nanoseconds, and how many gave up after the
+ * pool's <code>maxWait</code>; other failures, such as a database refusing new connections, are not counted as
+ * timeouts. Slow queries are taken from the statistics of the pool's {@link SlowQueryReport}
+ * interceptor, if configured: statements whose slowest execution took longer than {@link #setSlowQueryThreshold
+ * slowQueryThreshold} milliseconds are listed, slowest first.
+ */
+@ManagedResource("petclinic:type=ConnectionPool")
+public class MonitoredPoolDataSource extends DelegatingDataSource {
+
+    private final DataSource pool;
+
+    private final LatencyHistogram connectionWaitTime = new LatencyHistogram();
+
+    private final LongAdder connectionTimeoutCount = new LongAdder();
+
+    private volatile long slowQueryThreshold = 1000;
+
+    public MonitoredPoolDataSource(DataSource pool) {
+        super(pool);
+        this.pool = pool;
+    }
+
+    public void setSlowQueryThreshold(long slowQueryThreshold) {
+        this.slowQueryThreshold = slowQueryThreshold;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return this.pool.getConnection();
+        } catch (PoolExhaustedException ex) {
+            this.connectionTimeoutCount.increment();
+            throw ex;
+        } finally {
+            this.connectionWaitTime.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return this.pool.getConnection(username, password);
+        } catch (PoolExhaustedException ex) {
+            this.connectionTimeoutCount.increment();
+            throw ex;
+        } finally {
+            this.connectionWaitTime.record(System.nanoTime() - start);
+        }
+    }
+
+    @ManagedAttribute
+    public int getSize() {
+        return this.pool.getSize();
+    }
+
+    @ManagedAttribute
+    public int getActive() {
+        return this.pool.getActive();
+    }
+
+    @ManagedAttribute
+    public int getIdle() {
+        return this.pool.getIdle();
+    }
+
+    /**
+     * Return the number of threads currently waiting for a connection.
+     */
+    @ManagedAttribute
+    public int getWaiters() {
+        return this.pool.getWaitCount();
+    }
+
+    @ManagedAttribute
+    public int getMaxActive() {
+        return this.pool.getMaxActive();
+    }
+
+    @ManagedAttribute
+    public void setMaxActive(int maxActive) {
+        this.pool.setMaxActive(maxActive);
+    }
+
+    @ManagedAttribute
+    public int getMinIdle() {
+        return this.pool.getMinIdle();
+    }
+
+    @ManagedAttribute
+    public void setMinIdle(int minIdle) {
+        this.pool.setMinIdle(minIdle);
+    }
+
+    @ManagedAttribute
+    public int getMaxIdle() {
+        return this.pool.getMaxIdle();
+    }
+
+    @ManagedAttribute
+    public void setMaxIdle(int maxIdle) {
+        this.pool.setMaxIdle(maxIdle);
+    }
+
+    @ManagedAttribute
+    public long getConnectionRequestCount() {
+        return this.connectionWaitTime.getCount();
+    }
+
+    @ManagedAttribute
+    public long getConnectionTimeoutCount() {
+        return this.connectionTimeoutCount.sum();
+    }
+
+    @ManagedAttribute
+    public long getConnectionWaitTimeMean() {
+        return this.connectionWaitTime.snapshot().getMean();
+    }
+
+    @ManagedAttribute
+    public long getConnectionWaitTimeP99() {
+        return this.connectionWaitTime.snapshot().getP99();
+    }
+
+    @ManagedAttribute
+    public long getConnectionWaitTimeMax() {
+        return this.connectionWaitTime.snapshot().getMax();
+    }
+
+    @ManagedAttribute
+    public long getSlowQueryThreshold() {
+        return this.slowQueryThreshold;
+    }
+
+    @ManagedAttribute
+    public int getSlowQueryCount() {
+        return slowQueryStats().size();
+    }
+
+    /**
+     * Return the slow statements, slowest first, with their maximum and average execution time in milliseconds and
+     * their number of executions.
+     */
+    @ManagedAttribute
+    public String[] getSlowQueries() {
+        List<SlowQueryReport.QueryStats> slowQueries = slowQueryStats();
+        String[] descriptions = new String[slowQueries.size()];
+        for (int i = 0; i < descriptions.length; i++) {
+            SlowQueryReport.QueryStats stats = slowQueries.get(i);
+            descriptions[i] = "max=" + stats.getMaxInvocationTime() + "ms avg=" +
+                stats.getTotalInvocationTime() / Math.max(stats.getNrOfInvocations(), 1) + "ms count=" +
+                stats.getNrOfInvocations() + " " + stats.getQuery();
+        }
+        return descriptions;
+    }
+
+    private List<SlowQueryReport.QueryStats> slowQueryStats() {
+        Map<String, SlowQueryReport.QueryStats> poolStats = SlowQueryReport.getPoolStats(this.pool.getName());
+        if (poolStats == null) {
+            return Collections.emptyList();
+        }
+        List<SlowQueryReport.QueryStats> slowQueries = new ArrayList<>();
+        for (SlowQueryReport.QueryStats stats : poolStats.values()) {
+            if (stats.getMaxInvocationTime() > this.slowQueryThreshold) {
+                slowQueries.add(stats);
+            }
+        }
+        slowQueries.sort((a, b) -> Long.compare(b.getMaxInvocationTime(), a.getMaxInvocationTime()));
+        return slowQueries;
+    }
+
+    @ManagedOperation
+    public void resetStatistics() {
+        this.connectionWaitTime.reset();
+        this.connectionTimeoutCount.reset();
+        Map<String, SlowQueryReport.QueryStats> poolStats = SlowQueryReport.getPoolStats(this.pool.getName());
+        if (poolStats != null) {
+            poolStats.clear();
+        }
+    }
+
+}
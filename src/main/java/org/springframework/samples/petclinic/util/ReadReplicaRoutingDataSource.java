@@ -0,0 +1,269 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Routes connections of read-only transactions to a set of read replicas, round-robin, and all other connections to
+ * the primary database.
+ * <p/>
+ * The routing decision is taken when the connection is obtained, from
+ * {@link TransactionSynchronizationManager#isCurrentTransactionReadOnly()}. Transaction managers obtain their
+ * connection before they mark the transaction read-only, so this data source must be wrapped in a
+ * {@link LazyConnectionDataSourceProxy}, which defers fetching the connection until the first statement; this works
+ * with the <code>DataSourceTransactionManager</code> as well as with the <code>JpaTransactionManager</code>.
+ * <p/>
+ * Every <code>healthCheckInterval</code> milliseconds each replica is validated with {@link Connection#isValid}.
+ * Replicas that fail the check, or fail to hand out a connection, are skipped until they pass a later check; when no
+ * replica is available, read-only transactions go to the primary database.
+ */
+@ManagedResource("petclinic:type=ReadReplicaRouting")
+public class ReadReplicaRoutingDataSource extends AbstractDataSource implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadReplicaRoutingDataSource.class);
+
+    private final DataSource primary;
+
+    private final List<Replica> replicas = new ArrayList<>();
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private final LongAdder primaryConnectionCount = new LongAdder();
+
+    private final LongAdder replicaConnectionCount = new LongAdder();
+
+    private final LongAdder replicaFailureCount = new LongAdder();
+
+    private long healthCheckInterval = 5000;
+
+    private int validationTimeout = 1;
+
+    private ScheduledExecutorService healthChecker;
+
+    public ReadReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas) {
+        this.primary = primary;
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas.add(new Replica("replica-" + i, replicas.get(i)));
+        }
+    }
+
+    /**
+     * Set the interval between replica health checks, in milliseconds; 0 disables the periodic checks.
+     */
+    public void setHealthCheckInterval(long healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+    }
+
+    /**
+     * Set the time in seconds a replica may take to validate a connection during a health check.
+     */
+    public void setValidationTimeout(int validationTimeout) {
+        this.validationTimeout = validationTimeout;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!this.replicas.isEmpty() && this.healthCheckInterval > 0) {
+            this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "replica-health-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.healthChecker.scheduleWithFixedDelay(this::checkReplicas,
+                this.healthCheckInterval, this.healthCheckInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (this.healthChecker != null) {
+            this.healthChecker.shutdownNow();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(null, null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            Connection connection = getReplicaConnection(username, password);
+            if (connection != null) {
+                return connection;
+            }
+        }
+        this.primaryConnectionCount.increment();
+        return getConnection(this.primary, username, password);
+    }
+
+    /**
+     * Obtain a connection from the next healthy replica, or return <code>null</code> if none is available.
+     */
+    private Connection getReplicaConnection(String username, String password) {
+        int replicaCount = this.replicas.size();
+        if (replicaCount == 0) {
+            return null;
+        }
+        int start = this.nextReplica.getAndIncrement();
+        for (int i = 0; i < replicaCount; i++) {
+            Replica replica = this.replicas.get(Math.floorMod(start + i, replicaCount));
+            if (replica.healthy) {
+                try {
+                    Connection connection = getConnection(replica.dataSource, username, password);
+                    replica.connectionCount.increment();
+                    this.replicaConnectionCount.increment();
+                    return connection;
+                } catch (SQLException ex) {
+                    this.replicaFailureCount.increment();
+                    markHealthy(replica, false, ex);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Connection getConnection(DataSource dataSource, String username, String password)
+        throws SQLException {
+        return username != null ? dataSource.getConnection(username, password) : dataSource.getConnection();
+    }
+
+    /**
+     * Validate a connection of each replica, taking failed replicas out of and recovered replicas back into the
+     * rotation.
+     */
+    @ManagedOperation
+    public void checkReplicas() {
+        for (Replica replica : this.replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                markHealthy(replica, connection.isValid(this.validationTimeout), null);
+            } catch (SQLException ex) {
+                markHealthy(replica, false, ex);
+            }
+        }
+    }
+
+    private void markHealthy(Replica replica, boolean healthy, SQLException ex) {
+        if (replica.healthy != healthy) {
+            replica.healthy = healthy;
+            if (healthy) {
+                logger.info("Read replica {} is available again", replica.name);
+            } else {
+                logger.warn("Read replica {} is unavailable, routing its reads elsewhere", replica.name, ex);
+            }
+        }
+    }
+
+    @ManagedAttribute
+    public int getReplicaCount() {
+        return this.replicas.size();
+    }
+
+    @ManagedAttribute
+    public int getHealthyReplicaCount() {
+        int count = 0;
+        for (Replica replica : this.replicas) {
+            if (replica.healthy) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Return the state of each replica and the number of connections it handed out.
+     */
+    @ManagedAttribute
+    public String[] getReplicaStatus() {
+        String[] status = new String[this.replicas.size()];
+        for (int i = 0; i < status.length; i++) {
+            Replica replica = this.replicas.get(i);
+            status[i] = replica.name + " " + (replica.healthy ? "UP" : "DOWN") + " connections=" +
+                replica.connectionCount.sum();
+        }
+        return status;
+    }
+
+    @ManagedAttribute
+    public long getPrimaryConnectionCount() {
+        return this.primaryConnectionCount.sum();
+    }
+
+    @ManagedAttribute
+    public long getReplicaConnectionCount() {
+        return this.replicaConnectionCount.sum();
+    }
+
+    /**
+     * Return the number of replica connections that could not be obtained and were served by another replica or by
+     * the primary database instead.
+     */
+    @ManagedAttribute
+    public long getReplicaFailureCount() {
+        return this.replicaFailureCount.sum();
+    }
+
+    @ManagedOperation
+    public void resetStatistics() {
+        this.primaryConnectionCount.reset();
+        this.replicaConnectionCount.reset();
+        this.replicaFailureCount.reset();
+        for (Replica replica : this.replicas) {
+            replica.connectionCount.reset();
+        }
+    }
+
+
+    private static class Replica {
+
+        private final String name;
+
+        private final DataSource dataSource;
+
+        private final LongAdder connectionCount = new LongAdder();
+
+        private volatile boolean healthy = true;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolConfiguration;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.StringUtils;
+
+/**
+ * Creates one tomcat-jdbc connection pool per read replica URL, with the same credentials, sizing, validation and
+ * interceptors as the given template pool, for the {@link ReadReplicaRoutingDataSource}. The pools are closed with
+ * the application context.
+ */
+public class ReplicaPoolFactoryBean implements FactoryBean<List<javax.sql.DataSource>>, InitializingBean,
+    DisposableBean {
+
+    private DataSource template;
+
+    private String[] urls = new String[0];
+
+    private final List<DataSource> pools = new ArrayList<>();
+
+    public void setTemplate(DataSource template) {
+        this.template = template;
+    }
+
+    /**
+     * Set the JDBC URLs of the replicas; blank entries are ignored.
+     */
+    public void setUrls(String[] urls) {
+        this.urls = urls;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        for (String url : this.urls) {
+            if (StringUtils.hasText(url)) {
+                // copied from the pool's own configuration, as the pool itself does not reveal its password
+                PoolConfiguration source = this.template.getPoolProperties();
+                PoolProperties properties = new PoolProperties();
+                BeanUtils.copyProperties(source, properties, PoolConfiguration.class);
+                properties.setDbProperties((Properties) source.getDbProperties().clone());
+                properties.setUrl(url.trim());
+                // keeps the statistics of the SlowQueryReport interceptor apart from those of the template pool
+                properties.setName(source.getName() + "-replica-" + this.pools.size());
+                this.pools.add(new DataSource(properties));
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        for (DataSource pool : this.pools) {
+            pool.close();
+        }
+    }
+
+    @Override
+    public List<javax.sql.DataSource> getObject() {
+        return Collections.<javax.sql.DataSource>unmodifiableList(this.pools);
+    }
+
+    @Override
+    public Class<?> getObjectType() {
+        return List.class;
+    }
+
+    @Override
+    public boolean isSingleton() {
+        return true;
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Number of SQL statements, rows read and time spent executing statements during a unit of work, such as an HTTP
+ * request or a {@link org.springframework.samples.petclinic.service.ClinicService} call, recorded by the
+ * {@link SqlStatisticsDataSource}. Statements are also counted per shape, i.e. with their literals replaced by
+ * placeholders, so that a statement run once per row of a previous result (the N+1 selects pattern) stands out.
+ * <p/>
+ * Statistics are bound to the current thread: {@link #start} opens statistics nested in the current ones, which
+ * count the statements of the enclosing statistics too, until {@link #stop()}. Instances are not thread-safe; they may
+ * move from one thread to another with {@link #bind}, e.g. to follow an asynchronous request, but must be used by one
+ * thread at a time.
+ */
+public class SqlStatistics {
+
+    private static final ThreadLocal<SqlStatistics> current = new ThreadLocal<>();
+
+    private final String name;
+
+    private final SqlStatistics parent;
+
+    private final Map<String, Integer> statementCountsByShape = new HashMap<>();
+
+    private int statementCount;
+
+    private long rowCount;
+
+    private long elapsedTime;
+
+    /**
+     * Create statistics that are not nested in other statistics and not bound to any thread yet.
+     */
+    public SqlStatistics(String name) {
+        this(name, null);
+    }
+
+    private SqlStatistics(String name, SqlStatistics parent) {
+        this.name = name;
+        this.parent = parent;
+    }
+
+    /**
+     * Return the statistics bound to the current thread, or <code>null</code> if none.
+     */
+    public static SqlStatistics current() {
+        return current.get();
+    }
+
+    /**
+     * Bind new statistics to the current thread, nested in those already bound, if any.
+     */
+    public static SqlStatistics start(String name) {
+        SqlStatistics statistics = new SqlStatistics(name, current.get());
+        current.set(statistics);
+        return statistics;
+    }
+
+    /**
+     * Bind the given statistics, or none if <code>null</code>, to the current thread.
+     *
+     * @return the statistics bound before, to be bound again once done
+     */
+    public static SqlStatistics bind(SqlStatistics statistics) {
+        SqlStatistics previous = current.get();
+        if (statistics != null) {
+            current.set(statistics);
+        } else {
+            current.remove();
+        }
+        return previous;
+    }
+
+    /**
+     * Stop recording into these statistics, binding the enclosing statistics to the current thread again.
+     */
+    public void stop() {
+        if (current.get() == this) {
+            bind(this.parent);
+        }
+    }
+
+    void recordStatement(String shape, long elapsedTime) {
+        for (SqlStatistics statistics = this; statistics != null; statistics = statistics.parent) {
+            statistics.statementCount++;
+            statistics.elapsedTime += elapsedTime;
+            statistics.statementCountsByShape.merge(shape, 1, Integer::sum);
+        }
+    }
+
+    void recordRow() {
+        for (SqlStatistics statistics = this; statistics != null; statistics = statistics.parent) {
+            statistics.rowCount++;
+        }
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Return the statistics these are nested in, or <code>null</code> for outermost statistics.
+     */
+    public SqlStatistics getParent() {
+        return this.parent;
+    }
+
+    public int getStatementCount() {
+        return this.statementCount;
+    }
+
+    public long getRowCount() {
+        return this.rowCount;
+    }
+
+    /**
+     * Return the time spent executing statements, in nanoseconds; fetching the rows of results is not included.
+     */
+    public long getElapsedTime() {
+        return this.elapsedTime;
+    }
+
+    /**
+     * Return the number of executions of each statement shape, most executed first.
+     */
+    public List<Map.Entry<String, Integer>> getStatementCountsByShape() {
+        List<Map.Entry<String, Integer>> counts = new ArrayList<>(this.statementCountsByShape.entrySet());
+        counts.sort(Collections.reverseOrder(Map.Entry.comparingByValue()));
+        return counts;
+    }
+
+    /**
+     * Return the number of executions of the most executed statement shape, 0 if no statement was executed.
+     */
+    public int getMaxStatementCountPerShape() {
+        int max = 0;
+        for (int count : this.statementCountsByShape.values()) {
+            max = Math.max(max, count);
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return this.name + ": " + this.statementCount + " statements, " + this.rowCount + " rows, " +
+            TimeUnit.NANOSECONDS.toMillis(this.elapsedTime) + " ms";
+    }
+
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Records the statements executed on its connections, the rows read from their results and the time spent executing
+ * them into the {@link SqlStatistics} bound to the executing thread.
+ * <p/>
+ * Connections obtained while no statistics are bound to the thread are returned as is, so that work nobody monitors,
+ * such as background reloads of cached data, is not slowed down by the proxies. Statements are recorded under their
+ * shape: whitespace is collapsed, and literals as well as the parameter lists of <code>IN</code> conditions are
+ * replaced by a single placeholder.
+ */
+public class SqlStatisticsDataSource extends DelegatingDataSource {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+
+    private static final int MAX_CACHED_SHAPES = 1000;
+
+    private final ConcurrentMap<String, String> shapes = new ConcurrentHashMap<>();
+
+    public SqlStatisticsDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return monitor(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return monitor(super.getConnection(username, password));
+    }
+
+    private Connection monitor(Connection connection) {
+        if (SqlStatistics.current() == null) {
+            return connection;
+        }
+        return proxy(Connection.class, new ConnectionHandler(connection));
+    }
+
+    /**
+     * Return the shape under which the given statement is recorded.
+     */
+    String shapeOf(String sql) {
+        String shape = this.shapes.get(sql);
+        if (shape == null) {
+            shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+            shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+            shape = WHITESPACE.matcher(shape).replaceAll(" ").trim();
+            shape = IN_LIST.matcher(shape).replaceAll("in (?)");
+            if (this.shapes.size() < MAX_CACHED_SHAPES) {
+                this.shapes.put(sql, shape);
+            }
+        }
+        return shape;
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(SqlStatisticsDataSource.class.getClassLoader(),
+            new Class<?>[]{type}, handler));
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getTargetException();
+        }
+    }
+
+
+    /**
+     * Base class of the JDBC object proxies, which compare by identity and unwrap to themselves first.
+     */
+    private abstract static class JdbcObjectHandler implements InvocationHandler {
+
+        private final Object target;
+
+        JdbcObjectHandler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return (proxy == args[0]);
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return handle(proxy, method, args, this.target);
+        }
+
+        protected abstract Object handle(Object proxy, Method method, Object[] args, Object target) throws Throwable;
+    }
+
+
+    private class ConnectionHandler extends JdbcObjectHandler {
+
+        ConnectionHandler(Connection connection) {
+            super(connection);
+        }
+
+        @Override
+        protected Object handle(Object proxy, Method method, Object[] args, Object target) throws Throwable {
+            Object result = invokeTarget(target, method, args);
+            if (result instanceof Statement) {
+                String shape = (method.getName().startsWith("prepare") ? shapeOf((String) args[0]) : null);
+                return proxy(method.getReturnType(), new StatementHandler((Statement) result, (Connection) proxy, shape));
+            }
+            return result;
+        }
+    }
+
+
+    private class StatementHandler extends JdbcObjectHandler {
+
+        private final Connection connection;
+
+        private String shape;
+
+        StatementHandler(Statement statement, Connection connection, String shape) {
+            super(statement);
+            this.connection = connection;
+            this.shape = shape;
+        }
+
+        @Override
+        protected Object handle(Object proxy, Method method, Object[] args, Object target) throws Throwable {
+            String name = method.getName();
+            if ("getConnection".equals(name)) {
+                return this.connection;
+            }
+            if (args != null && args.length > 0 && args[0] instanceof String &&
+                (name.startsWith("execute") || "addBatch".equals(name))) {
+                // a plain statement, executing the given SQL
+                this.shape = shapeOf((String) args[0]);
+            }
+            if (!name.startsWith("execute")) {
+                Object result = invokeTarget(target, method, args);
+                return ("getResultSet".equals(name) ? monitorResults((ResultSet) result, proxy) : result);
+            }
+            long start = System.nanoTime();
+            try {
+                Object result = invokeTarget(target, method, args);
+                return (result instanceof ResultSet ? monitorResults((ResultSet) result, proxy) : result);
+            } finally {
+                SqlStatistics statistics = SqlStatistics.current();
+                if (statistics != null) {
+                    statistics.recordStatement(this.shape, System.nanoTime() - start);
+                }
+            }
+        }
+
+        private ResultSet monitorResults(ResultSet resultSet, Object statement) {
+            return (resultSet != null ? proxy(ResultSet.class, new ResultSetHandler(resultSet, statement)) : null);
+        }
+    }
+
+
+    private static class ResultSetHandler extends JdbcObjectHandler {
+
+        private final Object statement;
+
+        ResultSetHandler(ResultSet resultSet, Object statement) {
+            super(resultSet);
+            this.statement = statement;
+        }
+
+        @Override
+        protected Object handle(Object proxy, Method method, Object[] args, Object target) throws Throwable {
+            if ("getStatement".equals(method.getName())) {
+                return this.statement;
+            }
+            Object result = invokeTarget(target, method, args);
+            if (Boolean.TRUE.equals(result) && "next".equals(method.getName())) {
+                SqlStatistics statistics = SqlStatistics.current();
+                if (statistics != null) {
+                    statistics.recordRow();
+                }
+            }
+            return result;
+        }
+    }
+
+}
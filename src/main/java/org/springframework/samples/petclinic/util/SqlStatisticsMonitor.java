@@ -0,0 +1,158 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.util;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Gathers {@link SqlStatistics} per {@link org.springframework.samples.petclinic.service.ClinicService} call, and
+ * reports the HTTP requests and service calls that run too many statements.
+ * <p/>
+ * Each service call is logged at debug level with its statement count, row count and database time. When an HTTP
+ * request (see <code>SqlStatisticsFilter</code>), or a service call made outside of any request, ends having run more
+ * than <code>maxStatements</code> statements, the same statement shape more than <code>maxRepeatedStatements</code>
+ * times, or more than <code>maxTime</code> milliseconds of statements, a warning lists its most executed statements.
+ * A statement repeated with only its parameters changing usually means N+1 selects: one query per row of a previous
+ * result. The thresholds can be changed at runtime over JMX.
+ * <p/>
+ * The advice runs outside the transaction of the service call, so that statements flushed on commit are counted.
+ */
+@ManagedResource("petclinic:type=SqlStatistics")
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SqlStatisticsMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlStatisticsMonitor.class);
+
+    private static final int REPORTED_SHAPES = 3;
+
+    private volatile boolean enabled = true;
+
+    private volatile int maxStatements = 20;
+
+    private volatile int maxRepeatedStatements = 5;
+
+    private volatile long maxTime = 500;
+
+    private final LongAdder reportCount = new LongAdder();
+
+    @ManagedAttribute
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    @ManagedAttribute
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @ManagedAttribute
+    public int getMaxStatements() {
+        return this.maxStatements;
+    }
+
+    @ManagedAttribute
+    public void setMaxStatements(int maxStatements) {
+        this.maxStatements = maxStatements;
+    }
+
+    @ManagedAttribute
+    public int getMaxRepeatedStatements() {
+        return this.maxRepeatedStatements;
+    }
+
+    @ManagedAttribute
+    public void setMaxRepeatedStatements(int maxRepeatedStatements) {
+        this.maxRepeatedStatements = maxRepeatedStatements;
+    }
+
+    /**
+     * Return the database time, in milliseconds, above which a request is reported.
+     */
+    @ManagedAttribute
+    public long getMaxTime() {
+        return this.maxTime;
+    }
+
+    @ManagedAttribute
+    public void setMaxTime(long maxTime) {
+        this.maxTime = maxTime;
+    }
+
+    /**
+     * Return the number of requests and service calls reported for exceeding a threshold.
+     */
+    @ManagedAttribute
+    public long getReportCount() {
+        return this.reportCount.sum();
+    }
+
+    @Around("execution(* org.springframework.samples.petclinic.service.ClinicService.*(..))")
+    public Object monitor(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!this.enabled) {
+            return joinPoint.proceed();
+        }
+        SqlStatistics statistics = SqlStatistics.start("ClinicService." + joinPoint.getSignature().getName());
+        try {
+            return joinPoint.proceed();
+        } finally {
+            statistics.stop();
+            logger.debug("{}", statistics);
+            if (statistics.getParent() == null) {
+                check(statistics);
+            }
+        }
+    }
+
+    /**
+     * Log a warning if the given statistics exceed one of the thresholds.
+     *
+     * @return whether they did
+     */
+    public boolean check(SqlStatistics statistics) {
+        if (statistics.getStatementCount() <= this.maxStatements &&
+            statistics.getMaxStatementCountPerShape() <= this.maxRepeatedStatements &&
+            TimeUnit.NANOSECONDS.toMillis(statistics.getElapsedTime()) <= this.maxTime) {
+            return false;
+        }
+        this.reportCount.increment();
+        if (logger.isWarnEnabled()) {
+            StringBuilder message = new StringBuilder(statistics.toString());
+            int reported = 0;
+            for (Map.Entry<String, Integer> shape : statistics.getStatementCountsByShape()) {
+                if (reported++ == REPORTED_SHAPES) {
+                    break;
+                }
+                message.append("\n  ").append(shape.getValue()).append("x ").append(shape.getKey());
+            }
+            logger.warn(message.toString());
+        }
+        return true;
+    }
+
+}
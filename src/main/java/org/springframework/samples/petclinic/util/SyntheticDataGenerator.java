@@ -0,0 +1,326 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.util;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.sql.DataSource;
+
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.support.GenericXmlApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * Generates a large, realistic data set of owners, pets and visits on top of whatever the database already contains,
+ * so that performance can be investigated at production-like volumes without checking in huge SQL files.
+ * <p/>
+ * Owner last names follow a Zipf distribution (a few very common names, a long tail of rare ones), and the number of
+ * pets per owner and of visits per pet are geometrically distributed around a configurable mean. All values are drawn
+ * from a {@link Random} with a fixed seed, so the same settings always generate the same data. Rows are streamed to the
+ * database in JDBC batches, so memory use does not depend on the size of the data set.
+ * <p/>
+ * Can be run against the data source configured in <code>spring/data-access.properties</code> with
+ * <code>mvn -Pgenerate-data compile exec:java</code>; since the default in-memory database does not survive the run,
+ * point <code>jdbc.url</code> to a persistent database, e.g. <code>-Djdbc.url=jdbc:hsqldb:file:target/petclinic</code>.
+ * The cardinalities are read from the <code>generator.*</code> system properties, see {@link #main(String[])}.
+ * <p/>
+ * Unless <code>jdbc.initialize</code> is set, the generator does not run the database initialization scripts, so
+ * each run adds to the data already there; pass <code>-Djdbc.initialize=true</code> on the first run against a new
+ * database to create the schema and the sample data. Likewise, start the application with
+ * <code>-Djdbc.initialize=false</code> and the same <code>jdbc.url</code>, otherwise it recreates the tables and the
+ * generated data is lost.
+ */
+public class SyntheticDataGenerator {
+
+    private static final String[] LAST_NAME_PREFIXES = {
+        "Al", "Bar", "Cal", "Dan", "El", "Fer", "Gar", "Hal", "Ing", "Jen", "Kel", "Lam", "Mar", "Nor", "Ol",
+        "Par", "Quin", "Ros", "San", "Tor", "Ul", "Van", "Wal", "Yar", "Zel", "Ben", "Cor", "Dor", "Fin", "Har"};
+
+    private static final String[] LAST_NAME_SUFFIXES = {
+        "son", "ley", "ton", "man", "ford", "well", "ridge", "wood", "field", "ers", "ez", "ini", "ova", "berg", "stein",
+        "dale", "more", "worth", "by", "ham", "ing", "ard", "ick", "ett", "ow", "in", "on", "es", "ald", "ay"};
+
+    private static final String[] FIRST_NAMES = {
+        "James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael", "Linda", "William", "Elizabeth", "David",
+        "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah", "Charles", "Karen", "Maria", "Wei",
+        "Ahmed", "Yuki", "Olga", "Pedro", "Fatima", "Lars", "Priya", "Kwame"};
+
+    private static final String[] CITIES = {
+        "Madison", "Sun Prairie", "McFarland", "Windsor", "Monona", "Waunakee", "Middleton", "Verona", "Fitchburg"};
+
+    private static final String[] STREETS = {
+        "Main St.", "Oak Ave.", "Lake St.", "Park Blvd.", "Elm St.", "Cherry Ln.", "Maple Dr.", "River Rd."};
+
+    private static final String[] PET_NAMES = {
+        "Leo", "Basil", "Rosy", "Jewel", "Iggy", "George", "Samantha", "Max", "Lucky", "Mulligan", "Freddy", "Sly",
+        "Bella", "Charlie", "Luna", "Lucy", "Daisy", "Milo", "Coco", "Rocky", "Oscar", "Nala", "Simba", "Pepper"};
+
+    private static final String[] VISIT_DESCRIPTIONS = {
+        "rabies shot", "neutered", "spayed", "annual checkup", "dental cleaning", "vaccination", "skin allergy",
+        "ear infection", "limping", "weight check"};
+
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private int ownerCount = 1000;
+
+    private int lastNameCount = 500;
+
+    private double lastNameSkew = 1.0;
+
+    private double petsPerOwner = 2.0;
+
+    private double visitsPerPet = 4.0;
+
+    private long seed = 42;
+
+    private int batchSize = 1000;
+
+    public SyntheticDataGenerator(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Set the number of owners to generate.
+     */
+    public void setOwnerCount(int ownerCount) {
+        this.ownerCount = ownerCount;
+    }
+
+    /**
+     * Set the number of distinct last names, at most {@link #getMaxLastNameCount()}.
+     */
+    public void setLastNameCount(int lastNameCount) {
+        this.lastNameCount = lastNameCount;
+    }
+
+    /**
+     * Set the exponent of the Zipf distribution of last names: 0 is uniform, higher values make the most common names
+     * more dominant.
+     */
+    public void setLastNameSkew(double lastNameSkew) {
+        this.lastNameSkew = lastNameSkew;
+    }
+
+    /**
+     * Set the mean number of pets per owner.
+     */
+    public void setPetsPerOwner(double petsPerOwner) {
+        this.petsPerOwner = petsPerOwner;
+    }
+
+    /**
+     * Set the mean number of visits per pet.
+     */
+    public void setVisitsPerPet(double visitsPerPet) {
+        this.visitsPerPet = visitsPerPet;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Set the number of rows sent to the database per JDBC batch.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public static int getMaxLastNameCount() {
+        return LAST_NAME_PREFIXES.length * LAST_NAME_SUFFIXES.length * LAST_NAME_PREFIXES.length;
+    }
+
+    /**
+     * Return the last name of the given popularity rank; rank 0 is the most common last name.
+     */
+    public static String lastName(int rank) {
+        int prefixes = LAST_NAME_PREFIXES.length;
+        int suffixes = LAST_NAME_SUFFIXES.length;
+        String name = LAST_NAME_PREFIXES[rank % prefixes] + LAST_NAME_SUFFIXES[rank / prefixes % suffixes];
+        int extra = rank / (prefixes * suffixes);
+        if (extra > 0) {
+            name = name + "-" + LAST_NAME_PREFIXES[extra] + LAST_NAME_SUFFIXES[extra % suffixes];
+        }
+        return name;
+    }
+
+    /**
+     * Generate the configured number of owners, with their pets and visits.
+     */
+    public void generate() {
+        Assert.isTrue(this.lastNameCount > 0 && this.lastNameCount <= getMaxLastNameCount(),
+            "lastNameCount must be between 1 and " + getMaxLastNameCount());
+        Random random = new Random(this.seed);
+        double[] lastNameDistribution = zipfDistribution(this.lastNameCount, this.lastNameSkew);
+        List<Integer> typeIds = this.jdbcTemplate.queryForList("SELECT id FROM types ORDER BY id", Integer.class);
+        Assert.notEmpty(typeIds, "pet types must be populated before generating data");
+        LocalDate today = new LocalDate(2016, 1, 1);
+
+        int ownerId = nextId("owners");
+        int petId = nextId("pets");
+        List<Object[]> owners = new ArrayList<>();
+        List<Object[]> pets = new ArrayList<>();
+        List<Object[]> visits = new ArrayList<>();
+        long petTotal = 0;
+        long visitTotal = 0;
+        for (int i = 0; i < this.ownerCount; i++, ownerId++) {
+            owners.add(new Object[]{ownerId, pick(random, FIRST_NAMES),
+                lastName(sample(random, lastNameDistribution)),
+                (random.nextInt(9999) + 1) + " " + pick(random, STREETS), pick(random, CITIES),
+                String.format("608555%04d", random.nextInt(10000))});
+            int petCount = geometric(random, this.petsPerOwner);
+            for (int p = 0; p < petCount; p++, petId++) {
+                LocalDate birthDate = today.minusDays(random.nextInt(15 * 365));
+                pets.add(new Object[]{petId, pick(random, PET_NAMES), Date.valueOf(birthDate.toString()),
+                    typeIds.get(random.nextInt(typeIds.size())), ownerId});
+                int age = Math.max(1, Days.daysBetween(birthDate, today).getDays());
+                int visitCount = geometric(random, this.visitsPerPet);
+                for (int v = 0; v < visitCount; v++) {
+                    LocalDate visitDate = birthDate.plusDays(random.nextInt(age));
+                    visits.add(new Object[]{petId, Date.valueOf(visitDate.toString()), pick(random, VISIT_DESCRIPTIONS)});
+                }
+                petTotal++;
+                visitTotal += visitCount;
+            }
+            if (owners.size() + pets.size() + visits.size() >= this.batchSize) {
+                flush(owners, pets, visits);
+            }
+        }
+        flush(owners, pets, visits);
+        advanceIdSequences();
+        logger.info("Generated {} owners, {} pets and {} visits", this.ownerCount, petTotal, visitTotal);
+    }
+
+    private int nextId(String table) {
+        Integer maxId = this.jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Integer.class);
+        return (maxId != null ? maxId + 1 : 1);
+    }
+
+    /**
+     * Moves the ids allocated from <code>id_sequences</code> by the <code>pooled-ids</code> profile past the generated
+     * rows, which are inserted with explicit ids or through the identity columns.
+     */
+    private void advanceIdSequences() {
+        for (String table : new String[]{"owners", "pets", "visits"}) {
+            int nextId = nextId(table);
+            this.jdbcTemplate.update("UPDATE id_sequences SET next_val = ? WHERE sequence_name = ? AND next_val < ?",
+                nextId, table, nextId);
+        }
+    }
+
+    private void flush(List<Object[]> owners, List<Object[]> pets, List<Object[]> visits) {
+        if (!owners.isEmpty()) {
+            this.jdbcTemplate.batchUpdate(
+                "INSERT INTO owners (id, first_name, last_name, address, city, telephone) VALUES (?, ?, ?, ?, ?, ?)",
+                owners);
+            owners.clear();
+        }
+        if (!pets.isEmpty()) {
+            this.jdbcTemplate.batchUpdate(
+                "INSERT INTO pets (id, name, birth_date, type_id, owner_id) VALUES (?, ?, ?, ?, ?)", pets);
+            pets.clear();
+        }
+        if (!visits.isEmpty()) {
+            this.jdbcTemplate.batchUpdate(
+                "INSERT INTO visits (pet_id, visit_date, description) VALUES (?, ?, ?)", visits);
+            visits.clear();
+        }
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * Cumulative Zipf distribution over the given number of ranks: the probability of rank k is proportional to
+     * 1 / (k + 1)^exponent.
+     */
+    static double[] zipfDistribution(int ranks, double exponent) {
+        double[] cumulative = new double[ranks];
+        double sum = 0;
+        for (int k = 0; k < ranks; k++) {
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < ranks; k++) {
+            cumulative[k] /= sum;
+        }
+        return cumulative;
+    }
+
+    static int sample(Random random, double[] cumulativeDistribution) {
+        double value = random.nextDouble();
+        int low = 0;
+        int high = cumulativeDistribution.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulativeDistribution[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Draw from a geometric distribution over 0, 1, 2, ... with the given mean.
+     */
+    static int geometric(Random random, double mean) {
+        if (mean <= 0) {
+            return 0;
+        }
+        double p = 1.0 / (mean + 1.0);
+        return (int) Math.floor(Math.log(1.0 - random.nextDouble()) / Math.log(1.0 - p));
+    }
+
+    /**
+     * Generate data into the data source of <code>spring/datasource-config.xml</code>, which is not initialized unless
+     * the <code>jdbc.initialize</code> system property says so. Cardinalities are read from
+     * the system properties <code>generator.owners</code>, <code>generator.lastNames</code>,
+     * <code>generator.lastNameSkew</code>, <code>generator.petsPerOwner</code>, <code>generator.visitsPerPet</code>,
+     * <code>generator.seed</code> and <code>generator.batchSize</code>.
+     */
+    public static void main(String[] args) {
+        if (System.getProperty("jdbc.initialize") == null) {
+            System.setProperty("jdbc.initialize", "false");
+        }
+        GenericXmlApplicationContext context = new GenericXmlApplicationContext("classpath:spring/datasource-config.xml");
+        try {
+            SyntheticDataGenerator generator = new SyntheticDataGenerator(context.getBean(DataSource.class));
+            generator.setOwnerCount(Integer.getInteger("generator.owners", 1000));
+            generator.setLastNameCount(Integer.getInteger("generator.lastNames", 500));
+            generator.setLastNameSkew(Double.parseDouble(System.getProperty("generator.lastNameSkew", "1.0")));
+            generator.setPetsPerOwner(Double.parseDouble(System.getProperty("generator.petsPerOwner", "2.0")));
+            generator.setVisitsPerPet(Double.parseDouble(System.getProperty("generator.visitsPerPet", "4.0")));
+            generator.setSeed(Long.getLong("generator.seed", 42L));
+            generator.setBatchSize(Integer.getInteger("generator.batchSize", 1000));
+            generator.generate();
+        } finally {
+            context.close();
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.web;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Runs filters that buffer the whole response and rewrite it once the filter chain returns, such as the Dandelion
+ * filters, so that they also work for requests processed asynchronously.
+ * <p/>
+ * Such filters assume the response is complete when the chain returns. When a handler starts async processing, the
+ * chain returns before anything is rendered, and the filters would commit an empty response; when the result is later
+ * rendered in the async dispatch, the filters would write their output into the response wrapper they created during
+ * the first dispatch, which nobody flushes any more. This filter therefore keeps the filters from writing to the
+ * response while async processing has started, and hands them the original response again in the async dispatch.
+ */
+public class AsyncAwareBufferingFilter implements Filter {
+
+    private static final String ORIGINAL_RESPONSE_ATTRIBUTE = AsyncAwareBufferingFilter.class.getName() + ".RESPONSE";
+
+    private final Filter[] filters;
+
+    public AsyncAwareBufferingFilter(Filter... filters) {
+        this.filters = filters;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        for (Filter filter : this.filters) {
+            filter.init(filterConfig);
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+        throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest) || !(response instanceof HttpServletResponse)) {
+            new BufferingFilterChain(chain).doFilter(request, response);
+            return;
+        }
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        if (httpRequest.getDispatcherType() == DispatcherType.ASYNC) {
+            Object originalResponse = httpRequest.getAttribute(ORIGINAL_RESPONSE_ATTRIBUTE);
+            if (originalResponse != null) {
+                httpRequest.removeAttribute(ORIGINAL_RESPONSE_ATTRIBUTE);
+                httpResponse = (HttpServletResponse) originalResponse;
+            }
+        }
+        new BufferingFilterChain(chain).doFilter(httpRequest, new AsyncGuardedResponse(httpRequest, httpResponse));
+        if (httpRequest.isAsyncStarted()) {
+            httpRequest.setAttribute(ORIGINAL_RESPONSE_ATTRIBUTE, httpResponse);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        for (Filter filter : this.filters) {
+            filter.destroy();
+        }
+    }
+
+
+    /**
+     * Passes the request through the buffering filters, then on to the rest of the original chain.
+     */
+    private class BufferingFilterChain implements FilterChain {
+
+        private final FilterChain chain;
+
+        private int position;
+
+        BufferingFilterChain(FilterChain chain) {
+            this.chain = chain;
+        }
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response) throws IOException, ServletException {
+            if (this.position < filters.length) {
+                filters[this.position++].doFilter(request, response, this);
+            } else {
+                this.chain.doFilter(request, response);
+            }
+        }
+    }
+
+
+    /**
+     * Response that discards the body and content length written by the buffering filters after async processing has
+     * started, i.e. when the response is not complete yet.
+     */
+    private static class AsyncGuardedResponse extends HttpServletResponseWrapper {
+
+        private final HttpServletRequest request;
+
+        AsyncGuardedResponse(HttpServletRequest request, HttpServletResponse response) {
+            super(response);
+            this.request = request;
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            if (!this.request.isAsyncStarted()) {
+                super.setContentLength(len);
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (this.request.isAsyncStarted()) {
+                return new ServletOutputStream() {
+                    @Override
+                    public void write(int b) {
+                    }
+                };
+            }
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (this.request.isAsyncStarted()) {
+                return new PrintWriter(new Writer() {
+                    @Override
+                    public void write(char[] chars, int off, int len) {
+                    }
+
+                    @Override
+                    public void flush() {
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                });
+            }
+            return super.getWriter();
+        }
+    }
+
+}
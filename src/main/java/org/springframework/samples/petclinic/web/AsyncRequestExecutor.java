@@ -0,0 +1,183 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.web;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.samples.petclinic.util.LatencyHistogram;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Bounded thread pool on which the asynchronous request handlers ({@link java.util.concurrent.Callable} return values)
+ * run, instead of on the servlet container's worker threads.
+ * <p/>
+ * Once all threads are busy and the queue is full, further tasks are rejected rather than piling up, and the request
+ * is answered with a 503 (see <code>mvc-core-config.xml</code>). The executor is exposed as a JMX MBean: besides the
+ * pool and queue sizes, which can be changed at runtime, it records how long tasks waited in the queue and how long
+ * they ran, in nanoseconds, and how many were rejected.
+ */
+@ManagedResource("petclinic:type=AsyncRequestExecutor")
+public class AsyncRequestExecutor extends ThreadPoolTaskExecutor {
+
+    private static final long serialVersionUID = 1L;
+
+    private final LatencyHistogram queueWaitTime = new LatencyHistogram();
+
+    private final LatencyHistogram executionTime = new LatencyHistogram();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    @Override
+    public void execute(Runnable task) {
+        try {
+            super.execute(monitor(task));
+        } catch (TaskRejectedException ex) {
+            this.rejectedCount.increment();
+            throw ex;
+        }
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        try {
+            return super.submit(monitor(task));
+        } catch (TaskRejectedException ex) {
+            this.rejectedCount.increment();
+            throw ex;
+        }
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        try {
+            return super.submit(monitor(task));
+        } catch (TaskRejectedException ex) {
+            this.rejectedCount.increment();
+            throw ex;
+        }
+    }
+
+    private Runnable monitor(Runnable task) {
+        long submitted = System.nanoTime();
+        return () -> {
+            long started = System.nanoTime();
+            this.queueWaitTime.record(started - submitted);
+            try {
+                task.run();
+            } finally {
+                this.executionTime.record(System.nanoTime() - started);
+            }
+        };
+    }
+
+    private <T> Callable<T> monitor(Callable<T> task) {
+        long submitted = System.nanoTime();
+        return () -> {
+            long started = System.nanoTime();
+            this.queueWaitTime.record(started - submitted);
+            try {
+                return task.call();
+            } finally {
+                this.executionTime.record(System.nanoTime() - started);
+            }
+        };
+    }
+
+    @Override
+    @ManagedAttribute
+    public int getCorePoolSize() {
+        return super.getCorePoolSize();
+    }
+
+    @Override
+    @ManagedAttribute
+    public void setCorePoolSize(int corePoolSize) {
+        super.setCorePoolSize(corePoolSize);
+    }
+
+    @Override
+    @ManagedAttribute
+    public int getMaxPoolSize() {
+        return super.getMaxPoolSize();
+    }
+
+    @Override
+    @ManagedAttribute
+    public void setMaxPoolSize(int maxPoolSize) {
+        super.setMaxPoolSize(maxPoolSize);
+    }
+
+    @Override
+    @ManagedAttribute
+    public int getPoolSize() {
+        return super.getPoolSize();
+    }
+
+    @Override
+    @ManagedAttribute
+    public int getActiveCount() {
+        return super.getActiveCount();
+    }
+
+    @ManagedAttribute
+    public int getQueueSize() {
+        return getThreadPoolExecutor().getQueue().size();
+    }
+
+    @ManagedAttribute
+    public long getCompletedTaskCount() {
+        return getThreadPoolExecutor().getCompletedTaskCount();
+    }
+
+    @ManagedAttribute
+    public long getRejectedTaskCount() {
+        return this.rejectedCount.sum();
+    }
+
+    @ManagedAttribute
+    public long getQueueWaitTimeMean() {
+        return this.queueWaitTime.snapshot().getMean();
+    }
+
+    @ManagedAttribute
+    public long getQueueWaitTimeP99() {
+        return this.queueWaitTime.snapshot().getP99();
+    }
+
+    @ManagedAttribute
+    public long getExecutionTimeMean() {
+        return this.executionTime.snapshot().getMean();
+    }
+
+    @ManagedAttribute
+    public long getExecutionTimeP99() {
+        return this.executionTime.snapshot().getP99();
+    }
+
+    @ManagedOperation
+    public void resetStatistics() {
+        this.queueWaitTime.reset();
+        this.executionTime.reset();
+        this.rejectedCount.reset();
+    }
+
+}
@@ -15,8 +15,10 @@
  */
 package org.springframework.samples.petclinic.web;
 
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import javax.validation.Valid;
 
@@ -31,6 +33,7 @@ import org.springframework.web.bind.annotation.InitBinder;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.ModelAndView;
 
 /**
@@ -43,6 +46,7 @@ import org.springframework.web.servlet.ModelAndView;
 public class OwnerController {
 
     private static final String VIEWS_OWNER_CREATE_OR_UPDATE_FORM = "owners/createOrUpdateOwnerForm";
+    private static final int OWNERS_PAGE_SIZE = 20;
     private final ClinicService clinicService;
 
 
@@ -79,27 +83,75 @@ public class OwnerController {
         return "owners/findOwners";
     }
 
+    /**
+     * Searches owners by last name one page at a time. The page is positioned with a keyset cursor: either the last
+     * name and id of the owner the page starts after ('afterLastName'/'afterId'), or of the owner it ends before
+     * ('beforeLastName'/'beforeId').
+     * <p/>
+     * The search runs on the async request executor configured in <code>mvc-core-config.xml</code>, so that a slow
+     * query does not hold on to a container thread.
+     */
     @RequestMapping(value = "/owners", method = RequestMethod.GET)
-    public String processFindForm(Owner owner, BindingResult result, Map<String, Object> model) {
+    public Callable<String> processFindForm(Owner owner, BindingResult result,
+                                            @RequestParam(value = "afterLastName", required = false) String afterLastName,
+                                            @RequestParam(value = "afterId", required = false) Integer afterId,
+                                            @RequestParam(value = "beforeLastName", required = false) String beforeLastName,
+                                            @RequestParam(value = "beforeId", required = false) Integer beforeId,
+                                            Map<String, Object> model) {
+        return () -> findOwners(owner, result, afterLastName, afterId, beforeLastName, beforeId, model);
+    }
 
+    private String findOwners(Owner owner, BindingResult result, String afterLastName, Integer afterId,
+                              String beforeLastName, Integer beforeId, Map<String, Object> model) {
         // allow parameterless GET request for /owners to return all records
         if (owner.getLastName() == null) {
             owner.setLastName(""); // empty string signifies broadest possible search
         }
 
-        // find owners by last name
-        Collection<Owner> results = this.clinicService.findOwnerByLastName(owner.getLastName());
-        if (results.isEmpty()) {
+        // find one page of owners by last name, reading one more row to know whether there is a further page
+        boolean backwards = beforeLastName != null && beforeId != null;
+        boolean firstPage = !backwards && (afterLastName == null || afterId == null);
+        List<Owner> results;
+        boolean hasPrevious;
+        boolean hasNext;
+        if (backwards) {
+            results = new ArrayList<>(this.clinicService.findOwnerByLastNameBefore(
+                owner.getLastName(), beforeLastName, beforeId, OWNERS_PAGE_SIZE + 1));
+            hasPrevious = results.size() > OWNERS_PAGE_SIZE;
+            if (hasPrevious) {
+                results.remove(0);
+            }
+            hasNext = true;
+        } else {
+            results = new ArrayList<>(this.clinicService.findOwnerByLastName(
+                owner.getLastName(), afterLastName, afterId, OWNERS_PAGE_SIZE + 1));
+            hasNext = results.size() > OWNERS_PAGE_SIZE;
+            if (hasNext) {
+                results.remove(results.size() - 1);
+            }
+            hasPrevious = !firstPage;
+        }
+
+        if (results.isEmpty() && firstPage) {
             // no owners found
             result.rejectValue("lastName", "notFound", "not found");
             return "owners/findOwners";
-        } else if (results.size() == 1) {
+        } else if (results.size() == 1 && firstPage && !hasNext) {
             // 1 owner found
-            owner = results.iterator().next();
+            owner = results.get(0);
             return "redirect:/owners/" + owner.getId();
         } else {
             // multiple owners found
             model.put("selections", results);
+            model.put("lastName", owner.getLastName());
+            if (hasPrevious && !results.isEmpty()) {
+                model.put("previousLastName", results.get(0).getLastName());
+                model.put("previousId", results.get(0).getId());
+            }
+            if (hasNext && !results.isEmpty()) {
+                model.put("nextLastName", results.get(results.size() - 1).getLastName());
+                model.put("nextId", results.get(results.size() - 1).getId());
+            }
             return "owners/ownersList";
         }
     }
@@ -123,16 +175,19 @@ public class OwnerController {
     }
 
     /**
-     * Custom handler for displaying an owner.
+     * Custom handler for displaying an owner, along with the most recent visits of each pet; the full visit history of
+     * a pet is paged through by {@link VisitController#showVisits}. The owner is loaded on the async request executor.
      *
      * @param ownerId the ID of the owner to display
      * @return a ModelMap with the model attributes for the view
      */
     @RequestMapping("/owners/{ownerId}")
-    public ModelAndView showOwner(@PathVariable("ownerId") int ownerId) {
-        ModelAndView mav = new ModelAndView("owners/ownerDetails");
-        mav.addObject(this.clinicService.findOwnerById(ownerId));
-        return mav;
+    public Callable<ModelAndView> showOwner(@PathVariable("ownerId") int ownerId) {
+        return () -> {
+            ModelAndView mav = new ModelAndView("owners/ownerDetails");
+            mav.addObject(this.clinicService.findOwnerSummaryById(ownerId, ClinicService.SUMMARY_RECENT_VISITS));
+            return mav;
+        };
     }
 
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.web;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.model.Pet;
+import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.repository.OwnerExportHandler;
+import org.springframework.samples.petclinic.service.ClinicService;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+/**
+ * Exports all owners with their pets and visits, one row per visit, as CSV or as newline-delimited JSON. The rows are
+ * written to the response as they are read from the database, so the whole data set is never held in memory.
+ */
+@Controller
+public class OwnerExportController {
+
+    private static final String[] COLUMNS = {"ownerId", "firstName", "lastName", "address", "city", "telephone",
+        "petId", "petName", "birthDate", "type", "visitId", "visitDate", "description"};
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final ClinicService clinicService;
+
+
+    @Autowired
+    public OwnerExportController(ClinicService clinicService) {
+        this.clinicService = clinicService;
+    }
+
+    @RequestMapping(value = "/owners/export.csv", method = RequestMethod.GET)
+    public void exportCsv(HttpServletResponse response) throws IOException {
+        response.setContentType("text/csv;charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"owners.csv\"");
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        writeCsvLine(writer, COLUMNS);
+        try {
+            this.clinicService.exportOwners(new OwnerExportHandler() {
+                @Override
+                public void handleRow(Owner owner, Pet pet, Visit visit) {
+                    try {
+                        writeCsvLine(writer, values(owner, pet, visit));
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        writer.flush();
+    }
+
+    @RequestMapping(value = "/owners/export.ndjson", method = RequestMethod.GET)
+    public void exportNdjson(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson;charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"owners.ndjson\"");
+        final JsonGenerator generator = JSON_FACTORY.createGenerator(
+            new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8)));
+        // separate the root-level objects by newlines instead of spaces
+        generator.setRootValueSeparator(null);
+        try {
+            this.clinicService.exportOwners(new OwnerExportHandler() {
+                @Override
+                public void handleRow(Owner owner, Pet pet, Visit visit) {
+                    try {
+                        String[] values = values(owner, pet, visit);
+                        generator.writeStartObject();
+                        for (int i = 0; i < COLUMNS.length; i++) {
+                            if (values[i] != null) {
+                                generator.writeStringField(COLUMNS[i], values[i]);
+                            }
+                        }
+                        generator.writeEndObject();
+                        generator.writeRaw('\n');
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        generator.flush();
+    }
+
+    private static String[] values(Owner owner, Pet pet, Visit visit) {
+        String[] values = new String[COLUMNS.length];
+        values[0] = String.valueOf(owner.getId());
+        values[1] = owner.getFirstName();
+        values[2] = owner.getLastName();
+        values[3] = owner.getAddress();
+        values[4] = owner.getCity();
+        values[5] = owner.getTelephone();
+        if (pet != null) {
+            values[6] = String.valueOf(pet.getId());
+            values[7] = pet.getName();
+            values[8] = pet.getBirthDate() != null ? pet.getBirthDate().toString() : null;
+            values[9] = pet.getType() != null ? pet.getType().getName() : null;
+        }
+        if (visit != null) {
+            values[10] = String.valueOf(visit.getId());
+            values[11] = visit.getDate() != null ? visit.getDate().toString() : null;
+            values[12] = visit.getDescription();
+        }
+        return values;
+    }
+
+    private static void writeCsvLine(Writer writer, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = values[i];
+            if (value == null) {
+                continue;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+}
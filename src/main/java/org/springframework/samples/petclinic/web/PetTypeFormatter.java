@@ -18,7 +18,9 @@ package org.springframework.samples.petclinic.web;
 
 import java.text.ParseException;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.Formatter;
@@ -32,6 +34,10 @@ import org.springframework.samples.petclinic.service.ClinicService;
  * - A nice blog entry from Gordon Dickens: http://gordondickens.com/wordpress/2010/09/30/using-spring-3-0-custom-type-converter/
  * <p/>
  * Also see how the bean 'conversionService' has been declared inside /WEB-INF/mvc-core-config.xml
+ * <p/>
+ * Pet types are looked up by name in a hash index. The index is rebuilt whenever {@link ClinicService#findPetTypes()}
+ * hands out a different collection, i.e. whenever the cached pet types have been reloaded, either because the cache
+ * entry expired or because a {@link org.springframework.samples.petclinic.repository.PetTypesChangedEvent} evicted it.
  *
  * @author Mark Fisher
  * @author Juergen Hoeller
@@ -41,6 +47,7 @@ public class PetTypeFormatter implements Formatter<PetType> {
 
     private final ClinicService clinicService;
 
+    private volatile PetTypeIndex index;
 
     @Autowired
     public PetTypeFormatter(ClinicService clinicService) {
@@ -54,13 +61,32 @@ public class PetTypeFormatter implements Formatter<PetType> {
 
     @Override
     public PetType parse(String text, Locale locale) throws ParseException {
-        Collection<PetType> findPetTypes = this.clinicService.findPetTypes();
-        for (PetType type : findPetTypes) {
-            if (type.getName().equals(text)) {
-                return type;
+        Collection<PetType> petTypes = this.clinicService.findPetTypes();
+        PetTypeIndex index = this.index;
+        if (index == null || index.petTypes != petTypes) {
+            index = new PetTypeIndex(petTypes);
+            this.index = index;
+        }
+        PetType type = index.typesByName.get(text);
+        if (type == null) {
+            throw new ParseException("type not found: " + text, 0);
+        }
+        return type;
+    }
+
+
+    private static class PetTypeIndex {
+
+        private final Collection<PetType> petTypes;
+
+        private final Map<String, PetType> typesByName = new HashMap<>();
+
+        PetTypeIndex(Collection<PetType> petTypes) {
+            this.petTypes = petTypes;
+            for (PetType type : petTypes) {
+                this.typesByName.putIfAbsent(type.getName(), type);
             }
         }
-        throw new ParseException("type not found: " + text, 0);
     }
 
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.web;
+
+import java.util.concurrent.Callable;
+
+import org.springframework.samples.petclinic.util.SqlStatistics;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptorAdapter;
+
+/**
+ * Binds the {@link SqlStatistics} of a request, gathered by the {@link SqlStatisticsFilter}, to the thread that runs
+ * the {@link Callable} returned by its handler, so that the statements of the handler count for the request.
+ */
+public class SqlStatisticsCallableInterceptor extends CallableProcessingInterceptorAdapter {
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        SqlStatistics.bind((SqlStatistics) request.getAttribute(SqlStatisticsFilter.STATISTICS_ATTRIBUTE,
+            RequestAttributes.SCOPE_REQUEST));
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        SqlStatistics.bind(null);
+    }
+
+}
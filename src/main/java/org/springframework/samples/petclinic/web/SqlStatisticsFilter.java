@@ -0,0 +1,111 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.web;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.samples.petclinic.util.SqlStatistics;
+import org.springframework.samples.petclinic.util.SqlStatisticsMonitor;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * Gathers the {@link SqlStatistics} of each HTTP request and has the {@link SqlStatisticsMonitor} report the requests
+ * that run too many statements.
+ * <p/>
+ * The statistics of a request that starts async processing follow it: {@link SqlStatisticsCallableInterceptor} binds
+ * them to the thread running the handler's {@link java.util.concurrent.Callable}, and they are reported at the end of
+ * the async dispatch.
+ * <p/>
+ * With <code>responseHeaders</code> set, meant for development, each response carries the number of statements in an
+ * <code>X-SQL-Count</code> header and the database time in a <code>Server-Timing</code> header, which browsers show
+ * in their developer tools. As the headers must be set before the response is committed, the response body is then
+ * buffered until the request ends.
+ */
+public class SqlStatisticsFilter extends OncePerRequestFilter {
+
+    /**
+     * Name of the request attribute holding the statistics of the request.
+     */
+    public static final String STATISTICS_ATTRIBUTE = SqlStatisticsFilter.class.getName() + ".STATISTICS";
+
+    private final SqlStatisticsMonitor monitor;
+
+    private boolean responseHeaders;
+
+    public SqlStatisticsFilter(SqlStatisticsMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    /**
+     * Set whether responses carry the <code>X-SQL-Count</code> and <code>Server-Timing</code> headers.
+     */
+    public void setResponseHeaders(boolean responseHeaders) {
+        this.responseHeaders = responseHeaders;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        SqlStatistics statistics = (SqlStatistics) request.getAttribute(STATISTICS_ATTRIBUTE);
+        if (statistics == null) {
+            if (!this.monitor.isEnabled()) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+            statistics = new SqlStatistics(request.getMethod() + " " + request.getRequestURI());
+            request.setAttribute(STATISTICS_ATTRIBUTE, statistics);
+        }
+        HttpServletResponse responseToUse = response;
+        if (this.responseHeaders && !isAsyncDispatch(request)) {
+            responseToUse = new ContentCachingResponseWrapper(response);
+        }
+
+        SqlStatistics previous = SqlStatistics.bind(statistics);
+        try {
+            filterChain.doFilter(request, responseToUse);
+        } finally {
+            SqlStatistics.bind(previous);
+        }
+
+        if (!isAsyncStarted(request)) {
+            this.monitor.check(statistics);
+            ContentCachingResponseWrapper wrapper =
+                WebUtils.getNativeResponse(responseToUse, ContentCachingResponseWrapper.class);
+            if (wrapper != null) {
+                wrapper.setHeader("X-SQL-Count", Integer.toString(statistics.getStatementCount()));
+                wrapper.setHeader("Server-Timing", String.format(Locale.ROOT, "db;dur=%.3f;desc=\"%d statements\"",
+                    statistics.getElapsedTime() / (double) TimeUnit.MILLISECONDS.toNanos(1),
+                    statistics.getStatementCount()));
+                wrapper.copyBodyToResponse();
+            }
+        }
+    }
+
+}
@@ -16,13 +16,18 @@
 package org.springframework.samples.petclinic.web;
 
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.samples.petclinic.model.Vets;
 import org.springframework.samples.petclinic.service.ClinicService;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.ResponseBody;
 
 /**
  * @author Juergen Hoeller
@@ -35,10 +40,13 @@ public class VetController {
 
     private final ClinicService clinicService;
 
+    private final VetsResponseCache vetsResponseCache;
+
 
     @Autowired
-    public VetController(ClinicService clinicService) {
+    public VetController(ClinicService clinicService, VetsResponseCache vetsResponseCache) {
         this.clinicService = clinicService;
+        this.vetsResponseCache = vetsResponseCache;
     }
 
     @RequestMapping(value = { "/vets.html"})
@@ -51,16 +59,73 @@ public class VetController {
         return "vets/vetList";
     }
 
-    @RequestMapping(value = { "/vets.json", "/vets.xml"})
-    public
-    @ResponseBody
-    Vets showResourcesVetList() {
-        // Here we are returning an object of type 'Vets' rather than a collection of Vet objects
-        // so it is simpler for JSon/Object mapping
-        Vets vets = new Vets();
-        vets.getVetList().addAll(this.clinicService.findVets());
-        return vets;
+    @RequestMapping(value = "/vets.json")
+    public Callable<ResponseEntity<byte[]>> showJsonVetList(
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // loaded on the async request executor, so that API clients polling the vets do not hold container threads
+        return () -> respond(this.vetsResponseCache.getJson(), ifNoneMatch, acceptEncoding);
+    }
+
+    @RequestMapping(value = "/vets.xml")
+    public Callable<ResponseEntity<byte[]>> showXmlVetList(
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return () -> respond(this.vetsResponseCache.getXml(), ifNoneMatch, acceptEncoding);
     }
 
+    /**
+     * Answers with the pre-rendered bytes, gzip-compressed if the client accepts it, or with a 304 when the client
+     * already holds the same variant.
+     */
+    private static ResponseEntity<byte[]> respond(VetsResponseCache.RenderedResponse rendered, String ifNoneMatch,
+                                                  String acceptEncoding) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String eTag = rendered.getETag(gzip);
+        if (matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(eTag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .body(null);
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(rendered.getContentType())
+            .eTag(eTag)
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(rendered.getBody(gzip));
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : StringUtils.commaDelimitedListToStringArray(acceptEncoding)) {
+            String[] parts = coding.split(";");
+            if ("gzip".equalsIgnoreCase(parts[0].trim())) {
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : StringUtils.commaDelimitedListToStringArray(ifNoneMatch)) {
+            candidate = candidate.trim();
+            // If-None-Match uses the weak comparison
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.web;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.transform.stream.StreamResult;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.oxm.Marshaller;
+import org.springframework.samples.petclinic.model.Vet;
+import org.springframework.samples.petclinic.model.Vets;
+import org.springframework.samples.petclinic.service.ClinicService;
+import org.springframework.samples.petclinic.service.VetsCache;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Holds the vet list rendered as JSON and as XML, so that the API clients polling <code>vets.json</code> and
+ * <code>vets.xml</code> are served bytes instead of having the vets marshalled on every request. Each representation
+ * comes with a gzip-compressed variant and a strong ETag per variant.
+ * <p/>
+ * The representations are rendered again only when {@link ClinicService#findVets()} returns another collection than
+ * the one last rendered, that is once per reload of the {@link VetsCache}. Since the ETags are digests of the rendered
+ * bytes, they only change when the vet data does. Concurrent requests may render the same collection twice, which is
+ * harmless.
+ */
+@Component
+public class VetsResponseCache {
+
+    private static final MediaType JSON = MediaType.parseMediaType("application/json;charset=UTF-8");
+
+    private final ClinicService clinicService;
+
+    private final Marshaller marshaller;
+
+    // configured like the JSON message converter of <mvc:annotation-driven/>, so the output does not change
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public VetsResponseCache(ClinicService clinicService, @Qualifier("marshaller") Marshaller marshaller) {
+        this.clinicService = clinicService;
+        this.marshaller = marshaller;
+    }
+
+    public RenderedResponse getJson() throws IOException {
+        return currentSnapshot().json;
+    }
+
+    public RenderedResponse getXml() throws IOException {
+        return currentSnapshot().xml;
+    }
+
+    private Snapshot currentSnapshot() throws IOException {
+        Collection<Vet> vets = this.clinicService.findVets();
+        Snapshot current = this.snapshot;
+        if (current == null || current.vets != vets) {
+            current = render(vets);
+            this.snapshot = current;
+        }
+        return current;
+    }
+
+    private Snapshot render(Collection<Vet> vets) throws IOException {
+        // Here we are using an object of type 'Vets' rather than a collection of Vet objects
+        // so it is simpler for JSon/Object and Object-Xml mapping
+        Vets wrapper = new Vets();
+        wrapper.getVetList().addAll(vets);
+        byte[] json = this.objectMapper.writeValueAsBytes(wrapper);
+        ByteArrayOutputStream xml = new ByteArrayOutputStream();
+        this.marshaller.marshal(wrapper, new StreamResult(xml));
+        return new Snapshot(vets, new RenderedResponse(JSON, json), new RenderedResponse(MediaType.APPLICATION_XML,
+            xml.toByteArray()));
+    }
+
+
+    private static class Snapshot {
+
+        private final Collection<Vet> vets;
+
+        private final RenderedResponse json;
+
+        private final RenderedResponse xml;
+
+        Snapshot(Collection<Vet> vets, RenderedResponse json, RenderedResponse xml) {
+            this.vets = vets;
+            this.json = json;
+            this.xml = xml;
+        }
+    }
+
+
+    /**
+     * One rendered representation of the vet list, as is and gzip-compressed, each with its strong ETag.
+     */
+    public static class RenderedResponse {
+
+        private final MediaType contentType;
+
+        private final byte[] body;
+
+        private final String eTag;
+
+        private final byte[] gzippedBody;
+
+        private final String gzippedETag;
+
+        RenderedResponse(MediaType contentType, byte[] body) throws IOException {
+            this.contentType = contentType;
+            this.body = body;
+            this.eTag = eTag(body);
+            ByteArrayOutputStream gzipped = new ByteArrayOutputStream(body.length / 4);
+            try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+                out.write(body);
+            }
+            this.gzippedBody = gzipped.toByteArray();
+            this.gzippedETag = eTag(this.gzippedBody);
+        }
+
+        private static String eTag(byte[] bytes) {
+            return "\"" + DigestUtils.md5DigestAsHex(bytes) + "\"";
+        }
+
+        public MediaType getContentType() {
+            return this.contentType;
+        }
+
+        public byte[] getBody(boolean gzipped) {
+            return gzipped ? this.gzippedBody : this.body;
+        }
+
+        public String getETag(boolean gzipped) {
+            return gzipped ? this.gzippedETag : this.eTag;
+        }
+    }
+
+}
@@ -20,6 +20,7 @@ import java.util.Map;
 import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.samples.petclinic.model.Pet;
 import org.springframework.samples.petclinic.model.Visit;
 import org.springframework.samples.petclinic.service.ClinicService;
@@ -31,6 +32,7 @@ import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 
 /**
  * @author Juergen Hoeller
@@ -41,6 +43,8 @@ import org.springframework.web.bind.annotation.RequestMethod;
 @Controller
 public class VisitController {
 
+    private static final int VISITS_PAGE_SIZE = 20;
+
     private final ClinicService clinicService;
 
 
@@ -89,9 +93,16 @@ public class VisitController {
         }
     }
 
+    /**
+     * Shows one page of the visit history of a pet, most recent first.
+     *
+     * @param petId the ID of the pet
+     * @param page  the zero-based page number
+     */
     @RequestMapping(value = "/owners/*/pets/{petId}/visits", method = RequestMethod.GET)
-    public String showVisits(@PathVariable int petId, Map<String, Object> model) {
-        model.put("visits", this.clinicService.findPetById(petId).getVisits());
+    public String showVisits(@PathVariable int petId, @RequestParam(value = "page", defaultValue = "0") int page,
+                             Map<String, Object> model) {
+        model.put("visits", this.clinicService.findVisitsByPetId(petId, new PageRequest(Math.max(page, 0), VISITS_PAGE_SIZE)));
         return "visitList";
     }
 
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.web;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joda.time.LocalDate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.samples.petclinic.model.Pet;
+import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.service.ClinicService;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+/**
+ * Bulk import of visits from the CSV exports of practice-management systems.
+ * <p/>
+ * Each line holds <code>petId,yyyy-MM-dd,description</code>, where the description is the rest of the line; an optional
+ * header line and blank lines are skipped. The request body is read as a stream and saved in chunks of
+ * {@link #CHUNK_SIZE} visits, each in its own transaction, so memory use does not depend on the size of the import. When
+ * a line cannot be parsed or a chunk is rejected by the database, the import stops and the response tells how many
+ * visits have been saved before.
+ */
+@Controller
+public class VisitImportController {
+
+    static final int CHUNK_SIZE = 1000;
+
+    private final ClinicService clinicService;
+
+
+    @Autowired
+    public VisitImportController(ClinicService clinicService) {
+        this.clinicService = clinicService;
+    }
+
+    @RequestMapping(value = "/visits/import", method = RequestMethod.POST, consumes = {"text/csv", "text/plain"})
+    public ResponseEntity<String> importVisits(Reader body) throws IOException {
+        BufferedReader reader = new BufferedReader(body);
+        List<Visit> chunk = new ArrayList<>(CHUNK_SIZE);
+        int imported = 0;
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty() || (lineNumber == 1 && isHeader(line))) {
+                continue;
+            }
+            try {
+                chunk.add(parseVisit(line));
+            } catch (IllegalArgumentException ex) {
+                return rejected(imported, "line " + lineNumber + ": " + ex.getMessage());
+            }
+            if (chunk.size() == CHUNK_SIZE) {
+                if (!saveChunk(chunk)) {
+                    return rejected(imported, "visits up to line " + lineNumber + " refer to unknown pets");
+                }
+                imported += chunk.size();
+                chunk = new ArrayList<>(CHUNK_SIZE);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            if (!saveChunk(chunk)) {
+                return rejected(imported, "visits up to line " + lineNumber + " refer to unknown pets");
+            }
+            imported += chunk.size();
+        }
+        return new ResponseEntity<>("Imported " + imported + " visits", HttpStatus.OK);
+    }
+
+    private boolean saveChunk(List<Visit> chunk) {
+        try {
+            this.clinicService.saveVisits(chunk);
+            return true;
+        } catch (DataIntegrityViolationException ex) {
+            return false;
+        }
+    }
+
+    private static boolean isHeader(String line) {
+        return !Character.isDigit(line.trim().charAt(0));
+    }
+
+    private static Visit parseVisit(String line) {
+        String[] fields = line.split(",", 3);
+        if (fields.length < 2) {
+            throw new IllegalArgumentException("expected petId,date,description");
+        }
+        Pet pet = new Pet();
+        try {
+            pet.setId(Integer.valueOf(fields[0].trim()));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("invalid pet id '" + fields[0] + "'");
+        }
+        Visit visit = new Visit();
+        visit.setPet(pet);
+        visit.setDate(LocalDate.parse(fields[1].trim()));
+        visit.setDescription(fields.length > 2 ? fields[2].trim() : null);
+        return visit;
+    }
+
+    private static ResponseEntity<String> rejected(int imported, String reason) {
+        return new ResponseEntity<>("Imported " + imported + " visits, then stopped at " + reason,
+            HttpStatus.BAD_REQUEST);
+    }
+
+}
@@ -5,6 +5,7 @@ DROP TABLE visits IF EXISTS;
 DROP TABLE pets IF EXISTS;
 DROP TABLE types IF EXISTS;
 DROP TABLE owners IF EXISTS;
+DROP TABLE id_sequences IF EXISTS;
 
 
 CREATE TABLE vets (
@@ -61,4 +62,9 @@ CREATE TABLE visits (
   description VARCHAR(255)
 );
 ALTER TABLE visits ADD CONSTRAINT fk_visits_pets FOREIGN KEY (pet_id) REFERENCES pets (id);
-CREATE INDEX visits_pet_id ON visits (pet_id);
+CREATE INDEX visits_pet_id ON visits (pet_id, visit_date);
+
+CREATE TABLE id_sequences (
+  sequence_name VARCHAR(30) PRIMARY KEY,
+  next_val      BIGINT NOT NULL
+);
@@ -51,3 +51,11 @@ INSERT INTO visits VALUES (1, 7, '2013-01-01', 'rabies shot');
 INSERT INTO visits VALUES (2, 8, '2013-01-02', 'rabies shot');
 INSERT INTO visits VALUES (3, 8, '2013-01-03', 'neutered');
 INSERT INTO visits VALUES (4, 7, '2013-01-04', 'spayed');
+
+-- first ids handed out by the pooled id allocation of the 'pooled-ids' profile, see business-config.xml
+INSERT INTO id_sequences SELECT 'vets', COALESCE(MAX(id), 0) + 1 FROM vets;
+INSERT INTO id_sequences SELECT 'specialties', COALESCE(MAX(id), 0) + 1 FROM specialties;
+INSERT INTO id_sequences SELECT 'types', COALESCE(MAX(id), 0) + 1 FROM types;
+INSERT INTO id_sequences SELECT 'owners', COALESCE(MAX(id), 0) + 1 FROM owners;
+INSERT INTO id_sequences SELECT 'pets', COALESCE(MAX(id), 0) + 1 FROM pets;
+INSERT INTO id_sequences SELECT 'visits', COALESCE(MAX(id), 0) + 1 FROM visits;
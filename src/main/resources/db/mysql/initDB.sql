@@ -61,5 +61,11 @@ CREATE TABLE IF NOT EXISTS visits (
   pet_id INT(4) UNSIGNED NOT NULL,
   visit_date DATE,
   description VARCHAR(255),
+  INDEX(pet_id, visit_date),
   FOREIGN KEY (pet_id) REFERENCES pets(id)
 ) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS id_sequences (
+  sequence_name VARCHAR(30) NOT NULL PRIMARY KEY,
+  next_val BIGINT NOT NULL
+) engine=InnoDB;
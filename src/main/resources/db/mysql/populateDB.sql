@@ -51,3 +51,11 @@ INSERT IGNORE INTO visits VALUES (1, 7, '2010-03-04', 'rabies shot');
 INSERT IGNORE INTO visits VALUES (2, 8, '2011-03-04', 'rabies shot');
 INSERT IGNORE INTO visits VALUES (3, 8, '2009-06-04', 'neutered');
 INSERT IGNORE INTO visits VALUES (4, 7, '2008-09-04', 'spayed');
+
+-- first ids handed out by the pooled id allocation of the 'pooled-ids' profile, see business-config.xml
+INSERT IGNORE INTO id_sequences SELECT 'vets', COALESCE(MAX(id), 0) + 1 FROM vets;
+INSERT IGNORE INTO id_sequences SELECT 'specialties', COALESCE(MAX(id), 0) + 1 FROM specialties;
+INSERT IGNORE INTO id_sequences SELECT 'types', COALESCE(MAX(id), 0) + 1 FROM types;
+INSERT IGNORE INTO id_sequences SELECT 'owners', COALESCE(MAX(id), 0) + 1 FROM owners;
+INSERT IGNORE INTO id_sequences SELECT 'pets', COALESCE(MAX(id), 0) + 1 FROM pets;
+INSERT IGNORE INTO id_sequences SELECT 'visits', COALESCE(MAX(id), 0) + 1 FROM visits;
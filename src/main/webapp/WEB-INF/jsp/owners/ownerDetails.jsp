@@ -73,6 +73,17 @@
                                 <td><c:out value="${visit.description}"/></td>
                             </tr>
                         </c:forEach>
+                        <c:if test="${pet.visitCount > fn:length(pet.visits)}">
+                            <tr>
+                                <td colspan="2">
+                                    <spring:url value="/owners/{ownerId}/pets/{petId}/visits.html" var="visitsUrl">
+                                        <spring:param name="ownerId" value="${owner.id}"/>
+                                        <spring:param name="petId" value="${pet.id}"/>
+                                    </spring:url>
+                                    <a href="${fn:escapeXml(visitsUrl)}">All <c:out value="${pet.visitCount}"/> visits</a>
+                                </td>
+                            </tr>
+                        </c:if>
                         <tr>
                             <td>
                                 <spring:url value="/owners/{ownerId}/pets/{petId}/edit" var="petUrl">
@@ -28,6 +28,34 @@
                 <c:out value="${pet.name}"/>
             </c:forEach>
         </datatables:column>
-        <datatables:export type="pdf" cssClass="btn" cssStyle="height: 25px;"/>
+        <%-- exports the rows shown, i.e. the current page; all owners are exported as CSV or NDJSON below --%>
+        <datatables:export type="pdf" label="PDF (this page)" fileName="owners-page" cssClass="btn"
+                           cssStyle="height: 25px;"/>
     </datatables:table>
+
+    <ul class="pager">
+        <c:if test="${not empty previousId}">
+            <spring:url value="/owners.html" var="previousUrl">
+                <spring:param name="lastName" value="${lastName}"/>
+                <spring:param name="beforeLastName" value="${previousLastName}"/>
+                <spring:param name="beforeId" value="${previousId}"/>
+            </spring:url>
+            <li class="previous"><a href="${fn:escapeXml(previousUrl)}">Previous</a></li>
+        </c:if>
+        <c:if test="${not empty nextId}">
+            <spring:url value="/owners.html" var="nextUrl">
+                <spring:param name="lastName" value="${lastName}"/>
+                <spring:param name="afterLastName" value="${nextLastName}"/>
+                <spring:param name="afterId" value="${nextId}"/>
+            </spring:url>
+            <li class="next"><a href="${fn:escapeXml(nextUrl)}">Next</a></li>
+        </c:if>
+    </ul>
+
+    <spring:url value="/owners/export.csv" var="csvUrl"/>
+    <spring:url value="/owners/export.ndjson" var="ndjsonUrl"/>
+    <p>Export all owners, pets and visits:
+        <a href="${fn:escapeXml(csvUrl)}">CSV</a> |
+        <a href="${fn:escapeXml(ndjsonUrl)}">NDJSON</a>
+    </p>
 </petclinic:layout>
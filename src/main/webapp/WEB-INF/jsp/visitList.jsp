@@ -0,0 +1,32 @@
+<%@ page session="false" trimDirectiveWhitespaces="true" %>
+<%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
+<%@ taglib prefix="joda" uri="http://www.joda.org/joda/time/tags" %>
+<%@ taglib prefix="petclinic" tagdir="/WEB-INF/tags" %>
+
+<petclinic:layout pageName="owners">
+    <h2>Visits<c:if test="${not empty visits.content}"> of <c:out value="${visits.content[0].pet.name}"/></c:if></h2>
+
+    <table class="table table-striped">
+        <thead>
+        <tr>
+            <th>Visit Date</th>
+            <th>Description</th>
+        </tr>
+        </thead>
+        <c:forEach var="visit" items="${visits.content}">
+            <tr>
+                <td><joda:format value="${visit.date}" pattern="yyyy-MM-dd"/></td>
+                <td><c:out value="${visit.description}"/></td>
+            </tr>
+        </c:forEach>
+    </table>
+
+    <ul class="pager">
+        <c:if test="${!visits.first}">
+            <li class="previous"><a href="?page=${visits.number - 1}">Previous</a></li>
+        </c:if>
+        <c:if test="${!visits.last}">
+            <li class="next"><a href="?page=${visits.number + 1}">Next</a></li>
+        </c:if>
+    </ul>
+</petclinic:layout>
@@ -0,0 +1,92 @@
+package org.springframework.samples.petclinic.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.beans.support.MutableSortDefinition;
+import org.springframework.beans.support.PropertyComparator;
+
+/**
+ * Measures the collection accesses made while rendering <code>ownerDetails.jsp</code>, using the cached sorted views of
+ * {@link Owner#getPets()} and {@link Pet#getVisits()} against the former copy and reflective sort on every call. Run
+ * with {@code mvn -Pbenchmarks test -DskipTests -Djmh.includes=OwnerRender}; the default <code>gc</code> profiler
+ * reports the allocation per render.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OwnerRenderBenchmark {
+
+    @Param({"20"})
+    private int petCount;
+
+    @Param({"50"})
+    private int visitsPerPet;
+
+    private Owner owner;
+
+    @Setup
+    public void setup() {
+        this.owner = new Owner();
+        LocalDate date = new LocalDate(2010, 1, 1);
+        for (int i = 0; i < this.petCount; i++) {
+            Pet pet = new Pet();
+            pet.setId(i);
+            pet.setName("Pet" + ((i * 7) % this.petCount));
+            for (int j = 0; j < this.visitsPerPet; j++) {
+                Visit visit = new Visit();
+                visit.setId(i * this.visitsPerPet + j);
+                visit.setDate(date.plusDays((j * 13) % this.visitsPerPet));
+                pet.addVisit(visit);
+            }
+            this.owner.addPet(pet);
+        }
+    }
+
+    @Benchmark
+    public void cachedSortedViews(Blackhole blackhole) {
+        // the page iterates the pets, then each pet's visits, and compares their number with the visit count
+        for (Pet pet : this.owner.getPets()) {
+            for (Visit visit : pet.getVisits()) {
+                blackhole.consume(visit);
+            }
+            blackhole.consume(pet.getVisits().size());
+        }
+    }
+
+    @Benchmark
+    public void sortOnEveryCall(Blackhole blackhole) {
+        for (Pet pet : sort(this.owner.getPetsInternal(), "name", true)) {
+            for (Visit visit : sort(pet.getVisitsInternal(), "date", false)) {
+                blackhole.consume(visit);
+            }
+            blackhole.consume(sort(pet.getVisitsInternal(), "date", false).size());
+        }
+    }
+
+    private static <T> List<T> sort(Collection<T> source, String property, boolean ascending) {
+        List<T> sorted = new ArrayList<>(source);
+        PropertyComparator.sort(sorted, new MutableSortDefinition(property, ascending, ascending));
+        return Collections.unmodifiableList(sorted);
+    }
+
+}
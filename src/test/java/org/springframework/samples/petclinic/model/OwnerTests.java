@@ -0,0 +1,108 @@
+package org.springframework.samples.petclinic.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Test class for the pet name lookups of {@link Owner}
+ */
+public class OwnerTests {
+
+    @Test
+    public void shouldFindPetByNameIgnoringCase() {
+        Owner owner = new Owner();
+        Pet leo = pet(1, "Leo");
+        owner.addPet(leo);
+
+        assertThat(owner.getPet("Leo")).isSameAs(leo);
+        assertThat(owner.getPet("LEO")).isSameAs(leo);
+        assertThat(owner.getPet("leo", true)).isSameAs(leo);
+        assertThat(owner.getPet("Basil")).isNull();
+    }
+
+    @Test
+    public void shouldIgnoreNewPetsOnlyWhenAsked() {
+        Owner owner = new Owner();
+        Pet basil = pet(null, "Basil");
+        owner.addPet(basil);
+
+        assertThat(owner.getPet("basil")).isSameAs(basil);
+        assertThat(owner.getPet("basil", true)).isNull();
+    }
+
+    @Test
+    public void shouldPreferSavedPetOverNewPetWithTheSameName() {
+        Owner owner = new Owner();
+        Pet saved = pet(1, "Leo");
+        owner.addPet(saved);
+        assertThat(owner.getPet("leo")).isSameAs(saved);
+
+        owner.addPet(pet(null, "LEO"));
+
+        assertThat(owner.getPet("leo", true)).isSameAs(saved);
+    }
+
+    @Test
+    public void shouldFollowPetRenames() {
+        Owner owner = new Owner();
+        Pet leo = pet(1, "Leo");
+        Pet max = pet(2, "Max");
+        owner.addPet(leo);
+        owner.addPet(max);
+        assertThat(owner.getPet("leo")).isSameAs(leo);
+        assertThat(owner.getPets()).containsExactly(leo, max);
+
+        leo.setName("Rosy");
+
+        assertThat(owner.getPet("leo")).isNull();
+        assertThat(owner.getPet("rosy")).isSameAs(leo);
+        assertThat(owner.getPets()).containsExactly(max, leo);
+    }
+
+    @Test
+    public void shouldKeepOtherPetWithTheOldNameAfterRename() {
+        Owner owner = new Owner();
+        Pet first = pet(1, "Lucky");
+        Pet second = pet(2, "Lucky");
+        owner.addPet(first);
+        owner.addPet(second);
+        Pet indexed = owner.getPet("lucky");
+
+        indexed.setName("Sly");
+
+        assertThat(owner.getPet("lucky")).isNotNull().isNotSameAs(indexed);
+        assertThat(owner.getPet("sly")).isSameAs(indexed);
+    }
+
+    @Test
+    public void shouldIndexPetsSetByThePersistenceProvider() {
+        Owner owner = new Owner();
+        Set<Pet> pets = new HashSet<>();
+        Pet samantha = pet(7, "Samantha");
+        samantha.setOwner(owner);
+        pets.add(samantha);
+        owner.setPetsInternal(pets);
+
+        assertThat(owner.getPet("samantha", true)).isSameAs(samantha);
+
+        // a collection filled in place, as Hibernate does when initializing it
+        Pet max = pet(8, "Max");
+        max.setOwner(owner);
+        pets.add(max);
+
+        assertThat(owner.getPet("MAX", true)).isSameAs(max);
+        assertThat(owner.getPet("samantha")).isSameAs(samantha);
+    }
+
+    private static Pet pet(Integer id, String name) {
+        Pet pet = new Pet();
+        pet.setId(id);
+        pet.setName(name);
+        return pet;
+    }
+
+}
@@ -0,0 +1,117 @@
+package org.springframework.samples.petclinic.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+/**
+ * Test class for the cached sorted views of {@link Owner#getPets()}, {@link Pet#getVisits()} and
+ * {@link Vet#getSpecialties()}
+ */
+public class SortedViewTests {
+
+    @Test
+    public void shouldSortPetsByNameIgnoringCaseAndResortAfterAddingOne() {
+        Owner owner = new Owner();
+        owner.addPet(pet("max"));
+        owner.addPet(pet("Basil"));
+        List<Pet> pets = owner.getPets();
+
+        assertThat(pets).extracting("name").containsExactly("Basil", "max");
+        assertThat(owner.getPets()).isSameAs(pets);
+
+        owner.addPet(pet("Leo"));
+        assertThat(owner.getPets()).extracting("name").containsExactly("Basil", "Leo", "max");
+    }
+
+    @Test
+    public void shouldSortVisitsMostRecentFirstAndResortAfterAddingOne() {
+        Pet pet = pet("Leo");
+        pet.addVisit(visit(2013, 1, 2));
+        pet.addVisit(visit(2013, 1, 4));
+        List<Visit> visits = pet.getVisits();
+
+        assertThat(visits).extracting("date").containsExactly(new LocalDate(2013, 1, 4), new LocalDate(2013, 1, 2));
+        assertThat(pet.getVisits()).isSameAs(visits);
+
+        pet.addVisit(visit(2013, 1, 3));
+        assertThat(pet.getVisits()).extracting("date")
+            .containsExactly(new LocalDate(2013, 1, 4), new LocalDate(2013, 1, 3), new LocalDate(2013, 1, 2));
+    }
+
+    @Test
+    public void shouldSortSpecialtiesByNameAndResortAfterAddingOne() {
+        Vet vet = new Vet();
+        vet.addSpecialty(specialty("surgery"));
+        vet.addSpecialty(specialty("dentistry"));
+        List<Specialty> specialties = vet.getSpecialties();
+
+        assertThat(specialties).extracting("name").containsExactly("dentistry", "surgery");
+        assertThat(vet.getSpecialties()).isSameAs(specialties);
+
+        vet.addSpecialty(specialty("radiology"));
+        assertThat(vet.getSpecialties()).extracting("name").containsExactly("dentistry", "radiology", "surgery");
+    }
+
+    @Test
+    public void shouldResortVisitsAfterTheDateOfOneChanged() {
+        Pet pet = pet("Leo");
+        Visit first = visit(2013, 1, 2);
+        pet.addVisit(first);
+        pet.addVisit(visit(2013, 1, 4));
+        assertThat(pet.getVisits().get(1)).isSameAs(first);
+
+        first.setDate(new LocalDate(2013, 1, 6));
+
+        assertThat(pet.getVisits()).extracting("date")
+            .containsExactly(new LocalDate(2013, 1, 6), new LocalDate(2013, 1, 4));
+    }
+
+    @Test
+    public void shouldResortPetsAfterOneWasRenamed() {
+        Owner owner = new Owner();
+        Pet basil = pet("Basil");
+        owner.addPet(basil);
+        owner.addPet(pet("Leo"));
+        assertThat(owner.getPets()).extracting("name").containsExactly("Basil", "Leo");
+
+        basil.setName("Rosy");
+
+        assertThat(owner.getPets()).extracting("name").containsExactly("Leo", "Rosy");
+    }
+
+    @Test
+    public void shouldResortSpecialtiesAfterOneWasRenamed() {
+        Vet vet = new Vet();
+        Specialty dentistry = specialty("dentistry");
+        vet.addSpecialty(dentistry);
+        vet.addSpecialty(specialty("radiology"));
+        assertThat(vet.getSpecialties()).extracting("name").containsExactly("dentistry", "radiology");
+
+        dentistry.setName("surgery");
+
+        assertThat(vet.getSpecialties()).extracting("name").containsExactly("radiology", "surgery");
+    }
+
+    private static Pet pet(String name) {
+        Pet pet = new Pet();
+        pet.setName(name);
+        return pet;
+    }
+
+    private static Visit visit(int year, int month, int day) {
+        Visit visit = new Visit();
+        visit.setDate(new LocalDate(year, month, day));
+        return visit;
+    }
+
+    private static Specialty specialty(String name) {
+        Specialty specialty = new Specialty();
+        specialty.setName(name);
+        return specialty;
+    }
+
+}
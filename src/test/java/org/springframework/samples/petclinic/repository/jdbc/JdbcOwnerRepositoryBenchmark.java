@@ -0,0 +1,97 @@
+package org.springframework.samples.petclinic.repository.jdbc;
+
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.samples.petclinic.model.Owner;
+
+/**
+ * Compares the owner lookups of {@link JdbcOwnerRepositoryImpl}, compiled once into {@link JdbcMappingSqlQuery}
+ * objects with a {@link JdbcOwnerRowMapper}, against the former {@link NamedParameterJdbcTemplate} calls that parse
+ * the SQL, build a parameter map and introspect {@link Owner} with a {@link BeanPropertyRowMapper} on every call.
+ * Run with {@code mvn -Pbenchmarks test -DskipTests -Djmh.includes=JdbcOwner}; the <code>gc</code> profiler reports
+ * the allocation per call as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JdbcOwnerRepositoryBenchmark {
+
+    private static final String OWNER_COLUMNS = "SELECT id, first_name, last_name, address, city, telephone FROM owners ";
+
+    private EmbeddedDatabase database;
+
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    private JdbcMappingSqlQuery<Owner> ownerById;
+
+    private JdbcMappingSqlQuery<Owner> ownersByLastName;
+
+    @Setup
+    public void setup() {
+        this.database = new EmbeddedDatabaseBuilder()
+            .generateUniqueName(true)
+            .setType(EmbeddedDatabaseType.HSQL)
+            .addScripts("db/hsqldb/initDB.sql", "db/hsqldb/populateDB.sql")
+            .build();
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(this.database);
+        this.ownerById = new JdbcMappingSqlQuery<>(this.database, OWNER_COLUMNS + "WHERE id = ?",
+            new JdbcOwnerRowMapper(), Types.INTEGER);
+        this.ownersByLastName = new JdbcMappingSqlQuery<>(this.database, OWNER_COLUMNS + "WHERE last_name like ?",
+            new JdbcOwnerRowMapper(), Types.VARCHAR);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.database.shutdown();
+    }
+
+    @Benchmark
+    public Owner ownerByIdPrecompiled() {
+        return this.ownerById.findObject(6);
+    }
+
+    @Benchmark
+    public Owner ownerByIdNamedParameters() {
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", 6);
+        return this.namedParameterJdbcTemplate.queryForObject(OWNER_COLUMNS + "WHERE id= :id", params,
+            BeanPropertyRowMapper.newInstance(Owner.class));
+    }
+
+    @Benchmark
+    public List<Owner> ownersByLastNamePrecompiled() {
+        return this.ownersByLastName.execute("Davis%");
+    }
+
+    @Benchmark
+    public List<Owner> ownersByLastNameNamedParameters() {
+        Map<String, Object> params = new HashMap<>();
+        params.put("lastName", "Davis%");
+        return this.namedParameterJdbcTemplate.query(OWNER_COLUMNS + "WHERE last_name like :lastName", params,
+            BeanPropertyRowMapper.newInstance(Owner.class));
+    }
+
+}
@@ -0,0 +1,134 @@
+package org.springframework.samples.petclinic.repository.jdbc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Date;
+import java.util.Collection;
+
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.model.Pet;
+import org.springframework.samples.petclinic.util.SqlStatisticsDataSource;
+import org.springframework.samples.petclinic.util.SqlStatisticsRule;
+
+/**
+ * Test class for {@link JdbcOwnerRepositoryImpl}, guarding against N+1 query regressions when loading owners.
+ */
+public class JdbcOwnerRepositoryImplTests {
+
+    @Rule
+    public final SqlStatisticsRule sqlStatistics = new SqlStatisticsRule();
+
+    private EmbeddedDatabase database;
+
+    private SqlStatisticsDataSource dataSource;
+
+    private JdbcOwnerRepositoryImpl ownerRepository;
+
+    @Before
+    public void setup() {
+        this.database = new EmbeddedDatabaseBuilder()
+            .generateUniqueName(true)
+            .setType(EmbeddedDatabaseType.HSQL)
+            .addScripts("db/hsqldb/initDB.sql", "db/hsqldb/populateDB.sql")
+            .build();
+        this.dataSource = new SqlStatisticsDataSource(this.database);
+        JdbcReferenceDataRegistry referenceData = new JdbcReferenceDataRegistry(new JdbcTemplate(this.dataSource));
+        this.ownerRepository = new JdbcOwnerRepositoryImpl(this.dataSource, new NamedParameterJdbcTemplate(this.dataSource),
+            referenceData);
+        // reference data is loaded once and shared by all requests
+        referenceData.getPetTypes();
+    }
+
+    @After
+    public void tearDown() {
+        this.database.shutdown();
+    }
+
+    @Test
+    public void shouldIssueFixedNumberOfStatementsWhateverTheNumberOfMatchingOwners() {
+        // one query for the owners, one for their pets and visits
+        assertThat(countStatementsForLastName("Franklin")).isEqualTo(2);
+        assertThat(countStatementsForLastName("Davis")).isEqualTo(2);
+        assertThat(countStatementsForLastName("")).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldLoadPetsAndVisitsOfAllMatchingOwners() {
+        Collection<Owner> owners = this.ownerRepository.findByLastName("");
+        assertThat(owners).hasSize(10);
+
+        Owner jean = null;
+        for (Owner owner : owners) {
+            if (owner.getId() == 6) {
+                jean = owner;
+            }
+        }
+        assertThat(jean).isNotNull();
+        assertThat(jean.getPets()).hasSize(2);
+        Pet samantha = jean.getPet("Samantha");
+        assertThat(samantha.getType().getName()).isEqualTo("cat");
+        assertThat(samantha.getVisits()).hasSize(2);
+        assertThat(samantha.getOwner()).isSameAs(jean);
+    }
+
+    @Test
+    public void shouldChunkOwnerIdsWhenMoreOwnersMatchThanFitInOneBatch() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(this.database);
+        int extraOwners = JdbcOwnerRepositoryImpl.OWNER_ID_BATCH_SIZE + 1;
+        for (int i = 0; i < extraOwners; i++) {
+            jdbcTemplate.update("INSERT INTO owners (first_name, last_name, address, city, telephone) " +
+                "VALUES ('First', 'Batch', 'Street', 'City', '0123456789')");
+            jdbcTemplate.update("INSERT INTO pets (name, birth_date, type_id, owner_id) " +
+                "SELECT 'Pet', '2012-01-01', 2, MAX(id) FROM owners");
+        }
+
+        this.sqlStatistics.reset();
+        Collection<Owner> owners = this.ownerRepository.findByLastName("Batch");
+
+        assertThat(owners).hasSize(extraOwners);
+        for (Owner owner : owners) {
+            assertThat(owner.getPets()).hasSize(1);
+        }
+        // one query for the owners, two chunks of pets and visits
+        assertThat(this.sqlStatistics.getStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldLoadOnlyRecentVisitsWhateverTheLengthOfTheHistory() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(this.database);
+        for (int i = 0; i < 100; i++) {
+            jdbcTemplate.update("INSERT INTO visits (pet_id, visit_date, description) VALUES (7, ?, 'checkup')",
+                new Date(new LocalDate(2014, 1, 1).plusDays(i).toDate().getTime()));
+        }
+
+        this.sqlStatistics.reset();
+        Owner jean = this.ownerRepository.findSummaryById(6, 3);
+
+        // one query for the owner, one for the pets and their visit counts, one for the recent visits of each pet
+        assertThat(this.sqlStatistics.getStatementCount()).isEqualTo(4);
+        // the owner, its two pets, three visits of Samantha and both visits of Max
+        assertThat(this.sqlStatistics.getStatistics().getRowCount()).isEqualTo(8);
+        Pet samantha = jean.getPet("Samantha");
+        assertThat(samantha.getVisitCount()).isEqualTo(102);
+        assertThat(samantha.getVisits()).extracting("date")
+            .containsExactly(new LocalDate(2014, 4, 10), new LocalDate(2014, 4, 9), new LocalDate(2014, 4, 8));
+        assertThat(jean.getPet("Max").getVisitCount()).isEqualTo(2);
+    }
+
+    private int countStatementsForLastName(String lastName) {
+        this.sqlStatistics.reset();
+        assertThat(this.ownerRepository.findByLastName(lastName)).isNotEmpty();
+        return this.sqlStatistics.getStatementCount();
+    }
+
+}
@@ -0,0 +1,92 @@
+package org.springframework.samples.petclinic.repository.jdbc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.orm.ObjectRetrievalFailureException;
+import org.springframework.samples.petclinic.model.Pet;
+import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.util.SqlStatisticsDataSource;
+import org.springframework.samples.petclinic.util.SqlStatisticsRule;
+
+/**
+ * Test class for {@link JdbcPetRepositoryImpl}, checking that a pet is loaded together with its owner and the owner's
+ * other pets in a single statement.
+ */
+public class JdbcPetRepositoryImplTests {
+
+    @Rule
+    public final SqlStatisticsRule sqlStatistics = new SqlStatisticsRule();
+
+    private EmbeddedDatabase database;
+
+    private SqlStatisticsDataSource dataSource;
+
+    private JdbcPetRepositoryImpl petRepository;
+
+    @Before
+    public void setup() {
+        this.database = new EmbeddedDatabaseBuilder()
+            .generateUniqueName(true)
+            .setType(EmbeddedDatabaseType.HSQL)
+            .addScripts("db/hsqldb/initDB.sql", "db/hsqldb/populateDB.sql")
+            .build();
+        this.dataSource = new SqlStatisticsDataSource(this.database);
+        JdbcReferenceDataRegistry referenceData = new JdbcReferenceDataRegistry(new JdbcTemplate(this.dataSource));
+        this.petRepository = new JdbcPetRepositoryImpl(this.dataSource, new JdbcVisitRepositoryImpl(this.dataSource),
+            referenceData);
+        // reference data is loaded once and shared by all requests
+        referenceData.getPetTypes();
+        this.sqlStatistics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        this.database.shutdown();
+    }
+
+    @Test
+    public void shouldLoadPetWithTypeVisitsAndOwnerInOneStatement() {
+        Pet samantha = this.petRepository.findById(7);
+
+        assertThat(this.sqlStatistics.getStatementCount()).isEqualTo(1);
+        // one row for Max, one per visit of Samantha
+        assertThat(this.sqlStatistics.getStatistics().getRowCount()).isEqualTo(3);
+        assertThat(samantha.getName()).isEqualTo("Samantha");
+        assertThat(samantha.getType().getName()).isEqualTo("cat");
+        assertThat(samantha.getVisits()).hasSize(2);
+        for (Visit visit : samantha.getVisits()) {
+            assertThat(visit.getPet()).isSameAs(samantha);
+        }
+        assertThat(samantha.getOwner().getId()).isEqualTo(6);
+        assertThat(samantha.getOwner().getFirstName()).isEqualTo("Jean");
+        assertThat(samantha.getOwner().getCity()).isEqualTo("Monona");
+        assertThat(samantha.getOwner().getPets()).extracting("name").containsExactly("Max", "Samantha");
+        Pet max = samantha.getOwner().getPet("Max");
+        assertThat(max.getOwner()).isSameAs(samantha.getOwner());
+        assertThat(max.getType().getName()).isEqualTo("cat");
+        // only the visits of the requested pet are read
+        assertThat(max.getVisits()).isEmpty();
+    }
+
+    @Test
+    public void shouldLoadPetWithoutVisits() {
+        Pet leo = this.petRepository.findById(1);
+
+        assertThat(leo.getVisits()).isEmpty();
+        assertThat(leo.getOwner().getLastName()).isEqualTo("Franklin");
+    }
+
+    @Test(expected = ObjectRetrievalFailureException.class)
+    public void shouldFailForUnknownPet() {
+        this.petRepository.findById(42);
+    }
+
+}
@@ -0,0 +1,119 @@
+package org.springframework.samples.petclinic.repository.jdbc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.orm.ObjectRetrievalFailureException;
+import org.springframework.samples.petclinic.model.PetType;
+import org.springframework.samples.petclinic.util.SqlStatisticsDataSource;
+import org.springframework.samples.petclinic.util.SqlStatisticsRule;
+
+/**
+ * Test class for {@link JdbcReferenceDataRegistry}
+ */
+public class JdbcReferenceDataRegistryTests {
+
+    @Rule
+    public final SqlStatisticsRule sqlStatistics = new SqlStatisticsRule();
+
+    private EmbeddedDatabase database;
+
+    private SqlStatisticsDataSource dataSource;
+
+    private JdbcReferenceDataRegistry referenceData;
+
+    @Before
+    public void setup() {
+        this.database = new EmbeddedDatabaseBuilder()
+            .generateUniqueName(true)
+            .setType(EmbeddedDatabaseType.HSQL)
+            .addScripts("db/hsqldb/initDB.sql", "db/hsqldb/populateDB.sql")
+            .build();
+        this.dataSource = new SqlStatisticsDataSource(this.database);
+        this.referenceData = new JdbcReferenceDataRegistry(new JdbcTemplate(this.dataSource));
+    }
+
+    @After
+    public void tearDown() {
+        this.database.shutdown();
+    }
+
+    @Test
+    public void shouldLoadEachKindOfReferenceDataOnlyOnce() {
+        assertThat(this.referenceData.getPetType(1).getName()).isEqualTo("cat");
+        assertThat(this.referenceData.getPetType(6).getName()).isEqualTo("hamster");
+        assertThat(this.referenceData.getPetTypes()).extracting("name")
+            .containsExactly("bird", "cat", "dog", "hamster", "lizard", "snake");
+        assertThat(this.referenceData.getSpecialty(3).getName()).isEqualTo("dentistry");
+        assertThat(this.referenceData.getSpecialties()).hasSize(3);
+
+        assertThat(this.sqlStatistics.getStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldReloadAfterInvalidation() {
+        PetType cat = this.referenceData.getPetType(1);
+        new JdbcTemplate(this.database).update("UPDATE types SET name = 'kitten' WHERE id = 1");
+        assertThat(this.referenceData.getPetType(1)).isSameAs(cat);
+
+        this.referenceData.invalidate();
+
+        assertThat(this.referenceData.getPetType(1).getName()).isEqualTo("kitten");
+    }
+
+    @Test
+    public void shouldReloadOnceWhenAskedForAnUnknownId() {
+        this.referenceData.getPetTypes();
+        new JdbcTemplate(this.database).update("INSERT INTO types VALUES (7, 'ferret')");
+
+        assertThat(this.referenceData.getPetType(7).getName()).isEqualTo("ferret");
+        assertThat(this.referenceData.getPetTypes()).hasSize(7);
+    }
+
+    @Test
+    public void shouldNotReloadAgainWithinTheMissReloadInterval() {
+        this.referenceData.setMissReloadInterval(60000);
+        this.referenceData.getPetTypes();
+        this.sqlStatistics.reset();
+
+        for (int i = 0; i < 10; i++) {
+            try {
+                this.referenceData.getPetType(42 + i);
+            } catch (ObjectRetrievalFailureException ex) {
+                // expected
+            }
+        }
+
+        assertThat(this.sqlStatistics.getStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldReloadAgainOnceTheMissReloadIntervalElapsed() {
+        this.referenceData.setMissReloadInterval(0);
+        this.referenceData.getPetTypes();
+        this.sqlStatistics.reset();
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                this.referenceData.getPetType(42);
+            } catch (ObjectRetrievalFailureException ex) {
+                // expected
+            }
+        }
+
+        assertThat(this.sqlStatistics.getStatementCount()).isEqualTo(2);
+    }
+
+    @Test(expected = ObjectRetrievalFailureException.class)
+    public void shouldFailForAnIdThatDoesNotExist() {
+        this.referenceData.getSpecialty(42);
+    }
+
+}
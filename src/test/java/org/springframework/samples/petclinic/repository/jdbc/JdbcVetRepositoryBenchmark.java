@@ -0,0 +1,119 @@
+package org.springframework.samples.petclinic.repository.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.samples.petclinic.model.Specialty;
+import org.springframework.samples.petclinic.model.Vet;
+import org.springframework.samples.petclinic.util.EntityUtils;
+
+/**
+ * Compares loading all vets with the joined {@link JdbcVetSpecialtyExtractor} against the former approach of one
+ * {@code vet_specialties} query per vet. Run with {@code mvn -Pbenchmarks test -DskipTests -Djmh.includes=Vet}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JdbcVetRepositoryBenchmark {
+
+    private static final int SPECIALTY_COUNT = 20;
+
+    @Param({"10000"})
+    private int vetCount;
+
+    private EmbeddedDatabase database;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private JdbcVetRepositoryImpl vetRepository;
+
+    @Setup
+    public void setup() {
+        this.database = new EmbeddedDatabaseBuilder()
+            .generateUniqueName(true)
+            .setType(EmbeddedDatabaseType.HSQL)
+            .addScript("db/hsqldb/initDB.sql")
+            .build();
+        this.jdbcTemplate = new JdbcTemplate(this.database);
+        this.vetRepository = new JdbcVetRepositoryImpl(this.jdbcTemplate, new JdbcReferenceDataRegistry(this.jdbcTemplate));
+
+        List<Object[]> specialties = new ArrayList<>();
+        for (int i = 1; i <= SPECIALTY_COUNT; i++) {
+            specialties.add(new Object[]{i, "specialty" + i});
+        }
+        this.jdbcTemplate.batchUpdate("INSERT INTO specialties VALUES (?, ?)", specialties);
+
+        List<Object[]> vets = new ArrayList<>();
+        List<Object[]> vetSpecialties = new ArrayList<>();
+        for (int i = 1; i <= this.vetCount; i++) {
+            vets.add(new Object[]{i, "First" + i, "Last" + (i % 1000)});
+            // zero to three specialties per vet
+            for (int j = 0; j < i % 4; j++) {
+                vetSpecialties.add(new Object[]{i, (i + j) % SPECIALTY_COUNT + 1});
+            }
+        }
+        this.jdbcTemplate.batchUpdate("INSERT INTO vets VALUES (?, ?, ?)", vets);
+        this.jdbcTemplate.batchUpdate("INSERT INTO vet_specialties VALUES (?, ?)", vetSpecialties);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.database.shutdown();
+    }
+
+    @Benchmark
+    public Collection<Vet> joinedExtraction() {
+        return this.vetRepository.findAll();
+    }
+
+    @Benchmark
+    public Collection<Vet> queryPerVet() {
+        List<Vet> vets = this.jdbcTemplate.query(
+            "SELECT id, first_name, last_name FROM vets ORDER BY last_name,first_name",
+            BeanPropertyRowMapper.newInstance(Vet.class));
+        List<Specialty> specialties = this.jdbcTemplate.query(
+            "SELECT id, name FROM specialties",
+            BeanPropertyRowMapper.newInstance(Specialty.class));
+        for (Vet vet : vets) {
+            List<Integer> vetSpecialtiesIds = this.jdbcTemplate.query(
+                "SELECT specialty_id FROM vet_specialties WHERE vet_id=?",
+                new RowMapper<Integer>() {
+                    @Override
+                    public Integer mapRow(ResultSet rs, int row) throws SQLException {
+                        return rs.getInt(1);
+                    }
+                },
+                vet.getId());
+            for (int specialtyId : vetSpecialtiesIds) {
+                vet.addSpecialty(EntityUtils.getById(specialties, Specialty.class, specialtyId));
+            }
+        }
+        return vets;
+    }
+
+}
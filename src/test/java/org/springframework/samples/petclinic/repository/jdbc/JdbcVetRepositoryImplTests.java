@@ -0,0 +1,81 @@
+package org.springframework.samples.petclinic.repository.jdbc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.samples.petclinic.model.Specialty;
+import org.springframework.samples.petclinic.model.Vet;
+import org.springframework.samples.petclinic.util.EntityUtils;
+import org.springframework.samples.petclinic.util.SqlStatisticsDataSource;
+import org.springframework.samples.petclinic.util.SqlStatisticsRule;
+
+/**
+ * Test class for {@link JdbcVetRepositoryImpl}, guarding against N+1 query regressions when loading vets.
+ */
+public class JdbcVetRepositoryImplTests {
+
+    @Rule
+    public final SqlStatisticsRule sqlStatistics = new SqlStatisticsRule();
+
+    private EmbeddedDatabase database;
+
+    private SqlStatisticsDataSource dataSource;
+
+    private JdbcVetRepositoryImpl vetRepository;
+
+    @Before
+    public void setup() {
+        this.database = new EmbeddedDatabaseBuilder()
+            .generateUniqueName(true)
+            .setType(EmbeddedDatabaseType.HSQL)
+            .addScripts("db/hsqldb/initDB.sql", "db/hsqldb/populateDB.sql")
+            .build();
+        this.dataSource = new SqlStatisticsDataSource(this.database);
+        JdbcReferenceDataRegistry referenceData = new JdbcReferenceDataRegistry(new JdbcTemplate(this.dataSource));
+        this.vetRepository = new JdbcVetRepositoryImpl(new JdbcTemplate(this.dataSource), referenceData);
+        // reference data is loaded once and shared by all requests
+        referenceData.getSpecialties();
+        this.sqlStatistics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        this.database.shutdown();
+    }
+
+    @Test
+    public void shouldLoadAllVetsWithASingleStatement() {
+        List<Vet> vets = new ArrayList<>(this.vetRepository.findAll());
+
+        assertThat(vets).hasSize(6);
+        assertThat(this.sqlStatistics.getStatementCount()).isEqualTo(1);
+        assertThat(vets.get(0).getLastName()).isEqualTo("Carter");
+        assertThat(vets.get(0).getNrOfSpecialties()).isEqualTo(0);
+        assertThat(vets.get(5).getLastName()).isEqualTo("Stevens");
+    }
+
+    @Test
+    public void shouldShareSpecialtyInstancesBetweenVets() {
+        List<Vet> vets = new ArrayList<>(this.vetRepository.findAll());
+
+        Vet douglas = EntityUtils.getById(vets, Vet.class, 3);
+        Vet ortega = EntityUtils.getById(vets, Vet.class, 4);
+        assertThat(douglas.getNrOfSpecialties()).isEqualTo(2);
+        assertThat(douglas.getSpecialties().get(0).getName()).isEqualTo("dentistry");
+        Specialty surgery = douglas.getSpecialties().get(1);
+        assertThat(surgery.getName()).isEqualTo("surgery");
+        assertThat(ortega.getSpecialties()).containsExactly(surgery);
+        assertThat(ortega.getSpecialties().get(0)).isSameAs(surgery);
+    }
+
+}
@@ -0,0 +1,65 @@
+package org.springframework.samples.petclinic.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collection;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.model.Pet;
+import org.springframework.samples.petclinic.model.PetType;
+import org.springframework.samples.petclinic.repository.jpa.HibernateStatisticsMonitor;
+
+/**
+ * <p> Base class for the {@link ClinicService} integration tests of the JPA based profiles, adding the checks that
+ * rely on the Hibernate statistics. </p>
+ *
+ * @see AbstractClinicServiceTests AbstractClinicServiceTests for more details.
+ */
+public abstract class AbstractClinicServiceJpaTests extends AbstractClinicServiceTests {
+
+    @Autowired
+    private HibernateStatisticsMonitor statistics;
+
+    @Before
+    public void enableStatistics() {
+        // off by default, see data-access.properties
+        this.statistics.setStatisticsEnabled(true);
+    }
+
+    @Test
+    public void shouldServePetTypesFromTheSecondLevelCache() {
+        this.clinicService.findPetTypes();
+        this.statistics.clear();
+
+        Pet samantha = this.clinicService.findPetById(7);
+
+        assertThat(samantha.getType().getName()).isEqualTo("cat");
+        assertThat(this.statistics.getRegionHitRatio(PetType.class.getName())).isEqualTo(1.0);
+        assertThat(this.statistics.getSecondLevelCacheMissCount()).isZero();
+    }
+
+    @Test
+    public void shouldLoadOwnersPetsTypesAndVisitsInABoundedNumberOfStatements() {
+        this.clinicService.findPetTypes();
+
+        assertThat(statementsToLoad("Davis")).isEqualTo(3);
+        // 10 owners, 13 pets and their visits
+        assertThat(statementsToLoad("")).isEqualTo(3);
+    }
+
+    private long statementsToLoad(String lastName) {
+        this.statistics.clear();
+        Collection<Owner> owners = this.clinicService.findOwnerByLastName(lastName);
+        for (Owner owner : owners) {
+            for (Pet pet : owner.getPets()) {
+                assertThat(pet.getType().getName()).isNotNull();
+                assertThat(pet.getVisits()).isNotNull();
+            }
+        }
+        return this.statistics.getPrepareStatementCount();
+    }
+
+}
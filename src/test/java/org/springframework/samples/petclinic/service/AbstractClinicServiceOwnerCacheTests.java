@@ -0,0 +1,249 @@
+package org.springframework.samples.petclinic.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+import java.util.Locale;
+
+import javax.sql.DataSource;
+
+import org.joda.time.LocalDate;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.model.Pet;
+import org.springframework.samples.petclinic.model.PetType;
+import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.util.CacheStatisticsMonitor;
+import org.springframework.samples.petclinic.util.EntityUtils;
+import org.springframework.samples.petclinic.web.PetTypeFormatter;
+
+/**
+ * Base class for the tests of the <code>owners</code> cache of {@link ClinicService#findOwnerById} and of the
+ * <code>ownerSummaries</code> cache of {@link ClinicService#findOwnerSummaryById}, checking that each write path evicts
+ * the owner it changes so that the next lookup never returns stale data, and of the
+ * <code>petTypes</code> cache of {@link ClinicService#findPetTypes()}, checking that a {@link PetTypesCacheEvictor}
+ * notification reloads it.
+ * <p/>
+ * Unlike {@link AbstractClinicServiceTests}, these tests are not transactional: the cache is transaction aware and
+ * only evicts entries once the writing transaction has committed. Each subclass therefore runs against its own
+ * in-memory database.
+ */
+public abstract class AbstractClinicServiceOwnerCacheTests {
+
+    @Autowired
+    protected ClinicService clinicService;
+
+    @Autowired
+    protected CacheManager cacheManager;
+
+    @Autowired
+    protected CacheStatisticsMonitor cacheStatistics;
+
+    @Autowired
+    protected PetTypesCacheEvictor petTypesCacheEvictor;
+
+    @Autowired
+    protected DataSource dataSource;
+
+    @BeforeClass
+    public static void useOwnDatabase() {
+        System.setProperty("jdbc.url", "jdbc:hsqldb:mem:petclinic-owner-cache-" + System.nanoTime());
+    }
+
+    @AfterClass
+    public static void restoreDatabase() {
+        System.clearProperty("jdbc.url");
+    }
+
+    @Before
+    public void clearCache() {
+        // the ehcache CacheManager is shared by the test contexts of all profiles
+        this.cacheManager.getCache("owners").clear();
+        this.cacheManager.getCache("ownerSummaries").clear();
+    }
+
+    @Test
+    public void shouldServeRepeatedLookupsFromTheCache() {
+        long hits = this.cacheStatistics.getHitCount("owners");
+        long misses = this.cacheStatistics.getMissCount("owners");
+
+        Owner first = this.clinicService.findOwnerById(6);
+        Owner second = this.clinicService.findOwnerById(6);
+
+        assertThat(this.cacheStatistics.getMissCount("owners")).isEqualTo(misses + 1);
+        assertThat(this.cacheStatistics.getHitCount("owners")).isEqualTo(hits + 1);
+        assertThat(second.getLastName()).isEqualTo(first.getLastName());
+        assertThat(second.getPet("Samantha").getVisits()).hasSameSizeAs(first.getPet("Samantha").getVisits());
+    }
+
+    @Test
+    public void shouldHandOutCopiesOfTheCachedOwner() {
+        Owner owner = this.clinicService.findOwnerById(6);
+        owner.setFirstName("Unsaved");
+        owner.addPet(new Pet());
+
+        Owner cached = this.clinicService.findOwnerById(6);
+        assertThat(cached).isNotSameAs(owner);
+        assertThat(cached.getFirstName()).isEqualTo("Jean");
+        assertThat(cached.getPets()).hasSize(2);
+    }
+
+    @Test
+    public void shouldEvictOwnerWhenSaved() {
+        Owner owner = this.clinicService.findOwnerById(1);
+        this.clinicService.findOwnerById(2);
+        String telephone = owner.getTelephone();
+        try {
+            owner.setTelephone("5551234567");
+            this.clinicService.saveOwner(owner);
+
+            assertThat(this.clinicService.findOwnerById(1).getTelephone()).isEqualTo("5551234567");
+            // the other owners stay cached
+            assertThat(this.cacheManager.getCache("owners").get(2)).isNotNull();
+        } finally {
+            owner = this.clinicService.findOwnerById(1);
+            owner.setTelephone(telephone);
+            this.clinicService.saveOwner(owner);
+        }
+    }
+
+    @Test
+    public void shouldEvictOwnerWhenOneOfItsPetsIsSaved() {
+        Owner owner = this.clinicService.findOwnerById(3);
+        int petCount = owner.getPets().size();
+
+        Pet pet = new Pet();
+        pet.setName("Cached");
+        pet.setBirthDate(new LocalDate(2015, 5, 4));
+        pet.setType(EntityUtils.getById(this.clinicService.findPetTypes(), PetType.class, 2));
+        owner.addPet(pet);
+        this.clinicService.savePet(pet);
+        assertThat(this.clinicService.findOwnerById(3).getPets()).hasSize(petCount + 1);
+
+        pet = this.clinicService.findPetById(pet.getId());
+        pet.setName("Renamed");
+        this.clinicService.savePet(pet);
+        assertThat(this.clinicService.findOwnerById(3).getPet("Renamed")).isNotNull();
+    }
+
+    @Test
+    public void shouldEvictOwnerWhenAVisitOfOneOfItsPetsIsSaved() {
+        int visitCount = this.clinicService.findOwnerById(5).getPet("George").getVisits().size();
+
+        Pet pet = this.clinicService.findPetById(this.clinicService.findOwnerById(5).getPet("George").getId());
+        Visit visit = new Visit();
+        visit.setDescription("cache test");
+        pet.addVisit(visit);
+        this.clinicService.saveVisit(visit);
+
+        assertThat(this.clinicService.findOwnerById(5).getPet("George").getVisits()).hasSize(visitCount + 1);
+    }
+
+    @Test
+    public void shouldClearTheCacheWhenVisitsAreImported() {
+        int visitCount = this.clinicService.findOwnerById(6).getPet("Samantha").getVisits().size();
+        this.clinicService.findOwnerById(1);
+        this.clinicService.findOwnerSummaryById(1, ClinicService.SUMMARY_RECENT_VISITS);
+
+        Pet pet = new Pet();
+        pet.setId(this.clinicService.findOwnerById(6).getPet("Samantha").getId());
+        Visit visit = new Visit();
+        visit.setPet(pet);
+        visit.setDate(new LocalDate(2016, 1, 1));
+        visit.setDescription("imported");
+        this.clinicService.saveVisits(Collections.singletonList(visit));
+
+        assertThat(this.cacheStatistics.getSize("owners")).isZero();
+        assertThat(this.cacheStatistics.getSize("ownerSummaries")).isZero();
+        assertThat(this.clinicService.findOwnerById(6).getPet("Samantha").getVisits()).hasSize(visitCount + 1);
+    }
+
+    @Test
+    public void shouldServeRepeatedSummaryLookupsFromTheCache() {
+        long hits = this.cacheStatistics.getHitCount("ownerSummaries");
+        long misses = this.cacheStatistics.getMissCount("ownerSummaries");
+
+        Owner first = this.clinicService.findOwnerSummaryById(6, ClinicService.SUMMARY_RECENT_VISITS);
+        Owner second = this.clinicService.findOwnerSummaryById(6, ClinicService.SUMMARY_RECENT_VISITS);
+
+        assertThat(this.cacheStatistics.getMissCount("ownerSummaries")).isEqualTo(misses + 1);
+        assertThat(this.cacheStatistics.getHitCount("ownerSummaries")).isEqualTo(hits + 1);
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getPet("Samantha").getVisitCount()).isEqualTo(first.getPet("Samantha").getVisitCount());
+        assertThat(second.getPet("Samantha").getVisits()).hasSameSizeAs(first.getPet("Samantha").getVisits());
+    }
+
+    @Test
+    public void shouldNotCacheSummariesWithAnotherNumberOfVisits() {
+        assertThat(this.clinicService.findOwnerSummaryById(6, 1).getPet("Samantha").getVisits()).hasSize(1);
+
+        assertThat(this.cacheManager.getCache("ownerSummaries").get(6)).isNull();
+        Owner owner = this.clinicService.findOwnerSummaryById(6, ClinicService.SUMMARY_RECENT_VISITS);
+        Pet samantha = owner.getPet("Samantha");
+        assertThat(samantha.getVisits())
+            .hasSize(Math.min(samantha.getVisitCount(), ClinicService.SUMMARY_RECENT_VISITS));
+    }
+
+    @Test
+    public void shouldEvictOwnerSummaryWhenAVisitOfOneOfItsPetsIsSaved() {
+        Owner owner = this.clinicService.findOwnerSummaryById(2, ClinicService.SUMMARY_RECENT_VISITS);
+        int visitCount = owner.getPet("Basil").getVisitCount();
+        this.clinicService.findOwnerSummaryById(1, ClinicService.SUMMARY_RECENT_VISITS);
+
+        Pet pet = this.clinicService.findPetById(owner.getPet("Basil").getId());
+        Visit visit = new Visit();
+        visit.setDescription("summary cache test");
+        pet.addVisit(visit);
+        this.clinicService.saveVisit(visit);
+
+        assertThat(this.clinicService.findOwnerSummaryById(2, ClinicService.SUMMARY_RECENT_VISITS)
+            .getPet("Basil").getVisitCount()).isEqualTo(visitCount + 1);
+        // the other owners stay cached
+        assertThat(this.cacheManager.getCache("ownerSummaries").get(1)).isNotNull();
+    }
+
+    @Test
+    public void shouldEvictOwnerSummaryWhenSaved() {
+        this.clinicService.findOwnerSummaryById(4, ClinicService.SUMMARY_RECENT_VISITS);
+        Owner owner = this.clinicService.findOwnerById(4);
+        String city = owner.getCity();
+        try {
+            owner.setCity("Cachetown");
+            this.clinicService.saveOwner(owner);
+
+            assertThat(this.clinicService.findOwnerSummaryById(4, ClinicService.SUMMARY_RECENT_VISITS).getCity())
+                .isEqualTo("Cachetown");
+        } finally {
+            owner = this.clinicService.findOwnerById(4);
+            owner.setCity(city);
+            this.clinicService.saveOwner(owner);
+        }
+    }
+
+    @Test
+    public void shouldReloadPetTypesWhenNotifiedOfAChange() throws Exception {
+        PetTypeFormatter formatter = new PetTypeFormatter(this.clinicService);
+        assertThat(formatter.parse("hamster", Locale.ENGLISH).getId()).isEqualTo(6);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(this.dataSource);
+        jdbcTemplate.update("UPDATE types SET name = 'gerbil' WHERE id = 6");
+        try {
+            assertThat(formatter.parse("hamster", Locale.ENGLISH).getId()).isEqualTo(6);
+
+            this.petTypesCacheEvictor.notifyPetTypesChanged();
+
+            assertThat(formatter.parse("gerbil", Locale.ENGLISH).getId()).isEqualTo(6);
+            assertThat(this.clinicService.findPetTypes()).extracting("name").doesNotContain("hamster");
+        } finally {
+            jdbcTemplate.update("UPDATE types SET name = 'hamster' WHERE id = 6");
+            this.petTypesCacheEvictor.notifyPetTypesChanged();
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+package org.springframework.samples.petclinic.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.joda.time.LocalDate;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.model.Pet;
+import org.springframework.samples.petclinic.model.PetType;
+import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.repository.jpa.HibernateStatisticsMonitor;
+import org.springframework.samples.petclinic.util.EntityUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Base class for the tests of the <code>pooled-ids</code> profile, checking that ids are allocated from the
+ * <code>id_sequences</code> table after the sample data and that bulk inserts are sent in JDBC batches.
+ * <p/>
+ * Each subclass runs against its own in-memory database, since the rows inserted through the identity columns by the
+ * other test contexts do not advance <code>id_sequences</code>.
+ */
+@Transactional
+public abstract class AbstractClinicServicePooledIdTests {
+
+    @Autowired
+    protected ClinicService clinicService;
+
+    @Autowired
+    protected HibernateStatisticsMonitor statistics;
+
+    @Autowired
+    protected DataSource dataSource;
+
+    @BeforeClass
+    public static void useOwnDatabase() {
+        System.setProperty("jdbc.url", "jdbc:hsqldb:mem:petclinic-pooled-ids-" + System.nanoTime());
+    }
+
+    @AfterClass
+    public static void restoreDatabase() {
+        System.clearProperty("jdbc.url");
+    }
+
+    @Before
+    public void enableStatistics() {
+        // off by default, see data-access.properties
+        this.statistics.setStatisticsEnabled(true);
+    }
+
+    @Test
+    public void shouldAllocateIdsAfterTheSampleDataInBlocks() {
+        Owner owner = new Owner();
+        owner.setFirstName("Sam");
+        owner.setLastName("Schultz");
+        owner.setAddress("4, Evans Street");
+        owner.setCity("Wollongong");
+        owner.setTelephone("4444444444");
+        this.clinicService.saveOwner(owner);
+
+        assertThat(owner.getId()).isGreaterThan(10);
+        // the whole block was reserved, in a transaction of its own, before the owner was inserted
+        assertThat(new JdbcTemplate(this.dataSource).queryForObject(
+            "SELECT next_val FROM id_sequences WHERE sequence_name = 'owners'", Integer.class))
+            .isGreaterThanOrEqualTo(owner.getId() + 49);
+    }
+
+    @Test
+    public void shouldInsertImportedVisitsInJdbcBatches() {
+        List<Visit> visits = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            Pet pet = new Pet();
+            pet.setId(i % 2 == 0 ? 1 : 2);
+            Visit visit = new Visit();
+            visit.setPet(pet);
+            visit.setDate(new LocalDate(2014, 1, 1).plusDays(i));
+            visit.setDescription("imported " + i);
+            visits.add(visit);
+        }
+        this.statistics.clear();
+
+        this.clinicService.saveVisits(visits);
+
+        // a single insert statement per flush of 50, executed as one JDBC batch; identity columns need one per visit
+        assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(this.clinicService.findVisitsByPetId(1)).hasSize(60);
+    }
+
+    @Test
+    public void shouldInsertImportedPetsInJdbcBatches() {
+        PetType dog = EntityUtils.getById(this.clinicService.findPetTypes(), PetType.class, 2);
+        List<Pet> pets = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            Owner owner = new Owner();
+            owner.setId(i % 2 == 0 ? 1 : 2);
+            Pet pet = new Pet();
+            pet.setName("imported " + i);
+            pet.setBirthDate(new LocalDate(2014, 1, 1).plusDays(i));
+            pet.setType(dog);
+            owner.addPet(pet);
+            pets.add(pet);
+        }
+        this.statistics.clear();
+
+        this.clinicService.savePets(pets);
+
+        // a single insert statement per flush of 50, executed as one JDBC batch; identity columns need one per pet
+        assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(this.clinicService.findOwnerById(1).getPets()).hasSize(61);
+    }
+
+}
@@ -17,18 +17,27 @@ package org.springframework.samples.petclinic.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
+import org.junit.Rule;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.samples.petclinic.model.Owner;
 import org.springframework.samples.petclinic.model.Pet;
 import org.springframework.samples.petclinic.model.PetType;
 import org.springframework.samples.petclinic.model.Vet;
 import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.repository.OwnerExportHandler;
+import org.springframework.samples.petclinic.repository.VetDataChangedEvent;
 import org.springframework.samples.petclinic.util.EntityUtils;
+import org.springframework.samples.petclinic.util.SqlStatisticsRule;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -53,9 +62,18 @@ import org.springframework.transaction.annotation.Transactional;
  */
 public abstract class AbstractClinicServiceTests {
 
+    @Rule
+    public final SqlStatisticsRule sqlStatistics = new SqlStatisticsRule();
+
     @Autowired
     protected ClinicService clinicService;
 
+    @Autowired
+    private VetsCache vetsCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Test
     public void shouldFindOwnersByLastName() {
         Collection<Owner> owners = this.clinicService.findOwnerByLastName("Davis");
@@ -65,6 +83,34 @@ public abstract class AbstractClinicServiceTests {
         assertThat(owners.isEmpty()).isTrue();
     }
 
+    @Test
+    public void shouldPageThroughOwnersByLastName() {
+        List<Owner> all = new ArrayList<>();
+        Collection<Owner> page = this.clinicService.findOwnerByLastName("", null, null, 4);
+        while (!page.isEmpty()) {
+            assertThat(page.size()).isLessThanOrEqualTo(4);
+            all.addAll(page);
+            Owner last = all.get(all.size() - 1);
+            page = this.clinicService.findOwnerByLastName("", last.getLastName(), last.getId(), 4);
+        }
+        assertThat(all).hasSize(10);
+        assertThat(all.get(0).getLastName()).isEqualTo("Black");
+        assertThat(all.get(1).getLastName()).isEqualTo("Coleman");
+        assertThat(all.get(2).getId()).isEqualTo(2);
+        assertThat(all.get(3).getId()).isEqualTo(4);
+        assertThat(all.get(9).getLastName()).isEqualTo("Schroeder");
+
+        Owner coleman = EntityUtils.getById(all, Owner.class, 6);
+        assertThat(coleman.getPets()).hasSize(2);
+
+        List<Owner> before = new ArrayList<>(this.clinicService.findOwnerByLastNameBefore("", "Davis", 4, 3));
+        assertThat(before).hasSize(3);
+        assertThat(before.get(0).getLastName()).isEqualTo("Black");
+        assertThat(before.get(2).getId()).isEqualTo(2);
+
+        assertThat(this.clinicService.findOwnerByLastName("Davis", "Davis", 4, 10)).isEmpty();
+    }
+
     @Test
     public void shouldFindSingleOwnerWithPet() {
         Owner owner = this.clinicService.findOwnerById(1);
@@ -74,6 +120,61 @@ public abstract class AbstractClinicServiceTests {
         assertThat(owner.getPets().get(0).getType().getName()).isEqualTo("cat");
     }
 
+    @Test
+    @Transactional
+    public void shouldFindOwnerSummaryWithMostRecentVisitsOnly() {
+        Pet samantha = this.clinicService.findPetById(7);
+        for (int day = 1; day <= 5; day++) {
+            Visit visit = new Visit();
+            visit.setDate(new LocalDate(2014, 1, day));
+            visit.setDescription("checkup " + day);
+            samantha.addVisit(visit);
+            this.clinicService.saveVisit(visit);
+        }
+
+        Owner owner = this.clinicService.findOwnerSummaryById(6, 3);
+        assertThat(owner.getFirstName()).isEqualTo("Jean");
+        assertThat(owner.getPets()).hasSize(2);
+        samantha = owner.getPet("Samantha");
+        assertThat(samantha.getVisitCount()).isEqualTo(7);
+        assertThat(samantha.getVisits()).extracting("description")
+            .containsExactly("checkup 5", "checkup 4", "checkup 3");
+        assertThat(samantha.getType().getName()).isEqualTo("cat");
+        Pet max = owner.getPet("Max");
+        assertThat(max.getVisitCount()).isEqualTo(2);
+        assertThat(max.getVisits()).hasSize(2);
+
+        Owner franklin = this.clinicService.findOwnerSummaryById(1, 3);
+        assertThat(franklin.getPets().get(0).getVisitCount()).isEqualTo(0);
+        assertThat(franklin.getPets().get(0).getVisits()).isEmpty();
+    }
+
+    @Test
+    public void shouldExportEveryVisitOfEveryPetOfEveryOwner() {
+        final List<String> rows = new ArrayList<>();
+        this.clinicService.exportOwners(new OwnerExportHandler() {
+
+            private Owner lastOwner;
+
+            @Override
+            public void handleRow(Owner owner, Pet pet, Visit visit) {
+                if (this.lastOwner != null && this.lastOwner.getId().equals(owner.getId())) {
+                    assertThat(owner).isSameAs(this.lastOwner);
+                }
+                this.lastOwner = owner;
+                rows.add(owner.getId() + ":" + pet.getName() + "(" + pet.getType().getName() + ")" +
+                    (visit != null ? ":" + visit.getDescription() : ""));
+            }
+        });
+
+        // 13 pets, two of which have two visits each
+        assertThat(rows).hasSize(15);
+        assertThat(rows.get(0)).isEqualTo("1:Leo(cat)");
+        assertThat(rows).containsSubsequence("6:Samantha(cat):rabies shot", "6:Samantha(cat):spayed",
+            "6:Max(cat):rabies shot", "6:Max(cat):neutered");
+        assertThat(rows.get(14)).isEqualTo("10:Sly(cat)");
+    }
+
     @Test
     @Transactional
     public void shouldInsertOwner() {
@@ -108,6 +209,20 @@ public abstract class AbstractClinicServiceTests {
         assertThat(owner.getLastName()).isEqualTo(newLastName);
     }
 
+    @Test
+    public void shouldFindPetOfLoadedOwnerByNameIgnoringCase() {
+        Owner owner6 = this.clinicService.findOwnerById(6);
+        Pet samantha = owner6.getPet("SAMANTHA", true);
+        assertThat(samantha).isNotNull();
+        assertThat(samantha.getId()).isEqualTo(7);
+        assertThat(owner6.getPet("max")).isNotNull();
+        assertThat(owner6.getPet("Leo")).isNull();
+
+        samantha.setName("Sam");
+        assertThat(owner6.getPet("samantha")).isNull();
+        assertThat(owner6.getPet("sam")).isSameAs(samantha);
+    }
+
     @Test
     public void shouldFindPetWithCorrectId() {
         Pet pet7 = this.clinicService.findPetById(7);
@@ -174,6 +289,25 @@ public abstract class AbstractClinicServiceTests {
         assertThat(vet.getSpecialties().get(1).getName()).isEqualTo("surgery");
     }
 
+    @Test
+    public void shouldReloadVetsWhenVetDataChanges() throws InterruptedException {
+        Collection<Vet> vets = this.clinicService.findVets();
+        assertThat(this.clinicService.findVets()).isSameAs(vets);
+        long loadCount = this.vetsCache.getLoadCount();
+
+        this.eventPublisher.publishEvent(new VetDataChangedEvent(this));
+        // wait for the background reload, so that it does not run into the next test
+        long deadline = System.currentTimeMillis() + 5000;
+        while (this.vetsCache.getLoadCount() == loadCount && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        Collection<Vet> reloaded = this.clinicService.findVets();
+        assertThat(reloaded).isNotSameAs(vets);
+        assertThat(reloaded).hasSameSizeAs(vets);
+        assertThat(this.vetsCache.getLoadCount()).isEqualTo(loadCount + 1);
+    }
+
     @Test
     @Transactional
     public void shouldAddNewVisitForPet() {
@@ -190,6 +324,54 @@ public abstract class AbstractClinicServiceTests {
         assertThat(visit.getId()).isNotNull();
     }
 
+    @Test
+    @Transactional
+    public void shouldInsertVisitsInBatches() {
+        List<Visit> visits = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            Pet pet = new Pet();
+            pet.setId(i % 2 == 0 ? 1 : 2);
+            Visit visit = new Visit();
+            visit.setPet(pet);
+            visit.setDate(new LocalDate(2014, 1, 1).plusDays(i));
+            visit.setDescription("imported " + i);
+            visits.add(visit);
+        }
+
+        this.clinicService.saveVisits(visits);
+
+        for (Visit visit : visits) {
+            assertThat(visit.getId()).isNotNull();
+        }
+        assertThat(this.clinicService.findVisitsByPetId(1)).hasSize(60);
+        assertThat(this.clinicService.findVisitsByPetId(2)).hasSize(60);
+    }
+
+    @Test
+    @Transactional
+    public void shouldInsertPetsInBatches() {
+        PetType dog = EntityUtils.getById(this.clinicService.findPetTypes(), PetType.class, 2);
+        List<Pet> pets = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            Owner owner = new Owner();
+            owner.setId(i % 2 == 0 ? 1 : 2);
+            Pet pet = new Pet();
+            pet.setName("imported " + i);
+            pet.setBirthDate(new LocalDate(2014, 1, 1).plusDays(i));
+            pet.setType(dog);
+            owner.addPet(pet);
+            pets.add(pet);
+        }
+
+        this.clinicService.savePets(pets);
+
+        for (Pet pet : pets) {
+            assertThat(pet.getId()).isNotNull();
+        }
+        assertThat(this.clinicService.findOwnerById(1).getPets()).hasSize(61);
+        assertThat(this.clinicService.findOwnerById(2).getPets()).hasSize(61);
+    }
+
     @Test
        public void shouldFindVisitsByPetId() throws Exception {
         Collection<Visit> visits = this.clinicService.findVisitsByPetId(7);
@@ -200,5 +382,42 @@ public abstract class AbstractClinicServiceTests {
         assertThat(visitArr[0].getPet().getId()).isEqualTo(7);
     }
 
+    @Test
+    public void shouldPageThroughVisitsByPetId() {
+        Page<Visit> page = this.clinicService.findVisitsByPetId(7, new PageRequest(0, 1));
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        assertThat(page.getTotalPages()).isEqualTo(2);
+        assertThat(page.getContent()).hasSize(1);
+        assertThat(page.getContent().get(0).getDescription()).isEqualTo("spayed");
+        assertThat(page.getContent().get(0).getPet().getId()).isEqualTo(7);
+
+        page = this.clinicService.findVisitsByPetId(7, new PageRequest(1, 1));
+        assertThat(page.getContent()).extracting("description").containsExactly("rabies shot");
+        assertThat(page.hasNext()).isFalse();
+
+        page = this.clinicService.findVisitsByPetId(7, new PageRequest(2, 1));
+        assertThat(page.getContent()).isEmpty();
+        assertThat(page.getTotalElements()).isEqualTo(2);
+    }
+
+    /**
+     * The bounds do not depend on the number of owners, pets or visits, so they catch N+1 selects. They hold whether
+     * the reference data is cached yet or not.
+     */
+    @Test
+    public void shouldRunABoundedNumberOfStatementsPerServiceCall() {
+        this.sqlStatistics.assertMaxStatements(3, () -> this.clinicService.findOwnerById(1));
+        // owner 6 has two pets with visits, whose recent visits are read one pet at a time
+        this.sqlStatistics.assertMaxStatements(4, () -> this.clinicService.findOwnerSummaryById(6, 3));
+        this.sqlStatistics.assertMaxStatements(3, () -> this.clinicService.findOwnerByLastName(""));
+        this.sqlStatistics.assertMaxStatements(4, () -> this.clinicService.findOwnerByLastName("", null, null, 5));
+        this.sqlStatistics.assertMaxStatements(2, () -> this.clinicService.findPetById(7));
+        this.sqlStatistics.assertMaxStatements(2, () -> this.clinicService.findVisitsByPetId(7));
+        this.sqlStatistics.assertMaxStatements(1, () -> this.clinicService.findPetTypes());
+        this.sqlStatistics.assertMaxStatements(2, () -> {
+            this.vetsCache.invalidate();
+            return this.clinicService.findVets();
+        });
+    }
 
 }
@@ -0,0 +1,150 @@
+package org.springframework.samples.petclinic.service;
+
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.GenericXmlApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.model.Pet;
+import org.springframework.samples.petclinic.model.Vet;
+import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.util.SyntheticDataGenerator;
+
+/**
+ * Compares the {@link ClinicService} operations across the <code>jdbc</code>, <code>jpa</code> and
+ * <code>spring-data-jpa</code> profiles of <code>business-config.xml</code>, against the in-memory HSQLDB database
+ * seeded by the {@link SyntheticDataGenerator} on top of the sample data.
+ * <p/>
+ * Run with {@code mvn -Pbenchmarks test -DskipTests -Djmh.includes=ClinicService}; the dataset size can be changed with
+ * the usual JMH parameter options, e.g. {@code -p ownerCount=10000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClinicServiceBenchmark {
+
+    private static final int LAST_NAME_COUNT = 500;
+
+    @Param({"jdbc", "jpa", "spring-data-jpa"})
+    private String profile;
+
+    @Param({"1000"})
+    private int ownerCount;
+
+    @Param({"2"})
+    private double petsPerOwner;
+
+    @Param({"4"})
+    private double visitsPerPet;
+
+    private GenericXmlApplicationContext context;
+
+    private ClinicService clinicService;
+
+    private int minOwnerId;
+
+    private int maxOwnerId;
+
+    private int minPetId;
+
+    private int maxPetId;
+
+    private Pet pet;
+
+    @Setup
+    public void setup() {
+        // SQL logging would dominate the JPA measurements
+        System.setProperty("jpa.showSql", "false");
+        this.context = new GenericXmlApplicationContext();
+        this.context.getEnvironment().setActiveProfiles(this.profile);
+        this.context.load("classpath:spring/business-config.xml");
+        this.context.refresh();
+        this.clinicService = this.context.getBean(ClinicService.class);
+
+        DataSource dataSource = this.context.getBean(DataSource.class);
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(dataSource);
+        generator.setOwnerCount(this.ownerCount);
+        generator.setLastNameCount(LAST_NAME_COUNT);
+        generator.setPetsPerOwner(this.petsPerOwner);
+        generator.setVisitsPerPet(this.visitsPerPet);
+        generator.generate();
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        this.minOwnerId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM owners", Integer.class);
+        this.maxOwnerId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM owners", Integer.class);
+        this.minPetId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM pets", Integer.class);
+        this.maxPetId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM pets", Integer.class);
+        this.pet = this.clinicService.findPetById(this.maxPetId);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.context.close();
+    }
+
+    @Benchmark
+    public Collection<Owner> findOwnerByLastName() {
+        return this.clinicService.findOwnerByLastName(SyntheticDataGenerator.lastName(random(0, LAST_NAME_COUNT - 1)));
+    }
+
+    @Benchmark
+    public Owner findOwnerById() {
+        return this.clinicService.findOwnerById(random(this.minOwnerId, this.maxOwnerId));
+    }
+
+    @Benchmark
+    public Owner findOwnerSummaryById() {
+        return this.clinicService.findOwnerSummaryById(random(this.minOwnerId, this.maxOwnerId),
+            ClinicService.SUMMARY_RECENT_VISITS);
+    }
+
+    @Benchmark
+    public Pet findPetById() {
+        return this.clinicService.findPetById(random(this.minPetId, this.maxPetId));
+    }
+
+    @Benchmark
+    public Collection<Vet> findVets() {
+        return this.clinicService.findVets();
+    }
+
+    @Benchmark
+    public Visit saveVisit() {
+        Visit visit = new Visit();
+        visit.setDescription("benchmark");
+        visit.setPet(this.pet);
+        this.clinicService.saveVisit(visit);
+        return visit;
+    }
+
+    @Benchmark
+    public Pet savePet() {
+        this.pet.setName("Pet" + random(0, 999));
+        this.clinicService.savePet(this.pet);
+        return this.pet;
+    }
+
+    private static int random(int min, int max) {
+        return ThreadLocalRandom.current().nextInt(min, max + 1);
+    }
+
+}
@@ -17,6 +17,6 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 @ContextConfiguration(locations = {"classpath:spring/business-config.xml"})
 @RunWith(SpringJUnit4ClassRunner.class)
 @ActiveProfiles("jpa")
-public class ClinicServiceJpaTests extends AbstractClinicServiceTests {
+public class ClinicServiceJpaTests extends AbstractClinicServiceJpaTests {
 
 }
@@ -0,0 +1,17 @@
+package org.springframework.samples.petclinic.service;
+
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Tests the <code>owners</code> and <code>ownerSummaries</code> caches with the <code>jdbc</code> profile, see
+ * {@link AbstractClinicServiceOwnerCacheTests}.
+ */
+@ContextConfiguration(locations = {"classpath:spring/business-config.xml", "classpath:spring/tools-config.xml"})
+@RunWith(SpringJUnit4ClassRunner.class)
+@ActiveProfiles("jdbc")
+public class ClinicServiceOwnerCacheJdbcTests extends AbstractClinicServiceOwnerCacheTests {
+
+}
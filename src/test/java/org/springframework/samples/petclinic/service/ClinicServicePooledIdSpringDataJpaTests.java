@@ -0,0 +1,17 @@
+package org.springframework.samples.petclinic.service;
+
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Tests the <code>pooled-ids</code> profile with the <code>spring-data-jpa</code> profile, see
+ * {@link AbstractClinicServicePooledIdTests}.
+ */
+@ContextConfiguration(locations = {"classpath:spring/business-config.xml"})
+@RunWith(SpringJUnit4ClassRunner.class)
+@ActiveProfiles({"spring-data-jpa", "pooled-ids"})
+public class ClinicServicePooledIdSpringDataJpaTests extends AbstractClinicServicePooledIdTests {
+
+}
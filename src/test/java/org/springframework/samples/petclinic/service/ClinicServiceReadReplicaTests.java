@@ -0,0 +1,87 @@
+package org.springframework.samples.petclinic.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.support.GenericXmlApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.util.EntityUtils;
+import org.springframework.samples.petclinic.util.ReadReplicaRoutingDataSource;
+
+/**
+ * Checks that, with the <code>jdbc</code> profile of <code>business-config.xml</code>, the {@link ClinicService} sends
+ * its read-only transactions to the read replica configured with <code>jdbc.replica.urls</code> and its other
+ * transactions to the primary database. The primary and the replica are two in-memory HSQLDB databases; the replica
+ * tells itself apart by a different first name for owner 1. Routing with the <code>JpaTransactionManager</code> is
+ * tested by {@link org.springframework.samples.petclinic.util.ReadReplicaRoutingDataSourceTests}, as closing a context
+ * of the JPA profiles here would remove the second-level cache regions shared with the cached test contexts.
+ */
+public class ClinicServiceReadReplicaTests {
+
+    private EmbeddedDatabase replica;
+
+    private GenericXmlApplicationContext context;
+
+    @Before
+    public void setup() {
+        this.replica = new EmbeddedDatabaseBuilder()
+            .generateUniqueName(true)
+            .setType(EmbeddedDatabaseType.HSQL)
+            .addScripts("db/hsqldb/initDB.sql", "db/hsqldb/populateDB.sql")
+            .build();
+        new JdbcTemplate(this.replica).update("UPDATE owners SET first_name = 'Replica' WHERE id = 1");
+        String replicaUrl = new JdbcTemplate(this.replica).execute(
+            (Connection con) -> con.getMetaData().getURL());
+
+        System.setProperty("jdbc.url", "jdbc:hsqldb:mem:petclinic-primary-" + System.nanoTime());
+        System.setProperty("jdbc.replica.urls", replicaUrl);
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty("jdbc.url");
+        System.clearProperty("jdbc.replica.urls");
+        if (this.context != null) {
+            this.context.close();
+        }
+        this.replica.shutdown();
+    }
+
+    @Test
+    public void shouldReadFromTheReplicaAndWriteToThePrimary() {
+        this.context = new GenericXmlApplicationContext();
+        this.context.getEnvironment().setActiveProfiles("jdbc");
+        this.context.load("classpath:spring/business-config.xml");
+        this.context.refresh();
+        ClinicService clinicService = this.context.getBean(ClinicService.class);
+        ReadReplicaRoutingDataSource routing = this.context.getBean(ReadReplicaRoutingDataSource.class);
+        JdbcTemplate primary = new JdbcTemplate(this.context.getBean("primaryDataSource", DataSource.class));
+
+        Owner owner = EntityUtils.getById(clinicService.findOwnerByLastName("Franklin"), Owner.class, 1);
+        assertThat(owner.getFirstName()).isEqualTo("Replica");
+        assertThat(routing.getReplicaConnectionCount()).isEqualTo(1);
+
+        owner.setCity("Replicated");
+        clinicService.saveOwner(owner);
+        assertThat(primary.queryForObject("SELECT city FROM owners WHERE id = 1", String.class))
+            .isEqualTo("Replicated");
+        assertThat(new JdbcTemplate(this.replica).queryForObject("SELECT city FROM owners WHERE id = 1", String.class))
+            .isEqualTo("Madison");
+        assertThat(routing.getReplicaConnectionCount()).isEqualTo(1);
+
+        // owners are cached by id, so they are loaded from the primary rather than from a replica lagging behind
+        assertThat(clinicService.findOwnerById(1).getCity()).isEqualTo("Replicated");
+        assertThat(routing.getReplicaConnectionCount()).isEqualTo(1);
+    }
+
+}
@@ -15,6 +15,6 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 @ContextConfiguration(locations = {"classpath:spring/business-config.xml"})
 @RunWith(SpringJUnit4ClassRunner.class)
 @ActiveProfiles("spring-data-jpa")
-public class ClinicServiceSpringDataJpaTests extends AbstractClinicServiceTests {
+public class ClinicServiceSpringDataJpaTests extends AbstractClinicServiceJpaTests {
 
 }
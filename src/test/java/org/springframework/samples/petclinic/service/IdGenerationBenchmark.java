@@ -0,0 +1,115 @@
+package org.springframework.samples.petclinic.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.GenericXmlApplicationContext;
+import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.model.Pet;
+import org.springframework.samples.petclinic.model.PetType;
+import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.util.EntityUtils;
+
+/**
+ * Compares the bulk imports of {@link ClinicService#saveVisits} and {@link ClinicService#savePets} with the
+ * <code>jpa</code> and <code>spring-data-jpa</code> profiles, with ids read back from identity columns after each
+ * insert and with ids allocated in blocks by the <code>pooled-ids</code> profile, which lets Hibernate send the inserts
+ * in JDBC batches. Scores are inserted rows per second.
+ * <p/>
+ * Run with {@code mvn -Pbenchmarks test -DskipTests -Djmh.includes=IdGeneration}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGenerationBenchmark {
+
+    private static final int IMPORT_SIZE = 500;
+
+    @Param({"jpa", "spring-data-jpa"})
+    private String profile;
+
+    @Param({"identity", "pooled-ids"})
+    private String idGeneration;
+
+    private GenericXmlApplicationContext context;
+
+    private ClinicService clinicService;
+
+    private PetType dog;
+
+    @Setup
+    public void setup() {
+        // SQL logging would dominate the measurements
+        System.setProperty("jpa.showSql", "false");
+        System.setProperty("jdbc.url", "jdbc:hsqldb:mem:petclinic-ids-" + System.nanoTime());
+        this.context = new GenericXmlApplicationContext();
+        if ("pooled-ids".equals(this.idGeneration)) {
+            this.context.getEnvironment().setActiveProfiles(this.profile, this.idGeneration);
+        } else {
+            this.context.getEnvironment().setActiveProfiles(this.profile);
+        }
+        this.context.load("classpath:spring/business-config.xml");
+        this.context.refresh();
+        this.clinicService = this.context.getBean(ClinicService.class);
+        this.dog = EntityUtils.getById(this.clinicService.findPetTypes(), PetType.class, 2);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IMPORT_SIZE)
+    public List<Visit> saveVisits() {
+        List<Visit> visits = new ArrayList<>(IMPORT_SIZE);
+        for (int i = 0; i < IMPORT_SIZE; i++) {
+            Pet pet = new Pet();
+            pet.setId(i % 13 + 1);
+            Visit visit = new Visit();
+            visit.setPet(pet);
+            visit.setDate(new LocalDate(2016, 1, 1));
+            visit.setDescription("benchmark");
+            visits.add(visit);
+        }
+        this.clinicService.saveVisits(visits);
+        return visits;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IMPORT_SIZE)
+    public List<Pet> savePets() {
+        List<Pet> pets = new ArrayList<>(IMPORT_SIZE);
+        for (int i = 0; i < IMPORT_SIZE; i++) {
+            Owner owner = new Owner();
+            owner.setId(i % 10 + 1);
+            Pet pet = new Pet();
+            pet.setName("benchmark");
+            pet.setBirthDate(new LocalDate(2015, 1, 1));
+            pet.setType(this.dog);
+            owner.addPet(pet);
+            pets.add(pet);
+        }
+        this.clinicService.savePets(pets);
+        return pets;
+    }
+
+}
@@ -0,0 +1,177 @@
+package org.springframework.samples.petclinic.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.samples.petclinic.model.Vet;
+import org.springframework.samples.petclinic.repository.VetDataChangedEvent;
+import org.springframework.samples.petclinic.repository.VetRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Test class for {@link VetsCache}, loading from a {@link VetRepository} that returns a new list on every call.
+ */
+public class VetsCacheTests {
+
+    private final AtomicInteger findAllCount = new AtomicInteger();
+
+    private volatile Runnable onFindAll = () -> {
+    };
+
+    private final VetRepository vetRepository = () -> {
+        this.onFindAll.run();
+        this.findAllCount.incrementAndGet();
+        return new ArrayList<>();
+    };
+
+    private VetsCache vetsCache;
+
+    @Before
+    public void setup() {
+        this.vetsCache = new VetsCache(this.vetRepository, mock(PlatformTransactionManager.class));
+        this.vetsCache.setRefreshInterval(0);
+    }
+
+    @After
+    public void tearDown() {
+        this.vetsCache.destroy();
+    }
+
+    @Test
+    public void shouldServeTheSameListUntilReloaded() {
+        this.vetsCache.afterPropertiesSet();
+        Collection<Vet> vets = this.vetsCache.get();
+        assertThat(this.vetsCache.get()).isSameAs(vets);
+        assertThat(this.findAllCount.get()).isEqualTo(1);
+
+        this.vetsCache.refresh();
+        assertThat(this.vetsCache.get()).isNotSameAs(vets);
+        assertThat(this.findAllCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldLoadOnceForConcurrentCallers() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        this.onFindAll = () -> {
+            loading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        this.vetsCache.afterPropertiesSet();
+
+        List<Collection<Vet>> results = new CopyOnWriteArrayList<>();
+        List<Thread> callers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread caller = new Thread(() -> results.add(this.vetsCache.get()));
+            callers.add(caller);
+            caller.start();
+        }
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        // all callers but the loading one wait for the lock
+        awaitUntil(() -> callers.stream().filter(caller -> caller.getState() == Thread.State.BLOCKED).count() == 7);
+        release.countDown();
+        for (Thread caller : callers) {
+            caller.join(5000);
+        }
+
+        assertThat(this.findAllCount.get()).isEqualTo(1);
+        assertThat(results).hasSize(8);
+        assertThat(results.stream().distinct().count()).isEqualTo(1);
+        assertThat(results.get(0)).isSameAs(this.vetsCache.get());
+    }
+
+    @Test
+    public void shouldRefreshAheadInTheBackground() throws Exception {
+        this.vetsCache.setRefreshInterval(20);
+        this.vetsCache.afterPropertiesSet();
+        Collection<Vet> vets = this.vetsCache.get();
+
+        awaitUntil(() -> this.vetsCache.getLoadCount() >= 2);
+        assertThat(this.vetsCache.get()).isNotSameAs(vets);
+        assertThat(this.vetsCache.getRefreshFailureCount()).isZero();
+    }
+
+    @Test
+    public void shouldNotRefreshAListNeverAskedFor() throws Exception {
+        this.vetsCache.setRefreshInterval(20);
+        this.vetsCache.afterPropertiesSet();
+
+        Thread.sleep(100);
+        assertThat(this.findAllCount.get()).isZero();
+    }
+
+    @Test
+    public void shouldKeepServingTheListWhenABackgroundRefreshFails() throws Exception {
+        this.vetsCache.setRefreshInterval(20);
+        this.vetsCache.afterPropertiesSet();
+        Collection<Vet> vets = this.vetsCache.get();
+        this.onFindAll = () -> {
+            throw new DataAccessResourceFailureException("database down");
+        };
+
+        awaitUntil(() -> this.vetsCache.getRefreshFailureCount() >= 1);
+        assertThat(this.vetsCache.get()).isSameAs(vets);
+    }
+
+    @Test
+    public void shouldReloadAfterTheTimeToLive() throws Exception {
+        this.vetsCache.setTimeToLive(20);
+        this.vetsCache.afterPropertiesSet();
+        Collection<Vet> vets = this.vetsCache.get();
+
+        Thread.sleep(40);
+        assertThat(this.vetsCache.get()).isNotSameAs(vets);
+        assertThat(this.findAllCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldReloadInTheBackgroundWhenVetDataChanges() throws Exception {
+        this.vetsCache.afterPropertiesSet();
+        Collection<Vet> vets = this.vetsCache.get();
+
+        this.vetsCache.onVetDataChanged(new VetDataChangedEvent(this));
+        awaitUntil(() -> this.vetsCache.getLoadCount() == 2);
+        assertThat(this.vetsCache.get()).isNotSameAs(vets);
+        assertThat(this.findAllCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldNotServeAListLoadedBeforeTheDataChanged() {
+        this.vetsCache.afterPropertiesSet();
+        this.onFindAll = () -> {
+            this.onFindAll = () -> {
+            };
+            this.vetsCache.invalidate();
+        };
+        Collection<Vet> vets = this.vetsCache.get();
+
+        assertThat(this.vetsCache.get()).isNotSameAs(vets);
+        assertThat(this.findAllCount.get()).isEqualTo(2);
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+}
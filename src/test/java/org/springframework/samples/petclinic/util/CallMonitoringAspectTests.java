@@ -0,0 +1,94 @@
+package org.springframework.samples.petclinic.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+
+import javax.management.Attribute;
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Test class for the {@link javax.management.DynamicMBean} view of {@link CallMonitoringAspect}
+ */
+public class CallMonitoringAspectTests {
+
+    private static final String FIND_ATTRIBUTE = "CallMonitoringAspectTests.SampleRepository.find(int)";
+
+    private CallMonitoringAspect monitor;
+
+    private SampleRepository repository;
+
+    @Before
+    public void setUp() {
+        this.monitor = new CallMonitoringAspect();
+        AspectJProxyFactory factory = new AspectJProxyFactory(new SampleRepository());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(this.monitor);
+        this.repository = factory.getProxy();
+    }
+
+    @Test
+    public void shouldExposeOneStatisticsAttributePerMonitoredMethod() throws Exception {
+        this.repository.find(1);
+        this.repository.find(2);
+        this.repository.findAll();
+
+        assertThat(this.monitor.getAttribute("CallCount")).isEqualTo(3L);
+        assertThat(attributeNames()).contains("Enabled", "CallCount", "CallTime", FIND_ATTRIBUTE,
+            "CallMonitoringAspectTests.SampleRepository.findAll()");
+
+        CompositeData statistics = (CompositeData) this.monitor.getAttribute(FIND_ATTRIBUTE);
+        assertThat(statistics.get("count")).isEqualTo(2L);
+        assertThat((Long) statistics.get("max")).isGreaterThanOrEqualTo((Long) statistics.get("p50"));
+    }
+
+    @Test(expected = AttributeNotFoundException.class)
+    public void shouldRejectUnknownAttributes() throws Exception {
+        this.monitor.getAttribute("CallMonitoringAspectTests.SampleRepository.delete(int)");
+    }
+
+    @Test
+    public void shouldStopCountingWhenDisabledThroughJmx() throws Exception {
+        this.monitor.setAttribute(new Attribute("Enabled", false));
+        this.repository.find(1);
+
+        assertThat(this.monitor.isEnabled()).isFalse();
+        assertThat(this.monitor.getCallCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldResetCountersAndHistograms() throws Exception {
+        this.repository.find(1);
+
+        this.monitor.invoke("reset", new Object[0], new String[0]);
+
+        assertThat(this.monitor.getCallCount()).isEqualTo(0);
+        assertThat(((CompositeData) this.monitor.getAttribute(FIND_ATTRIBUTE)).get("count")).isEqualTo(0L);
+    }
+
+    private String[] attributeNames() {
+        return Arrays.stream(this.monitor.getMBeanInfo().getAttributes())
+            .map(MBeanAttributeInfo::getName).toArray(String[]::new);
+    }
+
+
+    @Repository
+    public static class SampleRepository {
+
+        public String find(int id) {
+            return "item " + id;
+        }
+
+        public String[] findAll() {
+            return new String[0];
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+package org.springframework.samples.petclinic.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@link LatencyHistogram}
+ */
+public class LatencyHistogramTests {
+
+    @Test
+    public void shouldReportZeroesWhenEmpty() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+        assertThat(snapshot.getCount()).isEqualTo(0);
+        assertThat(snapshot.getMean()).isEqualTo(0);
+        assertThat(snapshot.getP99()).isEqualTo(0);
+        assertThat(snapshot.getMax()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldComputePercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getCount()).isEqualTo(1000);
+        assertThat(snapshot.getMean()).isEqualTo(500500);
+        assertThat(snapshot.getMax()).isEqualTo(1000000);
+        assertThat(snapshot.getP50()).isBetween(500000L, 500000L * 33 / 32);
+        assertThat(snapshot.getP95()).isBetween(950000L, 950000L * 33 / 32);
+        assertThat(snapshot.getP99()).isBetween(990000L, 1000000L);
+    }
+
+    @Test
+    public void shouldMapEveryValueToABucketCoveringIt() {
+        long[] values = {0, 1, 31, 32, 33, 63, 64, 1000, 123456789, Long.MAX_VALUE >>> 22};
+        for (long value : values) {
+            int index = LatencyHistogram.indexFor(value);
+            assertThat(LatencyHistogram.highestEquivalentValue(index)).isGreaterThanOrEqualTo(value);
+            if (index > 0) {
+                assertThat(LatencyHistogram.highestEquivalentValue(index - 1)).isLessThan(value);
+            }
+        }
+    }
+
+    @Test
+    public void shouldClampValuesBeyondTheTrackableRange() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(-5);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getCount()).isEqualTo(2);
+        assertThat(snapshot.getMax()).isEqualTo(Long.MAX_VALUE);
+        assertThat(snapshot.getP50()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldClearEverythingOnReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(42);
+        histogram.reset();
+
+        assertThat(histogram.getCount()).isEqualTo(0);
+        assertThat(histogram.snapshot().getMax()).isEqualTo(0);
+        assertThat(histogram.snapshot().getCount()).isEqualTo(0);
+    }
+
+}
@@ -0,0 +1,98 @@
+package org.springframework.samples.petclinic.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Test class for {@link MonitoredPoolDataSource}
+ */
+public class MonitoredPoolDataSourceTests {
+
+    private DataSource pool;
+
+    private MonitoredPoolDataSource dataSource;
+
+    @Before
+    public void setup() {
+        this.pool = new DataSource();
+        this.pool.setDriverClassName("org.hsqldb.jdbcDriver");
+        this.pool.setUrl("jdbc:hsqldb:mem:pool-" + System.nanoTime());
+        this.pool.setUsername("sa");
+        this.pool.setInitialSize(1);
+        this.pool.setMinIdle(1);
+        this.pool.setMaxActive(2);
+        this.pool.setMaxIdle(2);
+        this.pool.setMaxWait(100);
+        this.pool.setJdbcInterceptors("StatementFinalizer;SlowQueryReport(threshold=0,maxQueries=10)");
+        this.dataSource = new MonitoredPoolDataSource(this.pool);
+    }
+
+    @After
+    public void tearDown() {
+        this.pool.close();
+    }
+
+    @Test
+    public void shouldReportActiveConnectionsWaitTimesAndTimeouts() throws Exception {
+        try (Connection first = this.dataSource.getConnection();
+             Connection second = this.dataSource.getConnection()) {
+            assertThat(first).isNotSameAs(second);
+            assertThat(this.dataSource.getActive()).isEqualTo(2);
+            assertThat(this.dataSource.getIdle()).isZero();
+            try {
+                this.dataSource.getConnection();
+                fail("Expected the pool to be exhausted");
+            } catch (SQLException ex) {
+                assertThat(this.dataSource.getConnectionTimeoutCount()).isEqualTo(1);
+            }
+        }
+
+        assertThat(this.dataSource.getActive()).isZero();
+        assertThat(this.dataSource.getWaiters()).isZero();
+        assertThat(this.dataSource.getConnectionRequestCount()).isEqualTo(3);
+        // the third request waited for the whole maxWait of 100 milliseconds
+        assertThat(this.dataSource.getConnectionWaitTimeMax()).isGreaterThan(90000000L);
+    }
+
+    @Test
+    public void shouldNotCountConnectionFailuresAsTimeouts() {
+        // HSQLDB refuses to create a database that does not exist yet
+        this.pool.setUrl("jdbc:hsqldb:mem:missing-" + System.nanoTime() + ";ifexists=true");
+        try {
+            this.dataSource.getConnection();
+            fail("Expected the connection to be refused");
+        } catch (SQLException ex) {
+            assertThat(this.dataSource.getConnectionTimeoutCount()).isZero();
+        }
+        assertThat(this.dataSource.getConnectionRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldListStatementsSlowerThanTheThreshold() {
+        new JdbcTemplate(this.dataSource).queryForList("SELECT * FROM INFORMATION_SCHEMA.SYSTEM_TABLES");
+
+        this.dataSource.setSlowQueryThreshold(-1);
+        assertThat(this.dataSource.getSlowQueries()).hasSize(1);
+        assertThat(this.dataSource.getSlowQueries()[0]).endsWith("SELECT * FROM INFORMATION_SCHEMA.SYSTEM_TABLES");
+
+        this.dataSource.setSlowQueryThreshold(60000);
+        assertThat(this.dataSource.getSlowQueryCount()).isZero();
+    }
+
+    @Test
+    public void shouldResizeThePoolAtRuntime() {
+        this.dataSource.setMaxActive(5);
+
+        assertThat(this.pool.getMaxActive()).isEqualTo(5);
+    }
+
+}
@@ -0,0 +1,217 @@
+package org.springframework.samples.petclinic.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.SharedCacheMode;
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Test class for {@link ReadReplicaRoutingDataSource}, with a primary database and two replicas that tell themselves
+ * apart by the last name of their single owner.
+ */
+public class ReadReplicaRoutingDataSourceTests {
+
+    private EmbeddedDatabase primary;
+
+    private EmbeddedDatabase firstDatabase;
+
+    private EmbeddedDatabase secondDatabase;
+
+    private Replica firstReplica;
+
+    private Replica secondReplica;
+
+    private ReadReplicaRoutingDataSource routingDataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate readWrite;
+
+    private TransactionTemplate readOnly;
+
+    private LazyConnectionDataSourceProxy dataSource;
+
+    @Before
+    public void setup() {
+        this.primary = createDatabase("primary");
+        this.firstDatabase = createDatabase("first");
+        this.secondDatabase = createDatabase("second");
+        this.firstReplica = new Replica(this.firstDatabase);
+        this.secondReplica = new Replica(this.secondDatabase);
+        this.routingDataSource = new ReadReplicaRoutingDataSource(this.primary,
+            Arrays.<DataSource>asList(this.firstReplica, this.secondReplica));
+        this.routingDataSource.setHealthCheckInterval(0);
+        this.routingDataSource.afterPropertiesSet();
+
+        this.dataSource = new LazyConnectionDataSourceProxy();
+        // otherwise read from the first connection obtained, which would add to the counts
+        this.dataSource.setDefaultAutoCommit(true);
+        this.dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        this.dataSource.setTargetDataSource(this.routingDataSource);
+        this.jdbcTemplate = new JdbcTemplate(this.dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(this.dataSource);
+        this.readWrite = new TransactionTemplate(transactionManager);
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    @After
+    public void tearDown() {
+        this.routingDataSource.destroy();
+        this.primary.shutdown();
+        this.firstDatabase.shutdown();
+        this.secondDatabase.shutdown();
+    }
+
+    @Test
+    public void shouldSpreadReadOnlyTransactionsRoundRobinOverTheReplicas() {
+        String first = readOnly();
+        String second = readOnly();
+
+        assertThat(Arrays.asList(first, second)).containsOnly("first", "second").doesNotHaveDuplicates();
+        assertThat(readOnly()).isEqualTo(first);
+        assertThat(this.routingDataSource.getReplicaConnectionCount()).isEqualTo(3);
+        assertThat(this.routingDataSource.getPrimaryConnectionCount()).isZero();
+    }
+
+    @Test
+    public void shouldSendWriteTransactionsAndNonTransactionalWorkToThePrimary() {
+        String owner = this.readWrite.execute(status -> {
+            this.jdbcTemplate.update("UPDATE owners SET last_name = 'written'");
+            return ownerName();
+        });
+
+        assertThat(owner).isEqualTo("written");
+        assertThat(ownerName()).isEqualTo("written");
+        assertThat(new JdbcTemplate(this.firstDatabase).queryForObject("SELECT last_name FROM owners", String.class))
+            .isEqualTo("first");
+        assertThat(this.routingDataSource.getReplicaConnectionCount()).isZero();
+    }
+
+    @Test
+    public void shouldSkipUnhealthyReplicasUntilTheyRecover() {
+        this.firstReplica.available = false;
+        this.routingDataSource.checkReplicas();
+
+        assertThat(this.routingDataSource.getHealthyReplicaCount()).isEqualTo(1);
+        assertThat(readOnly()).isEqualTo("second");
+        assertThat(readOnly()).isEqualTo("second");
+
+        this.firstReplica.available = true;
+        this.routingDataSource.checkReplicas();
+
+        assertThat(this.routingDataSource.getHealthyReplicaCount()).isEqualTo(2);
+        assertThat(Arrays.asList(readOnly(), readOnly())).containsOnly("first", "second");
+    }
+
+    @Test
+    public void shouldFallBackToThePrimaryWhenNoReplicaIsAvailable() {
+        this.firstReplica.available = false;
+        this.secondReplica.available = false;
+
+        assertThat(readOnly()).isEqualTo("primary");
+        assertThat(this.routingDataSource.getReplicaFailureCount()).isEqualTo(2);
+        assertThat(this.routingDataSource.getReplicaStatus())
+            .containsExactly("replica-0 DOWN connections=0", "replica-1 DOWN connections=0");
+        assertThat(readOnly()).isEqualTo("primary");
+        assertThat(this.routingDataSource.getPrimaryConnectionCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldRouteJpaTransactionsTheSameWay() {
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(this.dataSource);
+        factoryBean.setPackagesToScan("org.springframework.samples.petclinic.model");
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        // the second-level cache regions are shared with the test contexts of the JPA profiles
+        factoryBean.setSharedCacheMode(SharedCacheMode.NONE);
+        factoryBean.getJpaPropertyMap().put("hibernate.cache.use_second_level_cache", "false");
+        factoryBean.afterPropertiesSet();
+        EntityManagerFactory entityManagerFactory = factoryBean.getObject();
+        try {
+            JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+            TransactionTemplate jpaReadOnly = new TransactionTemplate(transactionManager);
+            jpaReadOnly.setReadOnly(true);
+            TransactionTemplate jpaReadWrite = new TransactionTemplate(transactionManager);
+
+            String replicaOwner = jpaReadOnly.execute(status -> ownerName(entityManagerFactory));
+            String primaryOwner = jpaReadWrite.execute(status -> ownerName(entityManagerFactory));
+
+            assertThat(replicaOwner).isIn("first", "second");
+            assertThat(primaryOwner).isEqualTo("primary");
+            assertThat(this.routingDataSource.getReplicaConnectionCount()).isEqualTo(1);
+        } finally {
+            factoryBean.destroy();
+        }
+    }
+
+    private static String ownerName(EntityManagerFactory entityManagerFactory) {
+        EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+        return entityManager.createQuery("SELECT owner FROM Owner owner", Owner.class).getSingleResult().getLastName();
+    }
+
+    private String readOnly() {
+        return this.readOnly.execute(status -> ownerName());
+    }
+
+    private String ownerName() {
+        return this.jdbcTemplate.queryForObject("SELECT last_name FROM owners", String.class);
+    }
+
+    private static EmbeddedDatabase createDatabase(String ownerName) {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+            .setName("replica-routing-" + ownerName)
+            .setType(EmbeddedDatabaseType.HSQL)
+            .addScript("db/hsqldb/initDB.sql")
+            .build();
+        new JdbcTemplate(database).update(
+            "INSERT INTO owners (first_name, last_name, address, city, telephone) VALUES ('a', ?, 'b', 'c', '1')",
+            ownerName);
+        return database;
+    }
+
+
+    /**
+     * A replica that refuses connections while it is not available.
+     */
+    private static class Replica extends DelegatingDataSource {
+
+        private volatile boolean available = true;
+
+        Replica(DataSource database) {
+            super(database);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (!this.available) {
+                throw new SQLException("Replica unavailable");
+            }
+            return super.getConnection();
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+package org.springframework.samples.petclinic.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+/**
+ * Test class for {@link SqlStatisticsDataSource}, on an in-memory database holding the sample data.
+ */
+public class SqlStatisticsDataSourceTests {
+
+    private EmbeddedDatabase database;
+
+    private SqlStatisticsDataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setup() {
+        this.database = new EmbeddedDatabaseBuilder()
+            .generateUniqueName(true)
+            .setType(EmbeddedDatabaseType.HSQL)
+            .addScripts("db/hsqldb/initDB.sql", "db/hsqldb/populateDB.sql")
+            .build();
+        this.dataSource = new SqlStatisticsDataSource(this.database);
+        this.jdbcTemplate = new JdbcTemplate(this.dataSource);
+    }
+
+    @After
+    public void tearDown() {
+        SqlStatistics.bind(null);
+        this.database.shutdown();
+    }
+
+    @Test
+    public void shouldCountStatementsRowsAndShapes() {
+        SqlStatistics statistics = SqlStatistics.start("request");
+
+        assertThat(this.jdbcTemplate.queryForList("SELECT id FROM owners", Integer.class)).hasSize(10);
+        for (int id = 1; id <= 3; id++) {
+            this.jdbcTemplate.queryForObject("SELECT last_name FROM owners WHERE id = ?", String.class, id);
+        }
+        this.jdbcTemplate.queryForObject("SELECT last_name FROM owners WHERE id = 4", String.class);
+        statistics.stop();
+
+        assertThat(statistics.getStatementCount()).isEqualTo(5);
+        assertThat(statistics.getRowCount()).isEqualTo(14);
+        assertThat(statistics.getElapsedTime()).isPositive();
+        assertThat(statistics.getMaxStatementCountPerShape()).isEqualTo(4);
+        Map.Entry<String, Integer> mostExecuted = statistics.getStatementCountsByShape().get(0);
+        assertThat(mostExecuted.getKey()).isEqualTo("SELECT last_name FROM owners WHERE id = ?");
+        assertThat(SqlStatistics.current()).isNull();
+    }
+
+    @Test
+    public void shouldCountNestedStatisticsInTheEnclosingOnes() {
+        SqlStatistics request = SqlStatistics.start("request");
+        this.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM owners", Integer.class);
+        SqlStatistics call = SqlStatistics.start("call");
+        this.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pets", Integer.class);
+        call.stop();
+        assertThat(SqlStatistics.current()).isSameAs(request);
+        request.stop();
+
+        assertThat(call.getStatementCount()).isEqualTo(1);
+        assertThat(call.getParent()).isSameAs(request);
+        assertThat(request.getStatementCount()).isEqualTo(2);
+        assertThat(request.getRowCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldCountABatchAsOneStatement() {
+        SqlStatistics statistics = SqlStatistics.start("import");
+        this.jdbcTemplate.batchUpdate("UPDATE owners SET city = ? WHERE id = ?",
+            Arrays.asList(new Object[]{"Madison", 1}, new Object[]{"Madison", 2}, new Object[]{"Madison", 3}));
+        statistics.stop();
+
+        assertThat(statistics.getStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotMonitorConnectionsObtainedWithoutStatistics() throws Exception {
+        try (Connection connection = this.dataSource.getConnection()) {
+            assertThat(Proxy.isProxyClass(connection.getClass())).isFalse();
+        }
+        SqlStatistics statistics = SqlStatistics.start("request");
+        try (Connection connection = this.dataSource.getConnection()) {
+            assertThat(Proxy.isProxyClass(connection.getClass())).isTrue();
+            assertThat(connection.unwrap(Connection.class)).isSameAs(connection);
+            assertThat(connection.createStatement().getConnection()).isSameAs(connection);
+        } finally {
+            statistics.stop();
+        }
+    }
+
+    @Test
+    public void shouldReplaceLiteralsAndInListsInShapes() {
+        assertThat(this.dataSource.shapeOf("SELECT *\n  FROM pets WHERE owner_id IN (?, ?,?) AND name = 'Leo''s'"))
+            .isEqualTo("SELECT * FROM pets WHERE owner_id in (?) AND name = ?");
+        assertThat(this.dataSource.shapeOf("SELECT pets0_.id as id1_1_ FROM pets pets0_ WHERE pets0_.id = 12"))
+            .isEqualTo("SELECT pets0_.id as id1_1_ FROM pets pets0_ WHERE pets0_.id = ?");
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.junit.rules.ExternalResource;
+
+/**
+ * Rule gathering the {@link SqlStatistics} of each test, which lets tests assert how many statements a call runs:
+ * <pre class="code">
+ * Owner owner = this.sqlStatistics.assertMaxStatements(2, () -> this.clinicService.findOwnerById(1));
+ * </pre>
+ * Only the statements of connections obtained through the {@link SqlStatisticsDataSource} while the test runs are
+ * counted.
+ */
+public class SqlStatisticsRule extends ExternalResource {
+
+    private SqlStatistics statistics;
+
+    @Override
+    protected void before() {
+        this.statistics = SqlStatistics.start("test");
+    }
+
+    @Override
+    protected void after() {
+        this.statistics.stop();
+    }
+
+    /**
+     * Return the statistics of the whole test so far.
+     */
+    public SqlStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * Return the number of statements run by the test so far, or since the last {@link #reset}.
+     */
+    public int getStatementCount() {
+        return this.statistics.getStatementCount();
+    }
+
+    /**
+     * Start the statistics of the test afresh, e.g. once its fixture has been set up.
+     */
+    public void reset() {
+        this.statistics.stop();
+        this.statistics = SqlStatistics.start("test");
+    }
+
+    /**
+     * Make the given call and assert it ran at most <code>maxStatements</code> statements.
+     *
+     * @return the result of the call
+     */
+    public <T> T assertMaxStatements(int maxStatements, Supplier<T> call) {
+        SqlStatistics callStatistics = SqlStatistics.start("call");
+        T result;
+        try {
+            result = call.get();
+        } finally {
+            callStatistics.stop();
+        }
+        StringBuilder statements = new StringBuilder();
+        for (Map.Entry<String, Integer> shape : callStatistics.getStatementCountsByShape()) {
+            statements.append("\n  ").append(shape.getValue()).append("x ").append(shape.getKey());
+        }
+        assertThat(callStatistics.getStatementCount())
+            .as("statements run by the call:%s", statements)
+            .isLessThanOrEqualTo(maxStatements);
+        return result;
+    }
+
+}
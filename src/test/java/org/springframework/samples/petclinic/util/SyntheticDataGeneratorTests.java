@@ -0,0 +1,112 @@
+package org.springframework.samples.petclinic.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+/**
+ * Test class for {@link SyntheticDataGenerator}
+ */
+public class SyntheticDataGeneratorTests {
+
+    private EmbeddedDatabase database;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setup() {
+        this.database = createDatabase();
+        this.jdbcTemplate = new JdbcTemplate(this.database);
+    }
+
+    @After
+    public void tearDown() {
+        this.database.shutdown();
+    }
+
+    @Test
+    public void shouldGenerateOwnersPetsAndVisitsOnTopOfTheSampleData() {
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(this.database);
+        generator.setOwnerCount(2000);
+        generator.setBatchSize(100);
+        generator.generate();
+
+        assertThat(count("owners")).isEqualTo(10 + 2000);
+        // geometric distributions around 2 pets per owner and 4 visits per pet
+        assertThat(count("pets")).isBetween(13 + 3600, 13 + 4400);
+        assertThat(count("visits") * 1.0 / count("pets")).isBetween(3.0, 5.0);
+        assertThat(this.jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM pets WHERE owner_id NOT IN (SELECT id FROM owners)", Integer.class)).isEqualTo(0);
+
+        // identity columns keep working after explicit ids have been inserted
+        this.jdbcTemplate.update("INSERT INTO pets (name, birth_date, type_id, owner_id) VALUES ('New', '2015-01-01', 1, 1)");
+        // and so do the ids allocated from id_sequences by the pooled-ids profile
+        assertThat(this.jdbcTemplate.queryForObject(
+            "SELECT next_val FROM id_sequences WHERE sequence_name = 'owners'", Integer.class)).isEqualTo(10 + 2000 + 1);
+    }
+
+    @Test
+    public void shouldSkewLastNamesTowardsTheMostCommonOnes() {
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(this.database);
+        generator.setOwnerCount(2000);
+        generator.setLastNameCount(100);
+        generator.generate();
+
+        List<Map<String, Object>> counts = this.jdbcTemplate.queryForList(
+            "SELECT last_name, COUNT(*) AS c FROM owners WHERE id > 10 GROUP BY last_name ORDER BY c DESC");
+        assertThat(counts.get(0).get("last_name")).isEqualTo(SyntheticDataGenerator.lastName(0));
+        assertThat(((Number) counts.get(0).get("c")).intValue()).isGreaterThan(
+            10 * ((Number) counts.get(counts.size() - 1).get("c")).intValue());
+    }
+
+    @Test
+    public void shouldGenerateTheSameDataForTheSameSeed() {
+        EmbeddedDatabase otherDatabase = createDatabase();
+        try {
+            SyntheticDataGenerator generator = new SyntheticDataGenerator(this.database);
+            generator.setOwnerCount(200);
+            generator.setSeed(7);
+            generator.generate();
+            SyntheticDataGenerator otherGenerator = new SyntheticDataGenerator(otherDatabase);
+            otherGenerator.setOwnerCount(200);
+            otherGenerator.setSeed(7);
+            otherGenerator.generate();
+
+            String query = "SELECT o.last_name, p.name, v.visit_date FROM owners o JOIN pets p ON p.owner_id = o.id " +
+                "JOIN visits v ON v.pet_id = p.id ORDER BY v.id";
+            assertThat(new JdbcTemplate(otherDatabase).queryForList(query))
+                .isEqualTo(this.jdbcTemplate.queryForList(query));
+        } finally {
+            otherDatabase.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldGenerateDistinctLastNamesPerRank() {
+        assertThat(SyntheticDataGenerator.lastName(0)).isNotEqualTo(SyntheticDataGenerator.lastName(900));
+        assertThat(SyntheticDataGenerator.lastName(SyntheticDataGenerator.getMaxLastNameCount() - 1).length())
+            .isLessThanOrEqualTo(30);
+    }
+
+    private int count(String table) {
+        return this.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    private static EmbeddedDatabase createDatabase() {
+        return new EmbeddedDatabaseBuilder()
+            .generateUniqueName(true)
+            .setType(EmbeddedDatabaseType.HSQL)
+            .addScripts("db/hsqldb/initDB.sql", "db/hsqldb/populateDB.sql")
+            .build();
+    }
+
+}
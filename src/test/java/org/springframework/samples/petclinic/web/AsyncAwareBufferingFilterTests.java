@@ -0,0 +1,84 @@
+package org.springframework.samples.petclinic.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+/**
+ * Test class for {@link AsyncAwareBufferingFilter}
+ */
+public class AsyncAwareBufferingFilterTests {
+
+    private final AsyncAwareBufferingFilter filter = new AsyncAwareBufferingFilter(new UpperCaseFilter());
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/owners");
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Test
+    public void shouldRewriteSynchronousResponses() throws Exception {
+        this.filter.doFilter(this.request, this.response, (request, response) -> response.getWriter().write("owners"));
+
+        assertThat(this.response.getContentAsString()).isEqualTo("OWNERS");
+        assertThat(this.response.getContentLength()).isEqualTo(6);
+    }
+
+    @Test
+    public void shouldRewriteTheResponseRenderedInTheAsyncDispatch() throws Exception {
+        ServletResponse[] asyncResponse = new ServletResponse[1];
+        this.request.setAsyncSupported(true);
+        this.filter.doFilter(this.request, this.response, (request, response) -> {
+            this.request.startAsync(request, response);
+            asyncResponse[0] = response;
+        });
+
+        assertThat(this.response.isCommitted()).isFalse();
+        assertThat(this.response.getContentAsString()).isEmpty();
+
+        this.request.setAsyncStarted(false);
+        this.request.setDispatcherType(DispatcherType.ASYNC);
+        this.filter.doFilter(this.request, asyncResponse[0], (request, response) -> response.getWriter().write("owners"));
+
+        assertThat(this.response.getContentAsString()).isEqualTo("OWNERS");
+    }
+
+
+    /**
+     * Buffers the response and writes it back in upper case, the way the Dandelion filters rewrite pages.
+     */
+    private static class UpperCaseFilter implements Filter {
+
+        @Override
+        public void init(FilterConfig filterConfig) {
+        }
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+            ContentCachingResponseWrapper buffer = new ContentCachingResponseWrapper((HttpServletResponse) response);
+            chain.doFilter(request, buffer);
+            byte[] content = new String(buffer.getContentAsByteArray(), "UTF-8").toUpperCase().getBytes("UTF-8");
+            response.setContentLength(content.length);
+            response.getOutputStream().write(content);
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+
+}
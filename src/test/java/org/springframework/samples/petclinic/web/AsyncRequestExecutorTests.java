@@ -0,0 +1,78 @@
+package org.springframework.samples.petclinic.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.task.TaskRejectedException;
+
+/**
+ * Test class for {@link AsyncRequestExecutor}
+ */
+public class AsyncRequestExecutorTests {
+
+    private AsyncRequestExecutor executor;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Before
+    public void setup() {
+        this.executor = new AsyncRequestExecutor();
+        this.executor.setCorePoolSize(1);
+        this.executor.setMaxPoolSize(1);
+        this.executor.setQueueCapacity(1);
+        this.executor.initialize();
+    }
+
+    @After
+    public void tearDown() {
+        this.release.countDown();
+        this.executor.shutdown();
+    }
+
+    @Test
+    public void shouldRejectTasksOnceThePoolAndQueueAreFull() throws Exception {
+        Future<?> running = this.executor.submit(this::awaitRelease);
+        Future<String> queued = this.executor.submit(() -> "queued");
+        try {
+            this.executor.submit(() -> "rejected");
+            fail("Expected the task to be rejected");
+        } catch (TaskRejectedException ex) {
+            assertThat(this.executor.getRejectedTaskCount()).isEqualTo(1);
+        }
+        assertThat(this.executor.getQueueSize()).isEqualTo(1);
+
+        this.release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("queued");
+        assertThat(this.executor.getQueueWaitTimeMean()).isGreaterThan(0);
+        assertThat(this.executor.getExecutionTimeP99()).isGreaterThan(0);
+    }
+
+    @Test
+    public void shouldResetStatistics() throws Exception {
+        this.executor.submit(() -> "done").get(5, TimeUnit.SECONDS);
+
+        this.executor.resetStatistics();
+
+        assertThat(this.executor.getQueueWaitTimeMean()).isZero();
+        assertThat(this.executor.getExecutionTimeMean()).isZero();
+        assertThat(this.executor.getRejectedTaskCount()).isZero();
+    }
+
+    private void awaitRelease() {
+        try {
+            this.release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
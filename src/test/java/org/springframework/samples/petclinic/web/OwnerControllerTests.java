@@ -1,5 +1,8 @@
 package org.springframework.samples.petclinic.web;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.assertj.core.util.Lists;
 import org.junit.Before;
 import org.junit.Test;
@@ -11,11 +14,18 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -54,6 +64,7 @@ public class OwnerControllerTests {
         george.setCity("Madison");
         george.setTelephone("6085551023");
         given(this.clinicService.findOwnerById(TEST_OWNER_ID)).willReturn(george);
+        given(this.clinicService.findOwnerSummaryById(eq(TEST_OWNER_ID), anyInt())).willReturn(george);
 
     }
 
@@ -101,18 +112,57 @@ public class OwnerControllerTests {
 
     @Test
     public void testProcessFindFormSuccess() throws Exception {
-        given(this.clinicService.findOwnerByLastName("")).willReturn(Lists.newArrayList(george, new Owner()));
+        given(this.clinicService.findOwnerByLastName("", null, null, 21)).willReturn(Lists.newArrayList(george, new Owner()));
+
+        performAsync(get("/owners"))
+            .andExpect(status().isOk())
+            .andExpect(model().attributeDoesNotExist("nextId", "previousId"))
+            .andExpect(view().name("owners/ownersList"));
+    }
+
+    @Test
+    public void testProcessFindFormNextPage() throws Exception {
+        List<Owner> page = new ArrayList<>();
+        for (int i = 0; i < 21; i++) {
+            Owner owner = new Owner();
+            owner.setId(100 + i);
+            owner.setLastName("Davis");
+            page.add(owner);
+        }
+        given(this.clinicService.findOwnerByLastName("Davis", "Davis", 99, 21)).willReturn(page);
+
+        performAsync(get("/owners")
+            .param("lastName", "Davis")
+            .param("afterLastName", "Davis")
+            .param("afterId", "99")
+        )
+            .andExpect(status().isOk())
+            .andExpect(model().attribute("selections", hasSize(20)))
+            .andExpect(model().attribute("previousId", 100))
+            .andExpect(model().attribute("nextLastName", "Davis"))
+            .andExpect(model().attribute("nextId", 119))
+            .andExpect(view().name("owners/ownersList"));
+    }
+
+    @Test
+    public void testProcessFindFormPreviousPage() throws Exception {
+        given(this.clinicService.findOwnerByLastNameBefore("", "Franklin", 1, 21)).willReturn(Lists.newArrayList(george));
 
-        mockMvc.perform(get("/owners"))
+        performAsync(get("/owners")
+            .param("beforeLastName", "Franklin")
+            .param("beforeId", "1")
+        )
             .andExpect(status().isOk())
+            .andExpect(model().attributeDoesNotExist("previousId"))
+            .andExpect(model().attribute("nextId", TEST_OWNER_ID))
             .andExpect(view().name("owners/ownersList"));
     }
 
     @Test
     public void testProcessFindFormByLastName() throws Exception {
-        given(this.clinicService.findOwnerByLastName(george.getLastName())).willReturn(Lists.newArrayList(george));
+        given(this.clinicService.findOwnerByLastName(george.getLastName(), null, null, 21)).willReturn(Lists.newArrayList(george));
 
-        mockMvc.perform(get("/owners")
+        performAsync(get("/owners")
             .param("lastName", "Franklin")
         )
             .andExpect(status().is3xxRedirection())
@@ -121,7 +171,7 @@ public class OwnerControllerTests {
 
     @Test
     public void testProcessFindFormNoOwnersFound() throws Exception {
-        mockMvc.perform(get("/owners")
+        performAsync(get("/owners")
             .param("lastName", "Unknown Surname")
         )
             .andExpect(status().isOk())
@@ -172,7 +222,7 @@ public class OwnerControllerTests {
 
     @Test
     public void testShowOwner() throws Exception {
-        mockMvc.perform(get("/owners/{ownerId}", TEST_OWNER_ID))
+        performAsync(get("/owners/{ownerId}", TEST_OWNER_ID))
             .andExpect(status().isOk())
             .andExpect(model().attribute("owner", hasProperty("lastName", is("Franklin"))))
             .andExpect(model().attribute("owner", hasProperty("firstName", is("George"))))
@@ -182,4 +232,11 @@ public class OwnerControllerTests {
             .andExpect(view().name("owners/ownerDetails"));
     }
 
+    private ResultActions performAsync(MockHttpServletRequestBuilder requestBuilder) throws Exception {
+        MvcResult mvcResult = this.mockMvc.perform(requestBuilder)
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        return this.mockMvc.perform(asyncDispatch(mvcResult));
+    }
+
 }
@@ -0,0 +1,115 @@
+package org.springframework.samples.petclinic.web;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.reset;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.samples.petclinic.model.Owner;
+import org.springframework.samples.petclinic.model.Pet;
+import org.springframework.samples.petclinic.model.PetType;
+import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.repository.OwnerExportHandler;
+import org.springframework.samples.petclinic.service.ClinicService;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+/**
+ * Test class for {@link OwnerExportController}
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration({"classpath:spring/mvc-core-config.xml", "classpath:spring/mvc-test-config.xml"})
+@WebAppConfiguration
+public class OwnerExportControllerTests {
+
+    @Autowired
+    private OwnerExportController ownerExportController;
+
+    @Autowired
+    private ClinicService clinicService;
+
+    private MockMvc mockMvc;
+
+    @Before
+    public void setup() {
+        reset(this.clinicService);
+        this.mockMvc = MockMvcBuilders.standaloneSetup(this.ownerExportController).build();
+
+        final Owner george = new Owner();
+        george.setId(1);
+        george.setFirstName("George");
+        george.setLastName("Franklin");
+        george.setAddress("110 W. Liberty St.");
+        george.setCity("Madison");
+        george.setTelephone("6085551023");
+        final Pet leo = new Pet();
+        leo.setId(1);
+        leo.setName("Leo");
+        leo.setBirthDate(new LocalDate(2010, 9, 7));
+        PetType cat = new PetType();
+        cat.setName("cat");
+        leo.setType(cat);
+        final Visit visit = new Visit();
+        visit.setId(1);
+        visit.setDate(new LocalDate(2013, 1, 1));
+        visit.setDescription("rabies shot, \"first\"");
+        final Owner betty = new Owner();
+        betty.setId(2);
+        betty.setFirstName("Betty");
+        betty.setLastName("Davis");
+        betty.setAddress("638 Cardinal Ave.");
+        betty.setCity("Sun Prairie");
+        betty.setTelephone("6085551749");
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                OwnerExportHandler handler = (OwnerExportHandler) invocation.getArguments()[0];
+                handler.handleRow(george, leo, visit);
+                handler.handleRow(betty, null, null);
+                return null;
+            }
+        }).when(this.clinicService).exportOwners(any(OwnerExportHandler.class));
+    }
+
+    @Test
+    public void testExportCsv() throws Exception {
+        this.mockMvc.perform(get("/owners/export.csv"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("text/csv;charset=UTF-8"))
+            .andExpect(header().string("Content-Disposition", "attachment; filename=\"owners.csv\""))
+            .andExpect(content().string(
+                "ownerId,firstName,lastName,address,city,telephone,petId,petName,birthDate,type,visitId,visitDate,description\r\n" +
+                    "1,George,Franklin,110 W. Liberty St.,Madison,6085551023,1,Leo,2010-09-07,cat,1,2013-01-01," +
+                    "\"rabies shot, \"\"first\"\"\"\r\n" +
+                    "2,Betty,Davis,638 Cardinal Ave.,Sun Prairie,6085551749,,,,,,,\r\n"));
+    }
+
+    @Test
+    public void testExportNdjson() throws Exception {
+        this.mockMvc.perform(get("/owners/export.ndjson"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+            .andExpect(content().string(
+                "{\"ownerId\":\"1\",\"firstName\":\"George\",\"lastName\":\"Franklin\",\"address\":\"110 W. Liberty St.\"," +
+                    "\"city\":\"Madison\",\"telephone\":\"6085551023\",\"petId\":\"1\",\"petName\":\"Leo\"," +
+                    "\"birthDate\":\"2010-09-07\",\"type\":\"cat\",\"visitId\":\"1\",\"visitDate\":\"2013-01-01\"," +
+                    "\"description\":\"rabies shot, \\\"first\\\"\"}\n" +
+                    "{\"ownerId\":\"2\",\"firstName\":\"Betty\",\"lastName\":\"Davis\",\"address\":\"638 Cardinal Ave.\"," +
+                    "\"city\":\"Sun Prairie\",\"telephone\":\"6085551749\"}\n"));
+    }
+
+}
@@ -13,6 +13,8 @@ import java.text.ParseException;
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 /**
  * Test class for {@link PetTypeFormatter}
@@ -53,6 +55,26 @@ public class PetTypeFormatterTests {
         petTypeFormatter.parse("Fish", Locale.ENGLISH);
     }
 
+    @Test
+    public void shouldReindexWhenPetTypesAreReloaded() throws ParseException {
+        Collection<PetType> petTypes = makePetTypes();
+        Mockito.when(clinicService.findPetTypes()).thenReturn(petTypes);
+        PetType dog = petTypeFormatter.parse("Dog", Locale.ENGLISH);
+        assertSame(dog, petTypeFormatter.parse("Dog", Locale.ENGLISH));
+
+        Collection<PetType> reloadedPetTypes = makePetTypes();
+        reloadedPetTypes.add(new PetType(){
+            private static final long serialVersionUID = 1L;
+
+            {
+                setName("Fish");
+            }
+        });
+        Mockito.when(clinicService.findPetTypes()).thenReturn(reloadedPetTypes);
+        assertEquals("Fish", petTypeFormatter.parse("Fish", Locale.ENGLISH).getName());
+        assertNotSame(dog, petTypeFormatter.parse("Dog", Locale.ENGLISH));
+    }
+
     /**
      * Helper method to produce some sample pet types just for test purpose
      *
@@ -61,11 +83,15 @@ public class PetTypeFormatterTests {
     private Collection<PetType> makePetTypes() {
         Collection<PetType> petTypes = new ArrayList<>();
         petTypes.add(new PetType(){
+            private static final long serialVersionUID = 1L;
+
             {
                 setName("Dog");
             }
         });
         petTypes.add(new PetType(){
+            private static final long serialVersionUID = 1L;
+
             {
                 setName("Bird");
             }
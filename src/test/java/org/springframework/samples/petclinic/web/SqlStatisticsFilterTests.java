@@ -0,0 +1,120 @@
+package org.springframework.samples.petclinic.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.servlet.FilterChain;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.samples.petclinic.util.SqlStatistics;
+import org.springframework.samples.petclinic.util.SqlStatisticsDataSource;
+import org.springframework.samples.petclinic.util.SqlStatisticsMonitor;
+
+/**
+ * Test class for {@link SqlStatisticsFilter}, with a filter chain that selects each owner by id, one by one.
+ */
+public class SqlStatisticsFilterTests {
+
+    private EmbeddedDatabase database;
+
+    private SqlStatisticsMonitor monitor;
+
+    private SqlStatisticsFilter filter;
+
+    private FilterChain ownersOneByOne;
+
+    private Logger monitorLogger;
+
+    private ListAppender<ILoggingEvent> warnings;
+
+    @Before
+    public void setup() {
+        this.database = new EmbeddedDatabaseBuilder()
+            .generateUniqueName(true)
+            .setType(EmbeddedDatabaseType.HSQL)
+            .addScripts("db/hsqldb/initDB.sql", "db/hsqldb/populateDB.sql")
+            .build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SqlStatisticsDataSource(this.database));
+        this.monitor = new SqlStatisticsMonitor();
+        this.filter = new SqlStatisticsFilter(this.monitor);
+        this.ownersOneByOne = (request, response) -> {
+            for (int id = 1; id <= 3; id++) {
+                jdbcTemplate.queryForObject("SELECT last_name FROM owners WHERE id = ?", String.class, id);
+            }
+            response.getWriter().write("owners");
+        };
+        // the reports are checked below instead of being logged to the console
+        this.monitorLogger = (Logger) LoggerFactory.getLogger(SqlStatisticsMonitor.class);
+        this.warnings = new ListAppender<>();
+        this.warnings.start();
+        this.monitorLogger.addAppender(this.warnings);
+        this.monitorLogger.setAdditive(false);
+    }
+
+    @After
+    public void tearDown() {
+        this.monitorLogger.detachAppender(this.warnings);
+        this.monitorLogger.setAdditive(true);
+        this.database.shutdown();
+    }
+
+    @Test
+    public void shouldReportRequestsRepeatingAStatement() throws Exception {
+        this.monitor.setMaxRepeatedStatements(3);
+        this.filter.doFilter(new MockHttpServletRequest("GET", "/owners"), new MockHttpServletResponse(),
+            this.ownersOneByOne);
+        assertThat(this.monitor.getReportCount()).isZero();
+        assertThat(this.warnings.list).isEmpty();
+
+        this.monitor.setMaxRepeatedStatements(2);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/owners");
+        this.filter.doFilter(request, new MockHttpServletResponse(), this.ownersOneByOne);
+        assertThat(this.monitor.getReportCount()).isEqualTo(1);
+        assertThat(this.warnings.list).hasSize(1);
+        assertThat(this.warnings.list.get(0).getFormattedMessage())
+            .startsWith("GET /owners: 3 statements")
+            .endsWith("\n  3x SELECT last_name FROM owners WHERE id = ?");
+
+        SqlStatistics statistics = (SqlStatistics) request.getAttribute(SqlStatisticsFilter.STATISTICS_ATTRIBUTE);
+        assertThat(statistics.getName()).isEqualTo("GET /owners");
+        assertThat(statistics.getStatementCount()).isEqualTo(3);
+        assertThat(SqlStatistics.current()).isNull();
+    }
+
+    @Test
+    public void shouldAddResponseHeadersOnlyWhenEnabled() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        this.filter.doFilter(new MockHttpServletRequest("GET", "/owners"), response, this.ownersOneByOne);
+        assertThat(response.getHeader("X-SQL-Count")).isNull();
+        assertThat(response.getContentAsString()).isEqualTo("owners");
+
+        this.filter.setResponseHeaders(true);
+        response = new MockHttpServletResponse();
+        this.filter.doFilter(new MockHttpServletRequest("GET", "/owners"), response, this.ownersOneByOne);
+        assertThat(response.getHeader("X-SQL-Count")).isEqualTo("3");
+        assertThat(response.getHeader("Server-Timing")).matches("db;dur=\\d+\\.\\d{3};desc=\"3 statements\"");
+        assertThat(response.getContentAsString()).isEqualTo("owners");
+    }
+
+    @Test
+    public void shouldNotGatherStatisticsWhenDisabled() throws Exception {
+        this.monitor.setEnabled(false);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/owners");
+        this.filter.doFilter(request, new MockHttpServletResponse(), this.ownersOneByOne);
+
+        assertThat(request.getAttribute(SqlStatisticsFilter.STATISTICS_ATTRIBUTE)).isNull();
+    }
+
+}
@@ -1,10 +1,15 @@
 package org.springframework.samples.petclinic.web;
 
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
 import org.assertj.core.util.Lists;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.samples.petclinic.model.Specialty;
 import org.springframework.samples.petclinic.model.Vet;
@@ -13,11 +18,15 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.xml.HasXPath.hasXPath;
 import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -35,6 +44,11 @@ public class VetControllerTests {
     @Autowired
     private ClinicService clinicService;
 
+    @Autowired
+    private VetsResponseCache vetsResponseCache;
+
+    private List<Vet> vets;
+
     private MockMvc mockMvc;
 
     @Before
@@ -53,7 +67,8 @@ public class VetControllerTests {
         radiology.setId(1);
         radiology.setName("radiology");
         helen.addSpecialty(radiology);
-        given(this.clinicService.findVets()).willReturn(Lists.newArrayList(james, helen));
+        this.vets = Lists.newArrayList(james, helen);
+        given(this.clinicService.findVets()).willReturn(this.vets);
     }
 
     @Test
@@ -66,7 +81,7 @@ public class VetControllerTests {
 
     @Test
     public void testShowResourcesVetList() throws Exception {
-        ResultActions actions = mockMvc.perform(get("/vets.json").accept(MediaType.APPLICATION_JSON))
+        ResultActions actions = performAsync(get("/vets.json").accept(MediaType.APPLICATION_JSON))
             .andExpect(status().isOk());
         actions.andExpect(content().contentType("application/json;charset=UTF-8"))
             .andExpect(jsonPath("$.vetList[0].id").value(1));
@@ -74,11 +89,76 @@ public class VetControllerTests {
 
     @Test
     public void testShowVetListXml() throws Exception {
-        mockMvc.perform(get("/vets.xml").accept(MediaType.APPLICATION_XML))
+        performAsync(get("/vets.xml").accept(MediaType.APPLICATION_XML))
             .andExpect(status().isOk())
             .andExpect(content().contentType(MediaType.APPLICATION_XML_VALUE))
             .andExpect(content().node(hasXPath("/vets/vetList[id=1]/id")));
     }
 
-}
+    @Test
+    public void testShowVetListWithETag() throws Exception {
+        String eTag = this.vetsResponseCache.getJson().getETag(false);
+
+        performAsync(get("/vets.json"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag))
+            .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING));
+        performAsync(get("/vets.json").header(HttpHeaders.IF_NONE_MATCH, "\"other\", " + eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag))
+            .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    public void testShowGzippedVetList() throws Exception {
+        VetsResponseCache.RenderedResponse xml = this.vetsResponseCache.getXml();
+
+        MvcResult result = performAsync(get("/vets.xml").header(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+            .andExpect(header().string(HttpHeaders.ETAG, xml.getETag(true)))
+            .andReturn();
+        byte[] body = result.getResponse().getContentAsByteArray();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            byte[] unzipped = new byte[xml.getBody(false).length];
+            int read = 0;
+            while (read < unzipped.length) {
+                read += in.read(unzipped, read, unzipped.length - read);
+            }
+            assertThat(unzipped).isEqualTo(xml.getBody(false));
+            assertThat(in.read()).isEqualTo(-1);
+        }
 
+        // the ETag of the identity variant does not match the gzipped one
+        performAsync(get("/vets.xml").header(HttpHeaders.IF_NONE_MATCH, xml.getETag(false))
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+            .andExpect(status().isOk());
+        performAsync(get("/vets.xml").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    public void testRenderVetListOnlyWhenTheVetsChange() throws Exception {
+        VetsResponseCache.RenderedResponse json = this.vetsResponseCache.getJson();
+        assertThat(this.vetsResponseCache.getJson()).isSameAs(json);
+
+        // reloaded, but unchanged
+        given(this.clinicService.findVets()).willReturn(Lists.newArrayList(this.vets));
+        VetsResponseCache.RenderedResponse reloaded = this.vetsResponseCache.getJson();
+        assertThat(reloaded).isNotSameAs(json);
+        assertThat(reloaded.getETag(false)).isEqualTo(json.getETag(false));
+
+        this.vets.get(0).setLastName("Carver");
+        given(this.clinicService.findVets()).willReturn(Lists.newArrayList(this.vets));
+        assertThat(this.vetsResponseCache.getJson().getETag(false)).isNotEqualTo(json.getETag(false));
+    }
+
+    private ResultActions performAsync(MockHttpServletRequestBuilder requestBuilder) throws Exception {
+        MvcResult mvcResult = this.mockMvc.perform(requestBuilder)
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        return this.mockMvc.perform(asyncDispatch(mvcResult));
+    }
+
+}
@@ -4,7 +4,11 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.samples.petclinic.model.Pet;
+import org.springframework.samples.petclinic.model.Visit;
 import org.springframework.samples.petclinic.service.ClinicService;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
@@ -12,7 +16,12 @@ import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.util.Collections;
+
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -42,6 +51,8 @@ public class VisitControllerTests {
         this.mockMvc = MockMvcBuilders.standaloneSetup(visitController).build();
 
         given(this.clinicService.findPetById(TEST_PET_ID)).willReturn(new Pet());
+        given(this.clinicService.findVisitsByPetId(eq(TEST_PET_ID), any(Pageable.class)))
+            .willReturn(new PageImpl<>(Collections.<Visit>emptyList()));
     }
 
     @Test
@@ -79,5 +90,16 @@ public class VisitControllerTests {
             .andExpect(view().name("visitList"));
     }
 
+    @Test
+    public void testShowVisitsPage() throws Exception {
+        mockMvc.perform(get("/owners/*/pets/{petId}/visits", TEST_PET_ID)
+            .param("page", "2")
+        )
+            .andExpect(status().isOk())
+            .andExpect(model().attributeExists("visits"))
+            .andExpect(view().name("visitList"));
+        verify(this.clinicService).findVisitsByPetId(TEST_PET_ID, new PageRequest(2, 20));
+    }
+
 
 }
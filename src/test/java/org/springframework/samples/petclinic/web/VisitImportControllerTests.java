@@ -0,0 +1,100 @@
+package org.springframework.samples.petclinic.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.samples.petclinic.model.Visit;
+import org.springframework.samples.petclinic.service.ClinicService;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+/**
+ * Test class for {@link VisitImportController}
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration({"classpath:spring/mvc-core-config.xml", "classpath:spring/mvc-test-config.xml"})
+@WebAppConfiguration
+public class VisitImportControllerTests {
+
+    @Autowired
+    private VisitImportController visitImportController;
+
+    @Autowired
+    private ClinicService clinicService;
+
+    private MockMvc mockMvc;
+
+    @Before
+    public void setup() {
+        reset(this.clinicService);
+        this.mockMvc = MockMvcBuilders.standaloneSetup(this.visitImportController).build();
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void testImportVisitsInChunks() throws Exception {
+        int visitCount = 2 * VisitImportController.CHUNK_SIZE + 500;
+        StringBuilder csv = new StringBuilder("petId,date,description\n");
+        for (int i = 0; i < visitCount; i++) {
+            csv.append(i % 13 + 1).append(",2015-03-").append(i % 20 + 10).append(",checkup, teeth\n");
+        }
+
+        this.mockMvc.perform(post("/visits/import").contentType("text/csv").content(csv.toString()))
+            .andExpect(status().isOk())
+            .andExpect(content().string("Imported " + visitCount + " visits"));
+
+        ArgumentCaptor<Collection> chunks = ArgumentCaptor.forClass(Collection.class);
+        verify(this.clinicService, times(3)).saveVisits(chunks.capture());
+        List<Integer> sizes = new ArrayList<>();
+        for (Collection chunk : chunks.getAllValues()) {
+            sizes.add(chunk.size());
+        }
+        assertThat(sizes).containsExactly(VisitImportController.CHUNK_SIZE, VisitImportController.CHUNK_SIZE, 500);
+        Visit first = (Visit) chunks.getAllValues().get(0).iterator().next();
+        assertThat(first.getPet().getId()).isEqualTo(1);
+        assertThat(first.getDate()).isEqualTo(new LocalDate(2015, 3, 10));
+        assertThat(first.getDescription()).isEqualTo("checkup, teeth");
+    }
+
+    @Test
+    public void testImportStopsAtInvalidLine() throws Exception {
+        this.mockMvc.perform(post("/visits/import").contentType("text/csv").content("7,2015-03-10,rabies shot\n7,tomorrow,?\n"))
+            .andExpect(status().isBadRequest());
+
+        verifyZeroInteractions(this.clinicService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testImportStopsAtRejectedChunk() throws Exception {
+        doThrow(new DataIntegrityViolationException("fk_visits_pets"))
+            .when(this.clinicService).saveVisits(anyCollectionOf(Visit.class));
+
+        this.mockMvc.perform(post("/visits/import").contentType("text/csv").content("42,2015-03-10,rabies shot\n"))
+            .andExpect(status().isBadRequest())
+            .andExpect(content().string("Imported 0 visits, then stopped at visits up to line 1 refer to unknown pets"));
+    }
+
+}